@@ -0,0 +1,143 @@
+package com.chatbot.benchmark;
+
+import com.chatbot.dto.ChatTurn;
+import com.chatbot.entity.MessageSender;
+import com.chatbot.service.ChatCompletionCodec;
+import com.chatbot.service.KnowledgeBase;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LLM request body construction and response parsing (LlmService.callProvider / streamProvider).
+ *
+ * The *Tree benchmarks are the baseline: the ObjectNode/JsonNode code LlmService used before
+ * ChatCompletionCodec (request built as a tree and serialized, response read as a String and parsed
+ * into a tree). Most of the difference is allocation, so compare with the GC profiler:
+ *
+ * Run: mvn -Pbenchmark verify -Djmh.include=ChatCompletionCodec -Djmh.args="-prof gc"
+ * (gc.alloc.rate.norm = bytes allocated per operation)
+ */
+@State(Scope.Benchmark)
+public class ChatCompletionCodecBenchmark extends BenchmarkDefaults {
+
+    private static final String SYSTEM_ROLE = "You are a helpful customer support agent for \"ShopEase\".\n\n=== STORE KNOWLEDGE / FAQ ===\n\n";
+    private static final String NO_KNOWLEDGE_MATCH = "(No store knowledge matches this question.)\n";
+    private static final String SYSTEM_GUIDELINES = "\n=== GUIDELINES ===\n- Be friendly, professional, and helpful\n";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ChatCompletionCodec codec;
+    private List<KnowledgeBase.Section> sections;
+    private byte[] response;
+    private String streamChunk;
+
+    @Setup
+    public void setUp() {
+        codec = new ChatCompletionCodec(new JsonFactory(), 500, 0.7, SYSTEM_ROLE, NO_KNOWLEDGE_MATCH, SYSTEM_GUIDELINES);
+        sections = List.of(
+                new KnowledgeBase.Section("Shipping", "Standard shipping takes 3-5 business days. Express shipping takes 1-2 days."),
+                new KnowledgeBase.Section("Returns", "Items can be returned within 30 days in their original packaging."),
+                new KnowledgeBase.Section("Warranty", "All electronics come with a 1-year manufacturer warranty."));
+        response = ("{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion\",\"created\":1700000000,"
+                + "\"model\":\"llama-3.1-8b-instant\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\","
+                + "\"content\":\"Standard shipping takes 3-5 business days. Express shipping takes 1-2 days. "
+                + "Let me know if you need anything else!\"},\"logprobs\":null,\"finish_reason\":\"stop\"}],"
+                + "\"usage\":{\"prompt_tokens\":412,\"completion_tokens\":28,\"total_tokens\":440},"
+                + "\"system_fingerprint\":\"fp_1\",\"x_groq\":{\"id\":\"req_1\"}}").getBytes(StandardCharsets.UTF_8);
+        streamChunk = "{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion.chunk\",\"created\":1700000000,"
+                + "\"model\":\"llama-3.1-8b-instant\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\" shipping\"},"
+                + "\"logprobs\":null,\"finish_reason\":null}]}";
+    }
+
+    @Benchmark
+    public byte[] encodeRequest(History history) {
+        return codec.encodeRequest("llama-3.1-8b-instant", false, sections, history.turns, "How long does express shipping take?");
+    }
+
+    @Benchmark
+    public ChatCompletionCodec.Completion parseCompletion() {
+        return codec.parseCompletion(response);
+    }
+
+    @Benchmark
+    public ChatCompletionCodec.Completion parseStreamChunk() {
+        return codec.parseChunk(streamChunk);
+    }
+
+    // ============================================
+    // BASELINE: JACKSON TREE MODEL
+    // ============================================
+
+    @Benchmark
+    public byte[] encodeRequestTree(History history) throws JsonProcessingException {
+        ObjectNode requestBody = objectMapper.createObjectNode();
+        requestBody.put("model", "llama-3.1-8b-instant");
+        requestBody.put("max_tokens", 500);
+        requestBody.put("temperature", 0.7);
+        ArrayNode messages = requestBody.putArray("messages");
+
+        StringBuilder prompt = new StringBuilder(SYSTEM_ROLE);
+        if (sections.isEmpty()) {
+            prompt.append(NO_KNOWLEDGE_MATCH);
+        }
+        for (KnowledgeBase.Section section : sections) {
+            prompt.append(section.toPromptText()).append('\n');
+        }
+        prompt.append(SYSTEM_GUIDELINES);
+        messages.addObject().put("role", "system").put("content", prompt.toString());
+
+        for (ChatTurn turn : history.turns) {
+            messages.addObject()
+                    .put("role", turn.sender() == MessageSender.user ? "user" : "assistant")
+                    .put("content", turn.text());
+        }
+        messages.addObject().put("role", "user").put("content", "How long does express shipping take?");
+        // WebClient's Jackson encoder wrote the tree to bytes
+        return objectMapper.writeValueAsBytes(requestBody);
+    }
+
+    @Benchmark
+    public String parseCompletionTree() throws JsonProcessingException {
+        // bodyToMono(String.class) decoded the body before it was parsed
+        JsonNode root = objectMapper.readTree(new String(response, StandardCharsets.UTF_8));
+        return root.path("choices").get(0).path("message").path("content").asText();
+    }
+
+    @Benchmark
+    public String parseStreamChunkTree() throws JsonProcessingException {
+        JsonNode root = objectMapper.readTree(streamChunk);
+        return root.path("choices").path(0).path("delta").path("content").asText("");
+    }
+
+    @State(Scope.Benchmark)
+    public static class History {
+
+        // Previous turns sent as context
+        @Param({"0", "10"})
+        int size;
+
+        List<ChatTurn> turns;
+
+        @Setup
+        public void setUp() {
+            turns = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                turns.add(new ChatTurn("m" + i, i % 2 == 0 ? MessageSender.user : MessageSender.ai,
+                        i % 2 == 0 ? "Where is my order #" + i + "? It was supposed to arrive \"yesterday\"."
+                                   : "I'm sorry about the delay! Could you share your order number so I can check?"));
+            }
+        }
+    }
+}
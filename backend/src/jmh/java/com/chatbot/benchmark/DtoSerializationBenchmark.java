@@ -0,0 +1,52 @@
+package com.chatbot.benchmark;
+
+import com.chatbot.dto.ChatResponse;
+import com.chatbot.dto.MessageResponse;
+import com.chatbot.entity.MessageSender;
+import com.chatbot.util.UuidV7;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JSON responses of POST /api/chat (ChatResponse) and GET /api/conversations/{id}/messages
+ * (a default page of 100 MessageResponse), with an ObjectMapper configured like Spring Boot's.
+ */
+@State(Scope.Benchmark)
+public class DtoSerializationBenchmark extends BenchmarkDefaults {
+
+    private ObjectMapper objectMapper;
+    private ChatResponse chatResponse;
+    private List<MessageResponse> messagePage;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        LocalDateTime now = LocalDateTime.now();
+        chatResponse = new ChatResponse(UuidV7.randomUuid().toString(), UuidV7.randomUuid().toString(),
+                "Standard shipping takes 3-5 business days. Express shipping takes 1-2 days.", "ai", now);
+        messagePage = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            messagePage.add(new MessageResponse(UuidV7.randomUuid(), i % 2 == 0 ? MessageSender.user : MessageSender.ai,
+                    "Message number " + i + " with a typical length for a support chat question or answer.",
+                    now.plusSeconds(i)));
+        }
+    }
+
+    @Benchmark
+    public byte[] chatResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(chatResponse);
+    }
+
+    @Benchmark
+    public byte[] messagePage() throws Exception {
+        return objectMapper.writeValueAsBytes(messagePage);
+    }
+}
@@ -0,0 +1,53 @@
+package com.chatbot.benchmark;
+
+import com.chatbot.dto.ChatHistory;
+import com.chatbot.dto.ChatTurn;
+import com.chatbot.entity.MessageSender;
+import com.chatbot.service.ConversationHistoryCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-turn history handling in ConversationService.prepareTurn: reading the recent turns of a
+ * cached conversation and appending the new message (replaces the old history-to-Map conversion).
+ */
+@State(Scope.Benchmark)
+public class HistoryCacheBenchmark extends BenchmarkDefaults {
+
+    private ConversationHistoryCache cache;
+    private ChatTurn turn;
+
+    @Setup
+    public void setUp() {
+        cache = new ConversationHistoryCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "turnsPerConversation", 10);
+        ReflectionTestUtils.setField(cache, "maxConversations", 10_000);
+        ReflectionTestUtils.setField(cache, "idleTtl", Duration.ofMinutes(30));
+
+        List<ChatTurn> stored = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            stored.add(new ChatTurn("m" + i, i % 2 == 0 ? MessageSender.user : MessageSender.ai, "message " + i));
+        }
+        cache.history("c1", id -> new ChatHistory(null, stored));
+        turn = new ChatTurn("new", MessageSender.user, "How long does express shipping take?");
+    }
+
+    @Benchmark
+    public ChatHistory historyHit() {
+        return cache.history("c1", id -> ChatHistory.EMPTY);
+    }
+
+    @Benchmark
+    public void append() {
+        cache.append("c1", turn);
+    }
+}
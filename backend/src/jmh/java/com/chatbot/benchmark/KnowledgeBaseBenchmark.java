@@ -0,0 +1,33 @@
+package com.chatbot.benchmark;
+
+import com.chatbot.service.KnowledgeBase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+/**
+ * Knowledge base retrieval done for every chat message (top-k sections of the bundled knowledge-base.md).
+ */
+@State(Scope.Benchmark)
+public class KnowledgeBaseBenchmark extends BenchmarkDefaults {
+
+    private KnowledgeBase knowledgeBase;
+
+    @Setup
+    public void setUp() {
+        knowledgeBase = new KnowledgeBase(new DefaultResourceLoader());
+        ReflectionTestUtils.setField(knowledgeBase, "location", "classpath:knowledge-base.md");
+        ReflectionTestUtils.setField(knowledgeBase, "topK", 3);
+        ReflectionTestUtils.invokeMethod(knowledgeBase, "load");
+    }
+
+    @Benchmark
+    public List<KnowledgeBase.Section> search() {
+        return knowledgeBase.search("Hi! How long does shipping take and can I return an item I don't like?");
+    }
+}
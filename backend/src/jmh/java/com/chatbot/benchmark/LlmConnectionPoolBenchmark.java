@@ -0,0 +1,175 @@
+package com.chatbot.benchmark;
+
+import com.chatbot.config.LlmHttpClientConfig;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.Http11SslContextSpec;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.security.cert.CertificateException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The first chat requests after startup on the AI provider connection pool (LlmHttpClientConfig),
+ * with and without the warm-up connections LlmService opens at startup (llm.http.warm-up-connections),
+ * over HTTP/2 and HTTP/1.1 (llm.http.http2).
+ *
+ * The provider is a local HTTPS server (self-signed certificate, ALPN h2/http1.1) answering
+ * POST /chat/completions after providerLatency. Each operation is a burst of concurrent chat requests
+ * on a new pool, so it pays for every TCP and TLS handshake the pool still needs. A local handshake has
+ * no network round trips, so against a real provider the cold runs lose by more.
+ *
+ * Run: mvn -Pbenchmark verify -Djmh.include=LlmConnectionPool
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+// Netty's self-signed certificate generator uses the JDK's internal X.509 classes
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m", "--add-exports=java.base/sun.security.x509=ALL-UNNAMED"})
+public class LlmConnectionPoolBenchmark extends BenchmarkDefaults {
+
+    private static final String REQUEST = "{\"model\":\"llama-3.1-8b-instant\",\"max_tokens\":500,"
+            + "\"messages\":[{\"role\":\"user\",\"content\":\"How long does shipping take?\"}]}";
+
+    private static final String COMPLETION = "{\"id\":\"chatcmpl-stub\",\"object\":\"chat.completion\","
+            + "\"choices\":[{\"index\":0,\"finish_reason\":\"stop\",\"message\":{\"role\":\"assistant\","
+            + "\"content\":\"Standard shipping takes 3-5 business days.\"}}],"
+            + "\"usage\":{\"prompt_tokens\":420,\"completion_tokens\":12,\"total_tokens\":432}}";
+
+    @Param({"true", "false"})
+    boolean http2;
+
+    @Param({"0", "2"})
+    int warmUpConnections;
+
+    // Chat requests sent at once right after startup
+    @Param({"8"})
+    int burst;
+
+    @Param({"50ms"})
+    String providerLatency;
+
+    private SelfSignedCertificate certificate;
+    private DisposableServer server;
+    private final Set<String> protocols = ConcurrentHashMap.newKeySet();
+
+    private ConnectionProvider connectionProvider;
+    private WebClient webClient;
+
+    @Setup(Level.Trial)
+    public void startProvider() throws CertificateException {
+        Duration latency = DurationStyle.detectAndParse(providerLatency);
+        certificate = new SelfSignedCertificate("localhost");
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                .secure(spec -> spec.sslContext(Http2SslContextSpec.forServer(certificate.certificate(), certificate.privateKey())))
+                .route(routes -> routes
+                        .get("/models", (request, response) -> response
+                                .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                                .sendString(Mono.just("{\"object\":\"list\",\"data\":[]}")))
+                        .post("/chat/completions", (request, response) -> {
+                            protocols.add(request.version().text());
+                            return request.receive().then()
+                                    .then(Mono.delay(latency))
+                                    .then(response.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                                            .sendString(Mono.just(COMPLETION))
+                                            .then());
+                        }))
+                .bindNow();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopProvider() {
+        server.disposeNow();
+        certificate.delete();
+        // ALPN must have picked the protocol under test, or the comparison is meaningless
+        String expected = http2 ? "HTTP/2.0" : "HTTP/1.1";
+        if (!protocols.equals(Set.of(expected))) {
+            throw new IllegalStateException("Expected only " + expected + " requests, got " + protocols);
+        }
+    }
+
+    // A new pool per operation, as after a deploy: warmed up like LlmService.warmUp() when warmUpConnections > 0
+    @Setup(Level.Invocation)
+    public void startClient() {
+        LlmHttpClientConfig config = new LlmHttpClientConfig();
+        ReflectionTestUtils.setField(config, "maxConnections", 50);
+        ReflectionTestUtils.setField(config, "pendingAcquireMaxCount", 200);
+        ReflectionTestUtils.setField(config, "pendingAcquireTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(config, "maxIdleTime", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(config, "maxLifeTime", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(config, "connectTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(config, "http2", http2);
+        connectionProvider = config.llmConnectionProvider();
+
+        // Same client, except that it trusts the self-signed certificate
+        HttpClient httpClient = config.llmHttpClient(connectionProvider)
+                .secure(spec -> spec.sslContext(http2
+                        ? Http2SslContextSpec.forClient().configure(builder -> builder.trustManager(InsecureTrustManagerFactory.INSTANCE))
+                        : Http11SslContextSpec.forClient().configure(builder -> builder.trustManager(InsecureTrustManagerFactory.INSTANCE))));
+        webClient = config.llmWebClient(WebClient.builder(), httpClient);
+
+        if (warmUpConnections > 0) {
+            Flux.range(0, warmUpConnections)
+                    .flatMap(i -> webClient.get()
+                            .uri(baseUrl() + "/models")
+                            .exchangeToMono(response -> response.releaseBody()))
+                    .blockLast(Duration.ofSeconds(10));
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void stopClient() {
+        connectionProvider.disposeLater().block(Duration.ofSeconds(10));
+    }
+
+    @Benchmark
+    public List<String> firstRequests() {
+        return Flux.range(0, burst)
+                .flatMap(i -> webClient.post()
+                        .uri(baseUrl() + "/chat/completions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(REQUEST)
+                        .retrieve()
+                        .bodyToMono(String.class), burst)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+    }
+
+    private String baseUrl() {
+        return "https://localhost:" + server.port();
+    }
+}
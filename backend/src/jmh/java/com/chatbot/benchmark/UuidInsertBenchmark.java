@@ -0,0 +1,114 @@
+package com.chatbot.benchmark;
+
+import com.chatbot.util.UuidV7;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Message IDs: generating time-ordered (v7) vs random (v4) UUIDs, and inserting a batch of
+ * messages keyed by them into a table shaped like messages (binary UUID primary key,
+ * index on conversation_id, created_at). Random keys land all over the primary key index, v7 keys
+ * append at its end.
+ *
+ * The table keeps growing during a fork, so the insert benchmark also shows how the key order
+ * behaves as the index gets bigger than the first few pages.
+ *
+ * By default the table is in an in-memory H2 database. Pass jdbcUrl to run against a real one
+ * (MySQL: BINARY(16) keys in a clustered InnoDB index, PostgreSQL: uuid), e.g.
+ *   mvn -Pbenchmark verify -Djmh.include=UuidInsert -Djmh.args="-p jdbcUrl=jdbc:mysql://localhost:3306/chatbot_bench?createDatabaseIfNotExist=true&rewriteBatchedStatements=true&user=root&password=..."
+ * Only the uuid_insert_v4 / uuid_insert_v7 tables are created (and dropped afterwards).
+ */
+@State(Scope.Benchmark)
+public class UuidInsertBenchmark extends BenchmarkDefaults {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"v7", "v4"})
+    String version;
+
+    // "h2": in-memory H2, otherwise a JDBC URL with credentials
+    @Param({"h2"})
+    String jdbcUrl;
+
+    private Supplier<UUID> ids;
+    private String table;
+    private boolean binaryKeys;
+    private Connection connection;
+    private PreparedStatement insert;
+    private UUID conversationId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        ids = version.equals("v7") ? UuidV7::randomUuid : UUID::randomUUID;
+        table = "uuid_insert_" + version;
+        connection = DriverManager.getConnection(jdbcUrl.equals("h2") ? "jdbc:h2:mem:uuid_" + version + ";DB_CLOSE_DELAY=-1" : jdbcUrl);
+        // Key column type the app's UUID columns get (SqlTypes.UUID) on this database
+        String database = connection.getMetaData().getDatabaseProductName();
+        binaryKeys = database.equals("MySQL");
+        String keyType = binaryKeys ? "BINARY(16)" : "UUID";
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + table);
+            statement.execute("CREATE TABLE " + table + " (id " + keyType + " NOT NULL PRIMARY KEY, conversation_id " + keyType
+                    + " NOT NULL, sender VARCHAR(10) NOT NULL, text VARCHAR(5000) NOT NULL, created_at TIMESTAMP NOT NULL)");
+            statement.execute("CREATE INDEX idx_" + table + "_conversation_created ON " + table + " (conversation_id, created_at)");
+        }
+        connection.setAutoCommit(false);
+        insert = connection.prepareStatement("INSERT INTO " + table + " (id, conversation_id, sender, text, created_at) VALUES (?, ?, ?, ?, ?)");
+        conversationId = ids.get();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE " + table);
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public UUID generate() {
+        return ids.get();
+    }
+
+    // One write-behind flush of messages (chat.persistence.write-behind.batch-size), committed
+    @Benchmark
+    public int[] insertBatch() throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            bind(1, ids.get());
+            bind(2, conversationId);
+            insert.setString(3, (i & 1) == 0 ? "user" : "ai");
+            insert.setString(4, "Where is my order? It was supposed to arrive yesterday.");
+            insert.setTimestamp(5, now);
+            insert.addBatch();
+        }
+        int[] counts = insert.executeBatch();
+        connection.commit();
+        return counts;
+    }
+
+    // MySQL has no UUID type: 16 bytes, most significant first (as Hibernate and UUID_TO_BIN store them)
+    private void bind(int index, UUID id) throws SQLException {
+        if (binaryKeys) {
+            insert.setBytes(index, ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array());
+        } else {
+            insert.setObject(index, id);
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package com.chatbot.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * OpenAI-compatible chat completions server for load tests (POST /chat/completions, GET /models),
+ * so the app can be driven hard without calling - or paying for - a real provider.
+ *
+ * Modes (stub.mode):
+ * - synthetic: a canned answer after a latency drawn from stub.latency; stub.error-rate of the
+ *   requests get a 500 and stub.rate-limit-rate a 429. Streamed answers send stub.stream-chunks
+ *   chunks, stub.chunk-interval apart, after the latency
+ * - record: forwards every request to stub.upstream (a real provider, key from stub.upstream-key
+ *   or LLM_API_KEY) and saves the response with its timing under stub.recordings
+ * - replay: answers from the recordings with their recorded timing; requests that were not
+ *   recorded get a synthetic answer and count as replay misses
+ *
+ * Recordings are keyed by a hash of the request body, so a replay hits when the app sends the same
+ * prompts again (same knowledge base, history and questions - LoadDriver's questions are deterministic).
+ */
+final class LlmStub {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static final String ANSWER = "Thanks for reaching out! Standard shipping takes 3-5 business days "
+            + "and express shipping 1-2 days. You can return any item within 30 days in its original packaging, "
+            + "and refunds are processed within 5-7 business days after we receive it. Is there anything else "
+            + "I can help you with today?";
+
+    private final String mode;
+    private final Latency latency;
+    private final double errorRate;
+    private final double rateLimitRate;
+    private final int streamChunks;
+    private final long chunkIntervalNanos;
+    private final Path recordings;
+    private final String upstream;
+    private final String upstreamKey;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final HttpClient upstreamClient;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong serverErrors = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong replayHits = new AtomicLong();
+    private final AtomicLong replayMisses = new AtomicLong();
+
+    LlmStub(Map<String, String> options) throws IOException {
+        this.mode = options.getOrDefault("stub.mode", "synthetic");
+        this.latency = Latency.parse(options.getOrDefault("stub.latency", "lognormal:300ms..2s"));
+        this.errorRate = Double.parseDouble(options.getOrDefault("stub.error-rate", "0"));
+        this.rateLimitRate = Double.parseDouble(options.getOrDefault("stub.rate-limit-rate", "0"));
+        this.streamChunks = Integer.parseInt(options.getOrDefault("stub.stream-chunks", "20"));
+        this.chunkIntervalNanos = DurationStyle.detectAndParse(options.getOrDefault("stub.chunk-interval", "20ms")).toNanos();
+        this.recordings = Path.of(options.getOrDefault("stub.recordings", "target/llm-recordings"));
+        this.upstream = options.getOrDefault("stub.upstream", "https://api.groq.com/openai/v1");
+        this.upstreamKey = options.getOrDefault("stub.upstream-key", System.getenv().getOrDefault("LLM_API_KEY", ""));
+        if (!List.of("synthetic", "record", "replay").contains(mode)) {
+            throw new IllegalArgumentException("stub.mode must be synthetic, record or replay: " + mode);
+        }
+        if (!mode.equals("synthetic")) {
+            Files.createDirectories(recordings);
+        }
+
+        this.upstreamClient = mode.equals("record")
+                ? HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).executor(executor).build()
+                : null;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1",
+                Integer.parseInt(options.getOrDefault("stub.port", "0"))), 1024);
+        server.setExecutor(executor);
+        server.createContext("/chat/completions", exchange -> handle(exchange, this::completion));
+        server.createContext("/models", exchange -> handle(exchange, this::models));
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // Base URL for llm.<provider>.base-url
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    String mode() {
+        return mode;
+    }
+
+    Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("requests", requests.get());
+        stats.put("injected_server_errors", serverErrors.get());
+        stats.put("injected_rate_limits", rateLimited.get());
+        if (mode.equals("record")) {
+            stats.put("recorded", recorded.get());
+        }
+        if (mode.equals("replay")) {
+            stats.put("replay_hits", replayHits.get());
+            stats.put("replay_misses", replayMisses.get());
+        }
+        return stats;
+    }
+
+    // ============================================
+    // HANDLERS
+    // ============================================
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws Exception;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) {
+        try {
+            handler.handle(exchange);
+        } catch (IOException e) {
+            // The app went away mid-response (e.g. a cancelled hedge) - nothing to answer
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("LLM stub failed to answer " + exchange.getRequestURI() + ": " + e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Warm-up request of LlmService
+    private void models(HttpExchange exchange) throws IOException {
+        send(exchange, 200, "application/json", "{\"object\":\"list\",\"data\":[]}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void completion(HttpExchange exchange) throws Exception {
+        requests.incrementAndGet();
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        JsonNode request = JSON.readTree(body);
+        boolean stream = request.path("stream").asBoolean(false);
+        String model = request.path("model").asText("stub");
+
+        if (mode.equals("record")) {
+            record(exchange, body, stream);
+            return;
+        }
+        if (mode.equals("replay")) {
+            Path file = recordingFile(body);
+            if (Files.exists(file)) {
+                replayHits.incrementAndGet();
+                replay(exchange, JSON.readValue(file.toFile(), Recording.class));
+                return;
+            }
+            replayMisses.incrementAndGet();
+        }
+        synthetic(exchange, stream, model, request.path("messages").size());
+    }
+
+    // ============================================
+    // SYNTHETIC ANSWERS
+    // ============================================
+
+    private void synthetic(HttpExchange exchange, boolean stream, String model, int promptMessages) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        sleepNanos(latency.sampleNanos(random));
+
+        double failure = random.nextDouble();
+        if (failure < errorRate) {
+            serverErrors.incrementAndGet();
+            send(exchange, 500, "application/json",
+                    "{\"error\":{\"message\":\"Injected server error\",\"type\":\"server_error\"}}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        if (failure < errorRate + rateLimitRate) {
+            rateLimited.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            send(exchange, 429, "application/json",
+                    "{\"error\":{\"message\":\"Injected rate limit\",\"type\":\"rate_limit_exceeded\"}}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        int promptTokens = 400 + promptMessages * 40;
+        int completionTokens = ANSWER.length() / 4;
+        if (!stream) {
+            Map<String, Object> response = Map.of(
+                    "id", "chatcmpl-stub",
+                    "object", "chat.completion",
+                    "model", model,
+                    "choices", List.of(Map.of("index", 0, "finish_reason", "stop",
+                            "message", Map.of("role", "assistant", "content", ANSWER))),
+                    "usage", usage(promptTokens, completionTokens));
+            send(exchange, 200, "application/json", JSON.writeValueAsBytes(response));
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        int chunkLength = (ANSWER.length() + streamChunks - 1) / streamChunks;
+        for (int start = 0; start < ANSWER.length(); start += chunkLength) {
+            if (start > 0) {
+                sleepNanos(chunkIntervalNanos);
+            }
+            String piece = ANSWER.substring(start, Math.min(ANSWER.length(), start + chunkLength));
+            writeEvent(out, Map.of("id", "chatcmpl-stub", "object", "chat.completion.chunk", "model", model,
+                    "choices", List.of(Map.of("index", 0, "delta", Map.of("content", piece)))));
+        }
+        // Groq sends the token usage with the last chunk
+        writeEvent(out, Map.of("id", "chatcmpl-stub", "object", "chat.completion.chunk", "model", model,
+                "choices", List.of(Map.of("index", 0, "delta", Map.of(), "finish_reason", "stop")),
+                "x_groq", Map.of("id", "req_stub", "usage", usage(promptTokens, completionTokens))));
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static Map<String, Object> usage(int promptTokens, int completionTokens) {
+        return Map.of("prompt_tokens", promptTokens, "completion_tokens", completionTokens,
+                "total_tokens", promptTokens + completionTokens);
+    }
+
+    private static void writeEvent(OutputStream out, Object data) throws IOException {
+        out.write(("data: " + JSON.writeValueAsString(data) + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    // ============================================
+    // RECORD / REPLAY
+    // ============================================
+
+    // A saved response: status and body (non-streamed), or the SSE lines with their offsets (streamed)
+    record Recording(int status, String contentType, long latencyMillis, String body, List<Line> lines) {}
+
+    record Line(long atMillis, String text) {}
+
+    private void record(HttpExchange exchange, byte[] body, boolean stream) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(upstream + "/chat/completions"))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + upstreamKey)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        long start = System.nanoTime();
+
+        if (!stream) {
+            HttpResponse<byte[]> response = upstreamClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            long latencyMillis = (System.nanoTime() - start) / 1_000_000;
+            String contentType = response.headers().firstValue("Content-Type").orElse("application/json");
+            send(exchange, response.statusCode(), contentType, response.body());
+            save(body, new Recording(response.statusCode(), contentType, latencyMillis,
+                    new String(response.body(), StandardCharsets.UTF_8), null));
+            return;
+        }
+
+        // Streamed: pass every line through as it arrives and keep its offset from the request
+        HttpResponse<Stream<String>> response = upstreamClient.send(request, HttpResponse.BodyHandlers.ofLines());
+        String contentType = response.headers().firstValue("Content-Type").orElse("text/event-stream");
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(response.statusCode(), 0);
+        OutputStream out = exchange.getResponseBody();
+        List<Line> lines = new ArrayList<>();
+        try (Stream<String> upstreamLines = response.body()) {
+            Iterator<String> iterator = upstreamLines.iterator();
+            while (iterator.hasNext()) {
+                String line = iterator.next();
+                lines.add(new Line((System.nanoTime() - start) / 1_000_000, line));
+                out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+                if (line.isEmpty()) {
+                    out.flush();
+                }
+            }
+        }
+        out.flush();
+        save(body, new Recording(response.statusCode(), contentType, lines.isEmpty() ? 0 : lines.get(0).atMillis(), null, lines));
+    }
+
+    private void replay(HttpExchange exchange, Recording recording) throws Exception {
+        long start = System.nanoTime();
+        if (recording.lines() == null) {
+            sleepNanos(TimeUnit.MILLISECONDS.toNanos(recording.latencyMillis()));
+            send(exchange, recording.status(), recording.contentType(), recording.body().getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", recording.contentType());
+        exchange.sendResponseHeaders(recording.status(), 0);
+        OutputStream out = exchange.getResponseBody();
+        for (Line line : recording.lines()) {
+            sleepNanos(TimeUnit.MILLISECONDS.toNanos(line.atMillis()) - (System.nanoTime() - start));
+            out.write((line.text() + "\n").getBytes(StandardCharsets.UTF_8));
+            if (line.text().isEmpty()) {
+                out.flush();
+            }
+        }
+        out.flush();
+    }
+
+    private void save(byte[] requestBody, Recording recording) throws IOException {
+        Path file = recordingFile(requestBody);
+        // Written next to it and moved, so a replay never reads a half-written file
+        Path temp = Files.createTempFile(recordings, "recording", ".tmp");
+        JSON.writeValue(temp.toFile(), recording);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        recorded.incrementAndGet();
+    }
+
+    private Path recordingFile(byte[] requestBody) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(requestBody);
+            return recordings.resolve(HexFormat.of().formatHex(hash, 0, 16) + ".json");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ============================================
+    // HELPERS
+    // ============================================
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    private static void sleepNanos(long nanos) throws InterruptedException {
+        if (nanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    }
+
+    /**
+     * Response latency (time to the first byte):
+     * - fixed:200ms
+     * - uniform:100ms..400ms
+     * - lognormal:300ms..2s (median..p99), the long-tailed shape real providers have
+     */
+    record Latency(String kind, long firstNanos, long secondNanos) {
+
+        // 99th percentile of the standard normal distribution
+        private static final double Z_99 = 2.3263;
+
+        static Latency parse(String spec) {
+            int colon = spec.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("stub.latency must look like fixed:200ms, uniform:100ms..400ms "
+                        + "or lognormal:300ms..2s: " + spec);
+            }
+            String kind = spec.substring(0, colon);
+            String[] values = spec.substring(colon + 1).split("\\.\\.");
+            long first = DurationStyle.detectAndParse(values[0].trim()).toNanos();
+            long second = values.length > 1 ? DurationStyle.detectAndParse(values[1].trim()).toNanos() : first;
+            if (!List.of("fixed", "uniform", "lognormal").contains(kind) || second < first) {
+                throw new IllegalArgumentException("Invalid stub.latency: " + spec);
+            }
+            return new Latency(kind, first, second);
+        }
+
+        long sampleNanos(ThreadLocalRandom random) {
+            return switch (kind) {
+                case "uniform" -> secondNanos > firstNanos ? random.nextLong(firstNanos, secondNanos + 1) : firstNanos;
+                case "lognormal" -> {
+                    double sigma = Math.log((double) secondNanos / firstNanos) / Z_99;
+                    yield (long) (firstNanos * Math.exp(sigma * random.nextGaussian()));
+                }
+                default -> firstNanos;
+            };
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.chatbot.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Closed-loop load generator for the chat endpoints.
+ *
+ * Each of users virtual users holds a conversation: it sends turns messages (waiting think-time
+ * between them), then starts a new conversation. Requests started during the first warmup are
+ * not measured; the run then lasts duration.
+ *
+ * Endpoints:
+ * - chat: POST /api/chat
+ * - chat-message: POST /api/chat/message
+ * - stream: POST /api/chat/stream (also reports time to the first token event)
+ *
+ * Questions are a fixed rotation, the same for every run, so a replay of recorded LLM answers
+ * (LlmStub, stub.mode=replay) sees the same prompts. The first question of a conversation carries
+ * an order number, which keeps it out of the first-turn answer cache unless unique-questions=false.
+ */
+final class LoadDriver {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static final String[] QUESTIONS = {
+            "How long does shipping take?",
+            "Can I return an item I don't like?",
+            "Do you ship internationally?",
+            "What payment methods do you accept?",
+            "How do I track my order?",
+            "My package arrived damaged, what should I do?",
+            "Can I change the delivery address after ordering?",
+            "Is there a warranty on electronics?",
+            "How long does a refund take?",
+            "Do you offer express delivery?",
+            "Can I cancel my order?",
+            "What are your support hours?"
+    };
+
+    enum Endpoint {
+        CHAT("chat", "/api/chat", "conversationId", "conversationId"),
+        CHAT_MESSAGE("chat-message", "/api/chat/message", "sessionId", "sessionId"),
+        STREAM("stream", "/api/chat/stream", "conversationId", "conversationId");
+
+        final String name;
+        final String path;
+        final String requestIdField;
+        final String responseIdField;
+
+        Endpoint(String name, String path, String requestIdField, String responseIdField) {
+            this.name = name;
+            this.path = path;
+            this.requestIdField = requestIdField;
+            this.responseIdField = responseIdField;
+        }
+
+        static Endpoint of(String name) {
+            return Arrays.stream(values())
+                    .filter(endpoint -> endpoint.name.equals(name.trim()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown endpoint (chat, chat-message, stream): " + name));
+        }
+    }
+
+    private final String baseUrl;
+    private final int users;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final int turns;
+    private final long thinkTimeNanos;
+    private final Duration requestTimeout;
+    private final boolean uniqueQuestions;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final HttpClient client;
+
+    LoadDriver(String baseUrl, Map<String, String> options) {
+        this.baseUrl = baseUrl;
+        this.users = Integer.parseInt(options.getOrDefault("users", "20"));
+        this.warmupNanos = DurationStyle.detectAndParse(options.getOrDefault("warmup", "10s")).toNanos();
+        this.durationNanos = DurationStyle.detectAndParse(options.getOrDefault("duration", "30s")).toNanos();
+        this.turns = Integer.parseInt(options.getOrDefault("turns", "5"));
+        this.thinkTimeNanos = DurationStyle.detectAndParse(options.getOrDefault("think-time", "0ms")).toNanos();
+        this.requestTimeout = DurationStyle.detectAndParse(options.getOrDefault("request-timeout", "60s"));
+        this.uniqueQuestions = Boolean.parseBoolean(options.getOrDefault("unique-questions", "true"));
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+    }
+
+    void close() {
+        executor.shutdownNow();
+    }
+
+    // Drive one endpoint with all users and summarize the measured requests
+    Result run(Endpoint endpoint) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+
+        List<User> workers = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            User user = new User(i, endpoint, measureFrom, end);
+            workers.add(user);
+            Thread thread = new Thread(user, "load-user-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Samples latencies = new Samples();
+        Samples firstTokens = new Samples();
+        Map<String, Long> errors = new TreeMap<>();
+        for (User user : workers) {
+            latencies.addAll(user.latencies);
+            firstTokens.addAll(user.firstTokens);
+            user.errors.forEach((kind, count) -> errors.merge(kind, count, Long::sum));
+        }
+        long errorCount = errors.values().stream().mapToLong(Long::longValue).sum();
+        double seconds = durationNanos / 1e9;
+        return new Result(endpoint.name, users, latencies.size() + errorCount, errorCount,
+                latencies.size() / seconds, latencies.summary(),
+                endpoint == Endpoint.STREAM ? firstTokens.summary() : null, errors);
+    }
+
+    // ============================================
+    // VIRTUAL USER
+    // ============================================
+
+    private final class User implements Runnable {
+
+        final int index;
+        final Endpoint endpoint;
+        final long measureFrom;
+        final long end;
+        final Samples latencies = new Samples();
+        final Samples firstTokens = new Samples();
+        final Map<String, Long> errors = new HashMap<>();
+
+        User(int index, Endpoint endpoint, long measureFrom, long end) {
+            this.index = index;
+            this.endpoint = endpoint;
+            this.measureFrom = measureFrom;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            String conversationId = null;
+            int conversation = 0;
+            int turn = 0;
+            while (System.nanoTime() - end < 0) {
+                String question = question(conversation, turn);
+                long started = System.nanoTime();
+                Outcome outcome;
+                try {
+                    outcome = send(endpoint, conversationId, question);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (IOException e) {
+                    outcome = Outcome.error(e instanceof HttpTimeoutException ? "timeout" : "io_error");
+                }
+                long finished = System.nanoTime();
+
+                boolean measured = started - measureFrom >= 0;
+                if (outcome.error() == null) {
+                    if (measured) {
+                        latencies.add(finished - started);
+                        if (outcome.firstTokenNanos() > 0) {
+                            firstTokens.add(outcome.firstTokenNanos() - started);
+                        }
+                    }
+                    conversationId = outcome.conversationId();
+                    if (++turn >= turns) {
+                        conversationId = null;
+                        conversation++;
+                        turn = 0;
+                    }
+                } else if (measured) {
+                    errors.merge(outcome.error(), 1L, Long::sum);
+                }
+
+                if (thinkTimeNanos > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(thinkTimeNanos);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+
+        private String question(int conversation, int turn) {
+            String question = QUESTIONS[(index * 5 + conversation * 3 + turn) % QUESTIONS.length];
+            if (turn == 0 && uniqueQuestions) {
+                question = "Order #" + (index * 100_000 + conversation) + ": " + question;
+            }
+            return question;
+        }
+    }
+
+    // ============================================
+    // REQUESTS
+    // ============================================
+
+    // Result of one request: the conversation to continue, or what went wrong
+    private record Outcome(String conversationId, long firstTokenNanos, String error) {
+        static Outcome error(String error) {
+            return new Outcome(null, 0, error);
+        }
+    }
+
+    private Outcome send(Endpoint endpoint, String conversationId, String question)
+            throws IOException, InterruptedException {
+        Map<String, String> body = new LinkedHashMap<>();
+        body.put("message", question);
+        if (conversationId != null) {
+            body.put(endpoint.requestIdField, conversationId);
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + endpoint.path))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .header("Accept", endpoint == Endpoint.STREAM ? "text/event-stream" : "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(body)))
+                .build();
+
+        if (endpoint != Endpoint.STREAM) {
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() / 100 != 2) {
+                return Outcome.error("http_" + response.statusCode());
+            }
+            JsonNode json = JSON.readTree(response.body());
+            return new Outcome(json.path(endpoint.responseIdField).asText(null), 0, null);
+        }
+
+        HttpResponse<Stream<String>> response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+        try (Stream<String> lines = response.body()) {
+            if (response.statusCode() / 100 != 2) {
+                return Outcome.error("http_" + response.statusCode());
+            }
+            long firstToken = 0;
+            String streamConversationId = null;
+            boolean done = false;
+            Iterator<String> iterator = lines.iterator();
+            while (iterator.hasNext()) {
+                String line = iterator.next();
+                if (line.startsWith("event:") && line.substring(6).trim().equals("done")) {
+                    done = true;
+                } else if (line.startsWith("data:")) {
+                    if (firstToken == 0) {
+                        firstToken = System.nanoTime();
+                        streamConversationId = JSON.readTree(line.substring(5)).path(endpoint.responseIdField).asText(null);
+                    }
+                }
+            }
+            // A stream that ends without its "done" event was cut off by an error
+            return done ? new Outcome(streamConversationId, firstToken, null) : Outcome.error("stream_incomplete");
+        }
+    }
+
+    // ============================================
+    // RESULTS
+    // ============================================
+
+    /** Latency percentiles in milliseconds */
+    record Summary(double p50, double p95, double p99, double max, double mean) {}
+
+    /** Measured requests of one endpoint; throughput counts successful requests per second */
+    record Result(String endpoint, int users, long requests, long errors, double throughput,
+                  Summary latency, Summary firstToken, Map<String, Long> errorsByKind) {}
+
+    // Growable list of nanosecond samples
+    private static final class Samples {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        Summary summary() {
+            if (size == 0) {
+                return new Summary(0, 0, 0, 0, 0);
+            }
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            double mean = Arrays.stream(sorted).average().orElse(0);
+            return new Summary(millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.95)),
+                    millis(percentile(sorted, 0.99)), millis(sorted[size - 1]), mean / 1e6);
+        }
+
+        // Nearest-rank percentile
+        private static long percentile(long[] sorted, double p) {
+            int rank = (int) Math.ceil(p * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+
+        private static double millis(long nanos) {
+            return Math.round(nanos / 1e4) / 100.0;
+        }
+    }
+}
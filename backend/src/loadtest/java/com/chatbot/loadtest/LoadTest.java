@@ -0,0 +1,244 @@
+package com.chatbot.loadtest;
+
+import com.chatbot.ChatBotApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Load test entry point: starts the LLM stub and the app (in-memory H2 database, LLM calls to the
+ * stub), drives the chat endpoints with LoadDriver and prints throughput and latency percentiles.
+ *
+ * mvn -Ploadtest verify -Dloadtest.args="--users=50 --duration=60s --stub.latency=lognormal:300ms..2s"
+ *
+ * Options (--name=value):
+ * - endpoints: comma-separated, run one after the other (chat, chat-message, stream; default chat,chat-message)
+ * - users, warmup, duration, turns, think-time, request-timeout, unique-questions: see LoadDriver
+ * - stub.*: see LlmStub (latency, error rates, streaming, record/replay)
+ * - target: base URL of an app that is already running instead of the embedded one
+ *   (point its llm.groq.base-url at the stub, started on a fixed stub.port)
+ * - compare: property=value1,value2,... runs everything once per value, each on a fresh embedded app
+ *   (e.g. compare=spring.threads.virtual.enabled=false,true)
+ * - scenario: preset options, overridden by the ones given (see SCENARIOS)
+ * - stub-only=true: only run the stub on stub.port until the process is stopped
+ * - report: JSON report file (default target/loadtest-result.json)
+ * - anything else (e.g. chat.persistence.mode=write-behind, spring.profiles.active=reactive)
+ *   is passed to the embedded app
+ */
+public final class LoadTest {
+
+    private static final Set<String> DRIVER_OPTIONS = Set.of("endpoints", "users", "warmup", "duration", "turns",
+            "think-time", "request-timeout", "unique-questions", "target", "stub-only", "report", "compare", "scenario");
+
+    // Preset option sets (--scenario=name); options given on the command line win
+    private static final Map<String, Map<String, String>> SCENARIOS = Map.of(
+            // Concurrent-request capacity on platform vs virtual threads (Java 21): more users than Tomcat
+            // has worker threads, all waiting on a slow LLM. The LLM limiter and HTTP pool are opened up
+            // so the request threads are the only cap
+            "threads", Map.ofEntries(
+                    Map.entry("compare", "spring.threads.virtual.enabled=false,true"),
+                    Map.entry("endpoints", "chat"),
+                    Map.entry("users", "400"),
+                    Map.entry("warmup", "10s"),
+                    Map.entry("duration", "30s"),
+                    Map.entry("stub.latency", "fixed:1s"),
+                    Map.entry("server.tomcat.threads.max", "200"),
+                    Map.entry("llm.limiter.initial-limit", "2000"),
+                    Map.entry("llm.limiter.max-limit", "2000"),
+                    Map.entry("llm.limiter.queue-capacity", "2000"),
+                    Map.entry("llm.http.max-connections", "2000"),
+                    Map.entry("llm.http.pending-acquire-max-count", "2000")));
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        Map<String, String> appProperties = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.isBlank()) {
+                continue;
+            }
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Options look like --name=value: " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            (isDriverOption(name) ? options : appProperties).put(name, value);
+        }
+        String scenario = options.get("scenario");
+        if (scenario != null) {
+            if (!SCENARIOS.containsKey(scenario)) {
+                throw new IllegalArgumentException("Unknown scenario " + scenario + ", known: " + SCENARIOS.keySet());
+            }
+            SCENARIOS.get(scenario).forEach((name, value) ->
+                    (isDriverOption(name) ? options : appProperties).putIfAbsent(name, value));
+        }
+        List<Map<String, String>> variants = variants(options);
+
+        // 1. LLM stub
+        LlmStub stub = new LlmStub(options);
+        stub.start();
+        System.out.println("LLM stub (" + stub.mode() + ") listening on " + stub.baseUrl());
+        if (Boolean.parseBoolean(options.getOrDefault("stub-only", "false"))) {
+            Runtime.getRuntime().addShutdownHook(new Thread(stub::stop));
+            Thread.currentThread().join();
+        }
+
+        // 2-3. App under test and load, one endpoint at a time - once per compared variant
+        String target = options.get("target");
+        List<Run> runs = new ArrayList<>();
+        try {
+            for (Map<String, String> variant : variants) {
+                String label = variant.entrySet().stream().map(e -> e.getKey() + "=" + e.getValue())
+                        .findFirst().orElse("");
+                if (!label.isEmpty()) {
+                    System.out.println("Variant " + label);
+                }
+                runs.add(new Run(label, run(options, appProperties, variant, stub)));
+            }
+        } finally {
+            stub.stop();
+        }
+
+        // 4. Report
+        print(runs, stub.stats());
+        Path report = Path.of(options.getOrDefault("report", "target/loadtest-result.json"));
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("target", target != null ? target : "embedded");
+        json.put("options", options);
+        json.put("app", appProperties);
+        json.put("runs", runs);
+        json.put("stub", stub.stats());
+        if (report.getParent() != null) {
+            Files.createDirectories(report.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(report.toFile(), json);
+        System.out.println("Report written to " + report.toAbsolutePath());
+    }
+
+    private static boolean isDriverOption(String name) {
+        return DRIVER_OPTIONS.contains(name) || name.startsWith("stub.");
+    }
+
+    // App properties of each run: one per value of "compare", or a single run without extra properties
+    private static List<Map<String, String>> variants(Map<String, String> options) {
+        String compare = options.get("compare");
+        if (compare == null) {
+            return List.of(Map.of());
+        }
+        if (options.containsKey("target") || !compare.contains("=")) {
+            throw new IllegalArgumentException("compare=property=value1,value2 needs the embedded app (no target)");
+        }
+        String property = compare.substring(0, compare.indexOf('='));
+        List<String> values = List.of(compare.substring(compare.indexOf('=') + 1).split(","));
+        // On Java 17 spring.threads.virtual.enabled=true is ignored: both runs would use platform threads
+        if (property.equals("spring.threads.virtual.enabled") && values.contains("true")
+                && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("Virtual threads need Java 21 (running on " + Runtime.version()
+                    + "): run the load test with a JDK 21");
+        }
+        return values.stream().map(value -> Map.of(property, value.trim())).toList();
+    }
+
+    // Drive every endpoint against the target, or a fresh embedded app with the variant's properties
+    private static List<LoadDriver.Result> run(Map<String, String> options, Map<String, String> appProperties,
+                                               Map<String, String> variant, LlmStub stub) throws InterruptedException {
+        ConfigurableApplicationContext app = null;
+        String target = options.get("target");
+        if (target == null) {
+            Map<String, String> properties = new LinkedHashMap<>(appProperties);
+            properties.putAll(variant);
+            app = startApp(stub.baseUrl(), properties);
+            target = "http://127.0.0.1:" + ((WebServerApplicationContext) app).getWebServer().getPort();
+        }
+
+        LoadDriver driver = new LoadDriver(target, options);
+        List<LoadDriver.Result> results = new ArrayList<>();
+        try {
+            for (String endpoint : options.getOrDefault("endpoints", "chat,chat-message").split(",")) {
+                LoadDriver.Endpoint selected = LoadDriver.Endpoint.of(endpoint);
+                System.out.println("Running " + selected.name + " (" + selected.path + ") ...");
+                results.add(driver.run(selected));
+            }
+        } finally {
+            driver.close();
+            if (app != null) {
+                app.close();
+            }
+        }
+        return results;
+    }
+
+    // Start the app on a random port with an in-memory database and the stub as its only provider
+    private static ConfigurableApplicationContext startApp(String stubUrl, Map<String, String> overrides) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.datasource.url", "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.org.springframework.web", "WARN");
+        properties.put("logging.level.org.hibernate.SQL", "WARN");
+        properties.put("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "WARN");
+        properties.put("logging.level.com.chatbot", "WARN");
+        properties.put("logging.level.org.hibernate.orm.deprecation", "ERROR");
+        // DevTools' in-memory database shutdown on close finds the pool already closed (harmless)
+        properties.put("logging.level.org.springframework.beans.factory.support.DisposableBeanAdapter", "ERROR");
+        properties.put("llm.routing.providers", "groq");
+        properties.put("llm.groq.base-url", stubUrl);
+        properties.put("llm.api.key", "loadtest");
+        // Command-line arguments win over application.yml; each property is passed once
+        // (a repeated one would be joined into a list)
+        properties.putAll(overrides);
+
+        // DevTools would restart the app in a new class loader, calling LoadTest.main a second time
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        List<String> args = new ArrayList<>();
+        properties.forEach((name, value) -> args.add("--" + name + "=" + value));
+        return SpringApplication.run(ChatBotApplication.class, args.toArray(String[]::new));
+    }
+
+    private static void print(List<Run> runs, Map<String, Long> stubStats) {
+        for (Run run : runs) {
+            System.out.println();
+            if (!run.variant().isEmpty()) {
+                System.out.println("== " + run.variant() + " ==");
+            }
+            print(run.results());
+        }
+        System.out.println("LLM stub: " + stubStats);
+    }
+
+    private static void print(List<LoadDriver.Result> results) {
+        System.out.printf("%-13s %6s %9s %7s %9s %9s %9s %9s %9s%n",
+                "Endpoint", "Users", "Requests", "Errors", "Req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (LoadDriver.Result result : results) {
+            System.out.printf("%-13s %6d %9d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    result.endpoint(), result.users(), result.requests(), result.errors(), result.throughput(),
+                    result.latency().p50(), result.latency().p95(), result.latency().p99(), result.latency().max());
+            if (result.firstToken() != null) {
+                System.out.printf("%-13s %s p50 %.1f / p95 %.1f / p99 %.1f ms%n", "", "first token:",
+                        result.firstToken().p50(), result.firstToken().p95(), result.firstToken().p99());
+            }
+            if (!result.errorsByKind().isEmpty()) {
+                System.out.printf("%-13s %s %s%n", "", "errors:", result.errorsByKind());
+            }
+        }
+    }
+
+    /** Results of one app configuration (variant: the compared property=value, empty without compare) */
+    record Run(String variant, List<LoadDriver.Result> results) {}
+}
@@ -2,6 +2,7 @@ package com.chatbot;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * ============================================
@@ -19,10 +20,13 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * - It enables auto-configuration (Spring sets up things automatically)
  * - It marks this as a configuration class
  * 
+ * @EnableScheduling turns on @Scheduled background jobs (e.g. knowledge base reload)
+ * 
  * @author Your Name
  * @version 1.0
  */
 @SpringBootApplication
+@EnableScheduling
 public class ChatBotApplication {
 
     /**
@@ -30,7 +30,7 @@ public class DataSourceConfig {
             String[] userInfo = dbUri.getUserInfo().split(":");
             
             String jdbcUrl = String.format(
-                "jdbc:postgresql://%s:%d%s?sslmode=require",
+                "jdbc:postgresql://%s:%d%s?sslmode=require&reWriteBatchedInserts=true",
                 dbUri.getHost(),
                 dbUri.getPort() != -1 ? dbUri.getPort() : 5432,
                 dbUri.getPath()
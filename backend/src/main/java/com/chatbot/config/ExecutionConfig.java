@@ -0,0 +1,50 @@
+package com.chatbot.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Execution mode for request handling and blocking calls (JPA, LLM WebClient .block()).
+ * 
+ * - platform (default): Tomcat worker pool + a bounded elastic pool for blocking work
+ *   (chat.blocking.max-threads / max-queued, Reactor defaults when unset)
+ * - virtual: set spring.threads.virtual.enabled=true (CHAT_VIRTUAL_THREADS=true) on Java 21+.
+ *   Spring Boot then runs every Tomcat request on its own virtual thread, so a request
+ *   waiting on the AI provider no longer ties up a platform thread, and the scheduler
+ *   below offloads blocking work to virtual threads as well.
+ * 
+ * On Java 17 the virtual setting is ignored and the platform mode is used.
+ */
+@Configuration
+public class ExecutionConfig {
+
+    // 0 = Reactor defaults (10 x CPU cores threads, 100000 queued tasks)
+    @Value("${chat.blocking.max-threads:0}")
+    private int maxThreads;
+
+    @Value("${chat.blocking.max-queued:0}")
+    private int maxQueued;
+
+    /** Scheduler for blocking work started from reactive streams (e.g. saving a streamed reply) */
+    @Bean(name = "blockingScheduler", destroyMethod = "dispose")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public Scheduler platformBlockingScheduler() {
+        return Schedulers.newBoundedElastic(
+                maxThreads > 0 ? maxThreads : Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE,
+                maxQueued > 0 ? maxQueued : Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE,
+                "chat-blocking");
+    }
+
+    /** Same scheduler backed by one virtual thread per task */
+    @Bean(name = "blockingScheduler", destroyMethod = "dispose")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public Scheduler virtualBlockingScheduler() {
+        return Schedulers.fromExecutor(new VirtualThreadTaskExecutor("chat-blocking-"));
+    }
+}
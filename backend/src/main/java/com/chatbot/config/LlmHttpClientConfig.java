@@ -0,0 +1,89 @@
+package com.chatbot.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * HTTP client used for calls to the AI providers.
+ *
+ * - Connection pool: llm.http.max-connections, plus a bounded queue of requests waiting
+ *   for a connection (pending-acquire-max-count / pending-acquire-timeout), so a slow
+ *   provider fails fast instead of piling up requests
+ * - Idle connections are closed after max-idle-time (before the provider drops them),
+ *   and every connection is renewed after max-life-time
+ * - HTTP/2 (llm.http.http2): negotiated over TLS, falls back to HTTP/1.1. One HTTP/2
+ *   connection multiplexes many requests, so fewer TLS handshakes are needed
+ * - Pool metrics: reactor.netty.connection.provider.* (active, idle, pending connections)
+ *
+ * Connections are opened at startup by LlmService.warmUp().
+ */
+@Configuration
+public class LlmHttpClientConfig {
+
+    @Value("${llm.http.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${llm.http.pending-acquire-max-count:200}")
+    private int pendingAcquireMaxCount;
+
+    @Value("${llm.http.pending-acquire-timeout:5s}")
+    private Duration pendingAcquireTimeout;
+
+    @Value("${llm.http.max-idle-time:30s}")
+    private Duration maxIdleTime;
+
+    @Value("${llm.http.max-life-time:5m}")
+    private Duration maxLifeTime;
+
+    @Value("${llm.http.connect-timeout:5s}")
+    private Duration connectTimeout;
+
+    @Value("${llm.http.http2:true}")
+    private boolean http2;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider llmConnectionProvider() {
+        return ConnectionProvider.builder("llm")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                // Close expired connections in the background, not only when they are next acquired
+                .evictInBackground(maxIdleTime)
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public HttpClient llmHttpClient(ConnectionProvider llmConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(llmConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true);
+        if (http2) {
+            // ALPN picks HTTP/2 when the provider offers it (plain http:// URLs stay on HTTP/1.1)
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+        // Load event loop, DNS resolver and TLS/native libraries now instead of on the first chat request
+        httpClient.warmup().block();
+        return httpClient;
+    }
+
+    /** WebClient for the AI providers (1MB response limit) */
+    @Bean
+    public WebClient llmWebClient(WebClient.Builder webClientBuilder, HttpClient llmHttpClient) {
+        return webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(llmHttpClient))
+                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(1024 * 1024))
+                .build();
+    }
+}
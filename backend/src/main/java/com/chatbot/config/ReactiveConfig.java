@@ -0,0 +1,24 @@
+package com.chatbot.config;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Configuration for the fully non-blocking chat pipeline.
+ * Only active when "reactive" is one of the active profiles
+ * (e.g. SPRING_PROFILES_ACTIVE=production,reactive).
+ * 
+ * Tomcat is still on the classpath for the default MVC mode, so the Netty server
+ * is declared explicitly - otherwise Spring Boot would run WebFlux on Tomcat.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,58 @@
+package com.chatbot.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.web.reactive.config.CorsRegistry;
+import org.springframework.web.reactive.config.ResourceHandlerRegistry;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.resource.PathResourceResolver;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+
+/**
+ * WebConfig for the "reactive" profile (WebFlux on Netty): same CORS mapping, React frontend
+ * and SPA fallback to index.html as the servlet mode.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveWebConfig implements WebFluxConfigurer {
+
+    /** Allow cross-origin requests from any domain */
+    @Override
+    public void addCorsMappings(CorsRegistry registry) {
+        registry.addMapping("/**")
+                .allowedOrigins("*")
+                .allowedMethods("*")
+                .allowedHeaders("*");
+    }
+
+    /** Serve React frontend and handle SPA client-side routing */
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler("/**")
+                .addResourceLocations("classpath:/static/")
+                .resourceChain(true)
+                .addResolver(new PathResourceResolver() {
+                    @Override
+                    protected Mono<Resource> getResource(String resourcePath, Resource location) {
+                        try {
+                            Resource resource = location.createRelative(resourcePath);
+                            // If resource exists, serve it. Otherwise serve index.html for SPA
+                            if (resource.exists() && resource.isReadable()) {
+                                return Mono.just(resource);
+                            }
+                        } catch (IOException e) {
+                            return Mono.error(e);
+                        }
+                        // For non-API paths, return index.html
+                        if (!resourcePath.startsWith("api/")) {
+                            return Mono.just(new ClassPathResource("/static/index.html"));
+                        }
+                        return Mono.empty();
+                    }
+                });
+    }
+}
@@ -1,6 +1,7 @@
 package com.chatbot.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
@@ -15,8 +16,10 @@ import java.io.IOException;
  * - Enables CORS for all origins (development/production flexibility)
  * - Serves React frontend from static folder
  * - Handles SPA routing by falling back to index.html
+ * Servlet (MVC) mode; ReactiveWebConfig does the same for the "reactive" profile.
  */
 @Configuration
+@Profile("!reactive")
 public class WebConfig implements WebMvcConfigurer {
 
     /** Allow cross-origin requests from any domain */
@@ -0,0 +1,54 @@
+package com.chatbot.config;
+
+import com.chatbot.controller.ChatWebSocketHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+import java.time.Duration;
+
+/**
+ * WebSocket chat channel on /ws/chat (servlet mode only; see ChatWebSocketHandler).
+ * - Same origins as the REST API (CORS: any)
+ * - Frames up to chat.websocket.max-frame-size (a 3000-character message fits easily)
+ * - Connections without any frame for chat.websocket.idle-timeout are closed
+ *   (clients keep an idle connection open with "ping" frames)
+ */
+@Configuration
+@EnableWebSocket
+@Profile("!reactive")
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final ChatWebSocketHandler chatWebSocketHandler;
+
+    @Value("${chat.websocket.max-frame-size:16KB}")
+    private DataSize maxFrameSize;
+
+    @Value("${chat.websocket.idle-timeout:5m}")
+    private Duration idleTimeout;
+
+    public WebSocketConfig(ChatWebSocketHandler chatWebSocketHandler) {
+        this.chatWebSocketHandler = chatWebSocketHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(chatWebSocketHandler, "/ws/chat")
+                .setAllowedOrigins("*");
+    }
+
+    /** Limits of the Tomcat WebSocket container */
+    @Bean
+    public ServletServerContainerFactoryBean webSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize((int) maxFrameSize.toBytes());
+        container.setMaxSessionIdleTimeout(idleTimeout.toMillis());
+        return container;
+    }
+}
@@ -1,39 +1,70 @@
 package com.chatbot.controller;
 
+import com.chatbot.dto.ChatBatchResult;
+import com.chatbot.dto.ChatJobResponse;
 import com.chatbot.dto.ChatRequest;
 import com.chatbot.dto.ChatResponse;
+import com.chatbot.dto.ChatStreamEvent;
 import com.chatbot.dto.ConversationResponse;
 import com.chatbot.dto.MessageResponse;
 import com.chatbot.entity.Conversation;
 import com.chatbot.entity.Message;
+import com.chatbot.service.ChatBatchService;
+import com.chatbot.service.ChatJobService;
 import com.chatbot.service.ConversationService;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import reactor.core.publisher.Flux;
 
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletionException;
 
 /**
  * REST Controller for Chat API.
  * 
  * Endpoints:
  * - POST /api/chat           - Send message and get AI response
+ * - POST /api/chat/stream    - Send message and stream AI response (Server-Sent Events)
+ * - POST /api/chat/batch     - Send many messages, get the AI responses as NDJSON as they complete
+ * - POST /api/chat/async     - Queue a message (202 + job ID), the AI responds in the background
+ * - GET  /api/chat/jobs/{id} - Long-poll for the AI response of a queued message
  * - POST /api/chat/message   - Alternative endpoint (spec-compliant)
  * - POST /api/conversations  - Create new conversation
  * - GET  /api/conversations/{id}          - Get conversation details
- * - GET  /api/conversations/{id}/messages - Get all messages
+ * - GET  /api/conversations/{id}/messages - Get messages (keyset pages: before/after/limit)
  * - DELETE /api/conversations/{id}        - Delete conversation
+ * 
+ * Servlet (blocking) implementation; ReactiveChatController serves the same
+ * endpoints when the "reactive" profile is active.
  */
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "*")
+@Profile("!reactive")
 public class ChatController {
 
     private final ConversationService conversationService;
+    private final ChatBatchService batchService;
+    private final ChatJobService jobService;
+    
+    // Longest long-poll wait (keep it below the client and proxy timeouts)
+    @Value("${chat.async.max-wait:25s}")
+    private Duration maxWait;
     
-    public ChatController(ConversationService conversationService) {
+    public ChatController(ConversationService conversationService, ChatBatchService batchService,
+                          ChatJobService jobService) {
         this.conversationService = conversationService;
+        this.batchService = batchService;
+        this.jobService = jobService;
     }
 
     // POST /api/chat - Send message and get AI response
@@ -45,7 +76,7 @@ public class ChatController {
         if (conversationId == null || conversationId.isBlank()) {
             // First message - create new conversation
             Conversation newConversation = conversationService.createConversation();
-            conversationId = newConversation.getId();
+            conversationId = newConversation.getId().toString();
         }
 
         // 2. Send message and get AI response
@@ -54,7 +85,7 @@ public class ChatController {
         // 3. Build response DTO
         ChatResponse response = new ChatResponse(
             conversationId,
-            aiMessage.getId(),
+            aiMessage.getId().toString(),
             aiMessage.getText(),
             aiMessage.getSender().name().toLowerCase(),
             aiMessage.getCreatedAt()
@@ -63,13 +94,102 @@ public class ChatController {
         return ResponseEntity.ok(response);
     }
 
+    // POST /api/chat/stream - Send message and stream AI response as Server-Sent Events
+    // Emits "token" events as the AI generates text, then one "done" event with the saved message
+    // (or an "error" event when the AI provider failed mid-reply - that reply is not saved)
+    // Tokens are written as the client consumes them, so a slow reader slows the provider read (backpressure)
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<ChatStreamEvent>> streamMessage(@Valid @RequestBody ChatRequest request) {
+        
+        // 1. Get or create conversation
+        String conversationId = request.getConversationId();
+        if (conversationId == null || conversationId.isBlank()) {
+            Conversation newConversation = conversationService.createConversation();
+            conversationId = newConversation.getId().toString();
+        }
+
+        // 2. Stream AI response
+        return conversationService.streamMessage(conversationId, request.getMessage())
+                .map(event -> ServerSentEvent.builder(event)
+                        .event(event.getType())
+                        .build());
+    }
+
+    // POST /api/chat/batch - Send many messages (JSON array of chat requests) with bounded parallelism
+    // Writes one JSON result per line (NDJSON) as each request completes; "index" is its position in the batch
+    @PostMapping(value = "/chat/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ChatBatchResult> sendBatch(@RequestBody List<ChatRequest> requests) {
+        return batchService.process(requests);
+    }
+
+    // POST /api/chat/async - Queue a message; answers 202 with the job right away
+    // The AI reply is fetched from GET /api/chat/jobs/{jobId} (the Location header)
+    @PostMapping("/chat/async")
+    public ResponseEntity<ChatJobResponse> sendMessageAsync(@Valid @RequestBody ChatRequest request) {
+        
+        // 1. Get or create conversation (an unknown ID is reported now, not by the job)
+        String conversationId = request.getConversationId();
+        if (conversationId == null || conversationId.isBlank()) {
+            conversationId = conversationService.createConversation().getId().toString();
+        } else {
+            conversationService.getConversation(conversationId);
+        }
+        
+        // 2. Queue the turn for the worker pool (503 when the queue is full)
+        ChatJobService.ChatJob job = jobService.submit(conversationId, request.getMessage());
+        
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/chat/jobs/" + job.id()))
+                .body(new ChatJobResponse(job.id(), ChatJobResponse.PENDING, conversationId));
+    }
+
+    // GET /api/chat/jobs/{jobId}?wait=<seconds> - Result of a queued message
+    // Waits up to `wait` seconds (default and cap: chat.async.max-wait) for the reply without holding a
+    // servlet thread: 200 with status done/failed, or 202 with status pending when the wait is over
+    @GetMapping("/chat/jobs/{jobId}")
+    public DeferredResult<ResponseEntity<ChatJobResponse>> getJob(@PathVariable String jobId,
+                                                                   @RequestParam(required = false) Integer wait) {
+        ChatJobService.ChatJob job = jobService.getJob(jobId);
+        long waitMillis = Math.min(wait != null ? Math.max(0, wait) * 1000L : maxWait.toMillis(), maxWait.toMillis());
+        
+        DeferredResult<ResponseEntity<ChatJobResponse>> result = new DeferredResult<>(Math.max(1, waitMillis),
+                () -> ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .body(new ChatJobResponse(job.id(), ChatJobResponse.PENDING, job.conversationId())));
+        if (job.isFinished() || waitMillis == 0) {
+            result.setResult(jobResponse(job));
+        } else {
+            job.result().whenComplete((aiMessage, error) -> result.setResult(jobResponse(job)));
+        }
+        return result;
+    }
+    
+    // Current state of a job as a response (202 while pending)
+    private static ResponseEntity<ChatJobResponse> jobResponse(ChatJobService.ChatJob job) {
+        ChatJobResponse response = new ChatJobResponse(job.id(), ChatJobResponse.PENDING, job.conversationId());
+        if (!job.isFinished()) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        }
+        try {
+            Message aiMessage = job.result().join();
+            response.setStatus(ChatJobResponse.DONE);
+            response.setMessageId(aiMessage.getId().toString());
+            response.setMessage(aiMessage.getText());
+            response.setSender(aiMessage.getSender().name().toLowerCase());
+            response.setTimestamp(aiMessage.getCreatedAt());
+        } catch (CompletionException e) {
+            response.setStatus(ChatJobResponse.FAILED);
+            response.setError(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        }
+        return ResponseEntity.ok(response);
+    }
+
     // POST /api/conversations - Create new conversation
     @PostMapping("/conversations")
     public ResponseEntity<ConversationResponse> createConversation() {
         Conversation conversation = conversationService.createConversation();
         
         ConversationResponse response = new ConversationResponse(
-            conversation.getId(),
+            conversation.getId().toString(),
             conversation.getCreatedAt(),
             conversation.getUpdatedAt()
         );
@@ -83,7 +203,7 @@ public class ChatController {
         Conversation conversation = conversationService.getConversation(id);
         
         ConversationResponse response = new ConversationResponse(
-            conversation.getId(),
+            conversation.getId().toString(),
             conversation.getCreatedAt(),
             conversation.getUpdatedAt()
         );
@@ -91,21 +211,14 @@ public class ChatController {
         return ResponseEntity.ok(response);
     }
 
-    // GET /api/conversations/{id}/messages - Get all messages
+    // GET /api/conversations/{id}/messages?before=&after=&limit= - Get a page of messages (oldest first)
+    // No cursor: latest messages; before=<messageId>: older page; after=<messageId>: new messages since then
     @GetMapping("/conversations/{id}/messages")
-    public ResponseEntity<List<MessageResponse>> getMessages(@PathVariable String id) {
-        List<Message> messages = conversationService.getMessages(id);
-        
-        List<MessageResponse> response = messages.stream()
-            .map(msg -> new MessageResponse(
-                msg.getId(),
-                msg.getSender(),
-                msg.getText(),
-                msg.getCreatedAt()
-            ))
-            .collect(Collectors.toList());
-        
-        return ResponseEntity.ok(response);
+    public ResponseEntity<List<MessageResponse>> getMessages(@PathVariable String id,
+                                                             @RequestParam(required = false) String before,
+                                                             @RequestParam(required = false) String after,
+                                                             @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(conversationService.getMessages(id, before, after, limit));
     }
 
     // DELETE /api/conversations/{id} - Delete conversation
@@ -140,7 +253,7 @@ public class ChatController {
         // Get or create conversation
         if (sessionId == null || sessionId.isBlank()) {
             Conversation newConversation = conversationService.createConversation();
-            sessionId = newConversation.getId();
+            sessionId = newConversation.getId().toString();
         }
         
         // Send message and get AI response
@@ -0,0 +1,274 @@
+package com.chatbot.controller;
+
+import com.chatbot.dto.ChatRequest;
+import com.chatbot.dto.ChatSocketRequest;
+import com.chatbot.dto.ChatStreamEvent;
+import com.chatbot.service.ChatEventHub;
+import com.chatbot.service.ConversationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.context.Context;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * WebSocket chat channel (ws://host/ws/chat, servlet mode): one connection carries many
+ * conversations, without a new HTTP request, CORS preflight and headers per message.
+ *
+ * Frames are JSON text messages: ChatSocketRequest from the client, ChatStreamEvent from
+ * the server. A "send" streams its reply like POST /api/chat/stream (token frames, then
+ * done), tagged with the client's requestId so replies of several conversations can
+ * interleave. The connection also receives the AI replies of the conversations it sends
+ * to or subscribes to, whatever endpoint produced them (server push, via ChatEventHub).
+ *
+ * - Limits per connection: chat.websocket.max-in-flight requests streaming at once,
+ *   chat.websocket.max-subscriptions conversations
+ * - A client too slow to read (send-time-limit / send-buffer-limit) is disconnected
+ * - Closing the connection cancels its streaming replies (they are not saved)
+ * - Metrics: chat.websocket.connections, chat.websocket.frames{type}
+ */
+@Component
+@Profile("!reactive")
+public class ChatWebSocketHandler extends TextWebSocketHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatWebSocketHandler.class);
+
+    private final ConversationService conversationService;
+    private final ChatEventHub eventHub;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final Scheduler blockingScheduler;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+
+    @Value("${chat.websocket.max-in-flight:4}")
+    private int maxInFlight;
+
+    @Value("${chat.websocket.max-subscriptions:100}")
+    private int maxSubscriptions;
+
+    @Value("${chat.websocket.send-time-limit:10s}")
+    private Duration sendTimeLimit;
+
+    @Value("${chat.websocket.send-buffer-limit:512KB}")
+    private DataSize sendBufferLimit;
+
+    public ChatWebSocketHandler(ConversationService conversationService,
+                                ChatEventHub eventHub,
+                                ObjectMapper objectMapper,
+                                Validator validator,
+                                @Qualifier("blockingScheduler") Scheduler blockingScheduler,
+                                MeterRegistry meterRegistry) {
+        this.conversationService = conversationService;
+        this.eventHub = eventHub;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.blockingScheduler = blockingScheduler;
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("chat.websocket.connections", connections, Map::size);
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        // Frames are sent from several threads (one per streaming reply, pushes); the decorator
+        // serializes them and buffers for a slow reader up to the limits
+        WebSocketSession concurrent = new ConcurrentWebSocketSessionDecorator(session,
+                (int) sendTimeLimit.toMillis(), (int) sendBufferLimit.toBytes());
+        connections.put(session.getId(), new Connection(concurrent));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        Connection connection = connections.get(session.getId());
+        if (connection == null) {
+            return;
+        }
+        ChatSocketRequest request;
+        try {
+            request = objectMapper.readValue(message.getPayload(), ChatSocketRequest.class);
+        } catch (IOException e) {
+            connection.send(error(null, null, "Invalid frame: expected a JSON object"));
+            return;
+        }
+        String type = request.getType() != null ? request.getType() : "";
+        meterRegistry.counter("chat.websocket.frames", "type", switch (type) {
+            case ChatSocketRequest.SEND, ChatSocketRequest.CANCEL, ChatSocketRequest.SUBSCRIBE,
+                 ChatSocketRequest.UNSUBSCRIBE, ChatSocketRequest.PING -> type;
+            default -> "unknown";
+        }).increment();
+
+        switch (type) {
+            case ChatSocketRequest.SEND -> send(connection, request);
+            case ChatSocketRequest.CANCEL -> connection.cancel(request.getRequestId());
+            case ChatSocketRequest.SUBSCRIBE -> subscribe(connection, request);
+            case ChatSocketRequest.UNSUBSCRIBE -> connection.unsubscribe(request.getConversationId());
+            case ChatSocketRequest.PING -> connection.send(new ChatStreamEvent(ChatStreamEvent.PONG, null, null, null, null));
+            default -> connection.send(error(request.getRequestId(), null, "Unknown frame type: " + type));
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Connection connection = connections.remove(session.getId());
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    // "send": stream the reply like POST /api/chat/stream, each frame tagged with the requestId
+    private void send(Connection connection, ChatSocketRequest request) {
+        String requestId = request.getRequestId();
+        if (requestId == null || requestId.isBlank()) {
+            connection.send(error(null, request.getConversationId(), "requestId is required"));
+            return;
+        }
+        Set<ConstraintViolation<ChatRequest>> violations = validator.validate(request.toChatRequest());
+        if (!violations.isEmpty()) {
+            connection.send(error(requestId, request.getConversationId(), violations.iterator().next().getMessage()));
+            return;
+        }
+        Disposable.Swap subscription = Disposables.swap();
+        if (connection.inFlight.size() >= maxInFlight || connection.inFlight.putIfAbsent(requestId, subscription) != null) {
+            connection.send(error(requestId, request.getConversationId(),
+                    "Too many requests in flight or duplicate requestId: " + requestId));
+            return;
+        }
+
+        subscription.update(resolveConversationId(request.getConversationId())
+                .flatMapMany(conversationId -> {
+                    // Conversations a client sends to are subscribed too, so it sees replies from its other tabs;
+                    // only once the turn got going (first event), so an unknown conversation takes no subscription
+                    AtomicBoolean subscribed = new AtomicBoolean();
+                    return conversationService.streamMessageOffloaded(conversationId, request.getMessage())
+                            .doOnNext(event -> {
+                                if (subscribed.compareAndSet(false, true)) {
+                                    connection.subscribe(conversationId);
+                                }
+                            });
+                })
+                // This reply ends with its own done frame, so it isn't pushed to this connection as well
+                .contextWrite(Context.of(ChatEventHub.ORIGIN, connection.listener))
+                .doFinally(signal -> connection.inFlight.remove(requestId, subscription))
+                .subscribe(event -> {
+                    event.setRequestId(requestId);
+                    connection.send(event);
+                }, e -> connection.send(error(requestId, request.getConversationId(), Exceptions.unwrap(e).getMessage()))));
+    }
+
+    // "subscribe": push the AI replies of a conversation (it must exist)
+    private void subscribe(Connection connection, ChatSocketRequest request) {
+        String conversationId = request.getConversationId();
+        if (conversationId == null || conversationId.isBlank()) {
+            connection.send(error(request.getRequestId(), null, "conversationId is required"));
+            return;
+        }
+        Mono.fromCallable(() -> conversationService.getConversation(conversationId))
+                .subscribeOn(blockingScheduler)
+                .subscribe(conversation -> connection.subscribe(conversationId),
+                        e -> connection.send(error(request.getRequestId(), conversationId, Exceptions.unwrap(e).getMessage())));
+    }
+
+    // Use the given conversation, or create one for the first message (off the WebSocket thread)
+    private Mono<String> resolveConversationId(String conversationId) {
+        if (conversationId == null || conversationId.isBlank()) {
+            return Mono.fromCallable(() -> conversationService.createConversation().getId().toString())
+                    .subscribeOn(blockingScheduler);
+        }
+        return Mono.just(conversationId);
+    }
+
+    private static ChatStreamEvent error(String requestId, String conversationId, String message) {
+        ChatStreamEvent event = new ChatStreamEvent(ChatStreamEvent.ERROR, conversationId, null, message, null);
+        event.setRequestId(requestId);
+        return event;
+    }
+
+    /** State of one connection: streaming replies and subscriptions */
+    private final class Connection {
+        final WebSocketSession session;
+        final Map<String, Disposable> inFlight = new ConcurrentHashMap<>();
+        final Map<String, Runnable> subscriptions = new ConcurrentHashMap<>();
+        // Hub listener of all subscriptions (one instance, so the hub can tell this connection's own replies)
+        final Consumer<ChatStreamEvent> listener = this::send;
+        // Set by close(); subscriptions are added from blocking-scheduler callbacks that can run after it
+        volatile boolean closed;
+
+        Connection(WebSocketSession session) {
+            this.session = session;
+        }
+
+        void send(ChatStreamEvent event) {
+            if (!session.isOpen()) {
+                return;
+            }
+            try {
+                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(event)));
+            } catch (IOException | RuntimeException e) {
+                // Send limits exceeded (the decorator closes the session) or the connection is gone
+                log.debug("WebSocket {} send failed: {}", session.getId(), e.getMessage());
+            }
+        }
+
+        void subscribe(String conversationId) {
+            if (closed || subscriptions.containsKey(conversationId)) {
+                return;
+            }
+            if (subscriptions.size() >= maxSubscriptions) {
+                send(error(null, conversationId, "Too many subscriptions on this connection"));
+                return;
+            }
+            subscriptions.computeIfAbsent(conversationId, id -> eventHub.subscribe(id, listener));
+            // Closed meanwhile: close() may have missed this one, drop it again
+            if (closed) {
+                unsubscribe(conversationId);
+            }
+        }
+
+        void unsubscribe(String conversationId) {
+            Runnable unsubscribe = conversationId != null ? subscriptions.remove(conversationId) : null;
+            if (unsubscribe != null) {
+                unsubscribe.run();
+            }
+        }
+
+        void cancel(String requestId) {
+            Disposable subscription = requestId != null ? inFlight.remove(requestId) : null;
+            if (subscription != null) {
+                subscription.dispose();
+            }
+        }
+
+        void close() {
+            closed = true;
+            inFlight.values().forEach(Disposable::dispose);
+            inFlight.clear();
+            subscriptions.keySet().forEach(this::unsubscribe);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.chatbot.controller;
+
+import com.chatbot.dto.ChatBatchResult;
+import com.chatbot.dto.ChatRequest;
+import com.chatbot.dto.ChatResponse;
+import com.chatbot.dto.ChatStreamEvent;
+import com.chatbot.dto.ConversationResponse;
+import com.chatbot.dto.MessageResponse;
+import com.chatbot.service.ChatBatchService;
+import com.chatbot.service.ReactiveConversationService;
+import jakarta.validation.Valid;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reactive REST Controller for Chat API ("reactive" profile, replaces ChatController).
+ * Same endpoints and payloads, but every handler returns Mono/Flux so no
+ * event-loop thread ever waits for the AI provider or the database.
+ */
+@RestController
+@RequestMapping("/api")
+@CrossOrigin(origins = "*")
+@Profile("reactive")
+public class ReactiveChatController {
+
+    private final ReactiveConversationService conversationService;
+    private final ChatBatchService batchService;
+
+    public ReactiveChatController(ReactiveConversationService conversationService, ChatBatchService batchService) {
+        this.conversationService = conversationService;
+        this.batchService = batchService;
+    }
+
+    // POST /api/chat - Send message and get AI response
+    @PostMapping("/chat")
+    public Mono<ResponseEntity<ChatResponse>> sendMessage(@Valid @RequestBody ChatRequest request) {
+        return resolveConversationId(request.getConversationId())
+                .flatMap(conversationId -> conversationService.sendMessage(conversationId, request.getMessage())
+                        .map(aiMessage -> ResponseEntity.ok(new ChatResponse(
+                                conversationId,
+                                aiMessage.getId().toString(),
+                                aiMessage.getText(),
+                                aiMessage.getSender().name().toLowerCase(),
+                                aiMessage.getCreatedAt()
+                        ))));
+    }
+
+    // POST /api/chat/stream - Send message and stream AI response as Server-Sent Events
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<ChatStreamEvent>> streamMessage(@Valid @RequestBody ChatRequest request) {
+        return resolveConversationId(request.getConversationId())
+                .flatMapMany(conversationId -> conversationService.streamMessage(conversationId, request.getMessage()))
+                .map(event -> ServerSentEvent.builder(event)
+                        .event(event.getType())
+                        .build());
+    }
+
+    // POST /api/chat/batch - Send many messages, results streamed as NDJSON as each one completes
+    @PostMapping(value = "/chat/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ChatBatchResult> sendBatch(@RequestBody List<ChatRequest> requests) {
+        return batchService.process(requests);
+    }
+
+    // POST /api/conversations - Create new conversation
+    @PostMapping("/conversations")
+    public Mono<ResponseEntity<ConversationResponse>> createConversation() {
+        return conversationService.createConversation()
+                .map(conversation -> ResponseEntity.ok(new ConversationResponse(
+                        conversation.getId().toString(),
+                        conversation.getCreatedAt(),
+                        conversation.getUpdatedAt()
+                )));
+    }
+
+    // GET /api/conversations/{id} - Get conversation details
+    @GetMapping("/conversations/{id}")
+    public Mono<ResponseEntity<ConversationResponse>> getConversation(@PathVariable String id) {
+        return conversationService.getConversation(id)
+                .map(conversation -> ResponseEntity.ok(new ConversationResponse(
+                        conversation.getId().toString(),
+                        conversation.getCreatedAt(),
+                        conversation.getUpdatedAt()
+                )));
+    }
+
+    // GET /api/conversations/{id}/messages?before=&after=&limit= - Get a page of messages (oldest first)
+    @GetMapping("/conversations/{id}/messages")
+    public Mono<ResponseEntity<List<MessageResponse>>> getMessages(@PathVariable String id,
+                                                                   @RequestParam(required = false) String before,
+                                                                   @RequestParam(required = false) String after,
+                                                                   @RequestParam(required = false) Integer limit) {
+        return conversationService.getMessages(id, before, after, limit)
+                .map(ResponseEntity::ok);
+    }
+
+    // DELETE /api/conversations/{id} - Delete conversation
+    @DeleteMapping("/conversations/{id}")
+    public Mono<ResponseEntity<Void>> deleteConversation(@PathVariable String id) {
+        return conversationService.deleteConversation(id)
+                .then(Mono.just(ResponseEntity.noContent().<Void>build()));
+    }
+
+    /**
+     * Alternative endpoint matching spec exactly
+     * POST /chat/message - accepts { message: string, sessionId?: string }
+     * Returns { reply: string, sessionId: string }
+     */
+    @PostMapping("/chat/message")
+    public Mono<ResponseEntity<Map<String, String>>> sendMessageAlt(@RequestBody Map<String, String> request) {
+        String message = request.get("message");
+
+        // Validate message
+        if (message == null || message.isBlank()) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Message cannot be empty");
+            return Mono.just(ResponseEntity.badRequest().body(error));
+        }
+
+        // Truncate if too long
+        String text = message.length() > 3000 ? message.substring(0, 3000) : message;
+
+        return resolveConversationId(request.get("sessionId"))
+                .flatMap(sessionId -> conversationService.sendMessage(sessionId, text)
+                        .map(aiMessage -> {
+                            Map<String, String> response = new HashMap<>();
+                            response.put("reply", aiMessage.getText());
+                            response.put("sessionId", sessionId);
+                            return ResponseEntity.ok(response);
+                        }));
+    }
+
+    // Use the given conversation, or create one for the first message
+    private Mono<String> resolveConversationId(String conversationId) {
+        if (conversationId == null || conversationId.isBlank()) {
+            return conversationService.createConversation().map(conversation -> conversation.getId().toString());
+        }
+        return Mono.just(conversationId);
+    }
+}
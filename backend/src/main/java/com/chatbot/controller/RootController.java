@@ -1,5 +1,7 @@
 package com.chatbot.controller;
 
+import com.chatbot.service.LlmHealthIndicator;
+import com.chatbot.service.LlmRouter;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -14,12 +16,20 @@ import java.util.Map;
 @RestController
 public class RootController {
 
-    /** Health check endpoint - returns service status */
+    private final LlmRouter llmRouter;
+
+    public RootController(LlmRouter llmRouter) {
+        this.llmRouter = llmRouter;
+    }
+
+    /** Health check endpoint - returns service status and AI provider circuit states */
     @GetMapping("/api/health")
-    public ResponseEntity<Map<String, String>> health() {
-        Map<String, String> response = new HashMap<>();
+    public ResponseEntity<Map<String, Object>> health() {
+        Map<String, Object> response = new HashMap<>();
         response.put("status", "healthy");
         response.put("service", "chatbot-backend");
+        // The service stays healthy while providers are down: chat answers in degraded mode
+        response.put("llmCircuits", LlmHealthIndicator.circuitStates(llmRouter));
         return ResponseEntity.ok(response);
     }
 }
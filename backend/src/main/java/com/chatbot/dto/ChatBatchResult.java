@@ -0,0 +1,60 @@
+package com.chatbot.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+/**
+ * One line of the POST /api/chat/batch response (NDJSON), written as soon as its request is done.
+ * index is the position of the request in the batch (lines arrive in completion order).
+ * Either the AI reply fields or error are set.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChatBatchResult {
+    
+    private int index;
+    private String conversationId;
+    private String messageId;
+    private String message;
+    private String sender;
+    private LocalDateTime timestamp;
+    private String error;
+    
+    public ChatBatchResult() {}
+    
+    public ChatBatchResult(int index, String conversationId, String messageId, String message, String sender,
+                           LocalDateTime timestamp, String error) {
+        this.index = index;
+        this.conversationId = conversationId;
+        this.messageId = messageId;
+        this.message = message;
+        this.sender = sender;
+        this.timestamp = timestamp;
+        this.error = error;
+    }
+    
+    public static ChatBatchResult error(int index, String conversationId, String error) {
+        return new ChatBatchResult(index, conversationId, null, null, null, null, error);
+    }
+    
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+    
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(String conversationId) { this.conversationId = conversationId; }
+    
+    public String getMessageId() { return messageId; }
+    public void setMessageId(String messageId) { this.messageId = messageId; }
+    
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+    
+    public String getSender() { return sender; }
+    public void setSender(String sender) { this.sender = sender; }
+    
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+    
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
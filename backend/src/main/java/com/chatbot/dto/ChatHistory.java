@@ -0,0 +1,36 @@
+package com.chatbot.dto;
+
+import java.util.List;
+
+/**
+ * LLM context of a conversation: the rolling summary of its older messages (null until
+ * the conversation is long enough to be summarized) and its most recent turns, oldest first.
+ */
+public record ChatHistory(ConversationSummary summary, List<ChatTurn> turns) {
+
+    public static final ChatHistory EMPTY = new ChatHistory(null, List.of());
+
+    // Summary text for the prompt, null when there is none
+    public String summaryText() {
+        return summary != null ? summary.text() : null;
+    }
+
+    // Turns the summary doesn't cover yet - the only ones sent as they are
+    // (all of them when the summarized message is older than the recent turns)
+    public List<ChatTurn> unsummarizedTurns() {
+        if (summary == null) {
+            return turns;
+        }
+        for (int i = turns.size() - 1; i >= 0; i--) {
+            if (turns.get(i).messageId().equals(summary.throughId())) {
+                return turns.subList(i + 1, turns.size());
+            }
+        }
+        return turns;
+    }
+
+    // Nothing said before in this conversation
+    public boolean isEmpty() {
+        return summary == null && turns.isEmpty();
+    }
+}
@@ -0,0 +1,59 @@
+package com.chatbot.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+/**
+ * Response DTO for the async chat endpoints (POST /api/chat/async, GET /api/chat/jobs/{id}).
+ * status is "pending" until the AI reply is saved, then "done" (reply fields set)
+ * or "failed" (error set).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChatJobResponse {
+    
+    public static final String PENDING = "pending";
+    public static final String DONE = "done";
+    public static final String FAILED = "failed";
+    
+    private String jobId;
+    private String status;
+    private String conversationId;
+    private String messageId;
+    private String message;
+    private String sender;
+    private LocalDateTime timestamp;
+    private String error;
+    
+    public ChatJobResponse() {}
+    
+    public ChatJobResponse(String jobId, String status, String conversationId) {
+        this.jobId = jobId;
+        this.status = status;
+        this.conversationId = conversationId;
+    }
+    
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+    
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(String conversationId) { this.conversationId = conversationId; }
+    
+    public String getMessageId() { return messageId; }
+    public void setMessageId(String messageId) { this.messageId = messageId; }
+    
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+    
+    public String getSender() { return sender; }
+    public void setSender(String sender) { this.sender = sender; }
+    
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+    
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
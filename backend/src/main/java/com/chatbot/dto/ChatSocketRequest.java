@@ -0,0 +1,45 @@
+package com.chatbot.dto;
+
+/**
+ * Client frame of the WebSocket channel (/ws/chat), one JSON object per text message.
+ * 
+ * - send:        { type, requestId, conversationId?, message } - like POST /api/chat/stream,
+ *                answered with token frames and one done (or error) frame carrying requestId
+ * - cancel:      { type, requestId } - stop a streaming reply (it is not saved)
+ * - subscribe:   { type, conversationId } - push every new AI reply of the conversation
+ * - unsubscribe: { type, conversationId }
+ * - ping:        { type } - answered with pong
+ */
+public class ChatSocketRequest {
+    
+    public static final String SEND = "send";
+    public static final String CANCEL = "cancel";
+    public static final String SUBSCRIBE = "subscribe";
+    public static final String UNSUBSCRIBE = "unsubscribe";
+    public static final String PING = "ping";
+    
+    private String type;
+    private String requestId;       // Chosen by the client, unique among its requests in flight
+    private String conversationId;  // Optional on send - null starts a new conversation
+    private String message;
+    
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    
+    public String getRequestId() { return requestId; }
+    public void setRequestId(String requestId) { this.requestId = requestId; }
+    
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(String conversationId) { this.conversationId = conversationId; }
+    
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+    
+    // The same checks as the REST endpoints (ChatRequest constraints)
+    public ChatRequest toChatRequest() {
+        ChatRequest request = new ChatRequest();
+        request.setConversationId(conversationId);
+        request.setMessage(message);
+        return request;
+    }
+}
@@ -0,0 +1,64 @@
+package com.chatbot.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+/**
+ * Event DTO for the streaming chat endpoint (POST /api/chat/stream).
+ * "token" events carry a piece of the AI reply as it is generated,
+ * the final "done" event carries the saved AI message metadata.
+ * If the AI provider fails after some tokens were sent, an "error" event
+ * ends the stream instead and the incomplete reply is not saved.
+ * 
+ * Also the frame format of the WebSocket channel (/ws/chat), where requestId ties
+ * token/done/error frames to the "send" they answer; "done" frames without a
+ * requestId are pushed replies of subscribed conversations.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChatStreamEvent {
+    
+    public static final String TOKEN = "token";
+    public static final String DONE = "done";
+    public static final String ERROR = "error";   // text is the error message
+    public static final String PONG = "pong";     // WebSocket only: answer to "ping"
+    
+    private String type;
+    private String requestId;   // WebSocket only
+    private String conversationId;
+    private String messageId;   // Only set on "done"
+    private String text;        // Token text, or the full reply on "done"
+    private LocalDateTime timestamp;
+    
+    public ChatStreamEvent() {}
+    
+    public ChatStreamEvent(String type, String conversationId, String messageId, String text, LocalDateTime timestamp) {
+        this.type = type;
+        this.conversationId = conversationId;
+        this.messageId = messageId;
+        this.text = text;
+        this.timestamp = timestamp;
+    }
+    
+    public static ChatStreamEvent token(String conversationId, String text) {
+        return new ChatStreamEvent(TOKEN, conversationId, null, text, null);
+    }
+    
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    
+    public String getRequestId() { return requestId; }
+    public void setRequestId(String requestId) { this.requestId = requestId; }
+    
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(String conversationId) { this.conversationId = conversationId; }
+    
+    public String getMessageId() { return messageId; }
+    public void setMessageId(String messageId) { this.messageId = messageId; }
+    
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+    
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+}
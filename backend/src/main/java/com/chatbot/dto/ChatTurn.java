@@ -0,0 +1,22 @@
+package com.chatbot.dto;
+
+import com.chatbot.entity.MessageSender;
+
+import java.util.UUID;
+
+/**
+ * Compact, immutable view of one message used as LLM context.
+ * Loaded straight from the messages table (no entity hydration) and
+ * kept in the per-conversation history cache.
+ */
+public record ChatTurn(String messageId, MessageSender sender, String text) {
+
+    // Used by the JPQL projection (message IDs are UUIDs in the database)
+    public ChatTurn(UUID messageId, MessageSender sender, String text) {
+        this(messageId.toString(), sender, text);
+    }
+
+    public boolean isUser() {
+        return sender == MessageSender.user;
+    }
+}
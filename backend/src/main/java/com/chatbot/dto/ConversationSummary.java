@@ -0,0 +1,17 @@
+package com.chatbot.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Rolling summary of a conversation's older messages, stored on the conversations row.
+ * Covers every message up to and including throughId (created at throughAt); later
+ * messages are sent to the LLM as they are.
+ */
+public record ConversationSummary(String text, String throughId, LocalDateTime throughAt) {
+
+    // Used by the JPQL projection (message IDs are UUIDs in the database)
+    public ConversationSummary(String text, UUID throughId, LocalDateTime throughAt) {
+        this(text, throughId != null ? throughId.toString() : null, throughAt);
+    }
+}
@@ -3,10 +3,12 @@ package com.chatbot.dto;
 import com.chatbot.entity.MessageSender;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 /**
  * Response DTO for GET /api/conversations/{id}/messages.
  * Used when loading conversation history.
+ * Read straight from the messages table by a JPQL projection (no entity hydration).
  */
 public class MessageResponse {
     
@@ -24,6 +26,11 @@ public class MessageResponse {
         this.timestamp = timestamp;
     }
     
+    // Used by the JPQL projection (message IDs are UUIDs in the database)
+    public MessageResponse(UUID id, MessageSender sender, String text, LocalDateTime timestamp) {
+        this(id.toString(), sender, text, timestamp);
+    }
+    
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
     
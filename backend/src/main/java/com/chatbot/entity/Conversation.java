@@ -1,10 +1,14 @@
 package com.chatbot.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * ============================================
@@ -27,17 +31,23 @@ import java.util.List;
  * @version 1.0
  */
 @Entity  // Marks this class as a database entity
-@Table(name = "conversations")  // Specifies the table name
-public class Conversation {
+@Table(name = "conversations", indexes = {  // Specifies the table name
+    // Used by the retention job to find old and inactive conversations
+    @Index(name = "idx_conversation_created_at", columnList = "created_at"),
+    @Index(name = "idx_conversation_updated_at", columnList = "updated_at")
+})
+public class Conversation implements Persistable<UUID> {
     
     /**
      * Unique identifier for each conversation
-     * We use UUID (random string) instead of auto-increment numbers
-     * Example: "550e8400-e29b-41d4-a716-446655440000"
+     * We use a time-ordered UUID (version 7, see UuidV7) instead of auto-increment numbers
+     * Stored as 16 bytes (MySQL BINARY(16), PostgreSQL uuid), shown as text in the API
+     * Example: "0190b6c4-8f2a-7c3e-9d41-6a1f0e2b7c55"
      */
     @Id  // Marks this field as the primary key
-    @Column(name = "id", length = 36)
-    private String id;
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "id", nullable = false, updatable = false)
+    private UUID id;
     
     /**
      * When this conversation was created
@@ -48,11 +58,28 @@ public class Conversation {
     
     /**
      * When this conversation was last updated (new message added)
-     * This value updates every time a message is added
+     * Touched by MessageWriter when messages are saved (at most once a minute per conversation)
      */
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    /**
+     * Rolling summary of the older messages (null until the conversation gets long)
+     * Written by ConversationSummarizer in the background and sent to the AI instead of those messages
+     */
+    @Column(name = "summary", columnDefinition = "TEXT")
+    private String summary;
+    
+    /**
+     * Last message covered by the summary (ID and creation time, the message paging cursor)
+     */
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "summary_through_id")
+    private UUID summaryThroughId;
+    
+    @Column(name = "summary_through_at")
+    private LocalDateTime summaryThroughAt;
+    
     /**
      * List of all messages in this conversation
      * 
@@ -64,6 +91,14 @@ public class Conversation {
     @OneToMany(mappedBy = "conversation", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Message> messages = new ArrayList<>();
     
+    /**
+     * Whether this entity has not been saved yet (not a database column)
+     * IDs are assigned by us, so Spring Data can't tell new entities from existing ones by a null ID.
+     * Without this flag every save() would run an extra SELECT (merge) before the INSERT.
+     */
+    @Transient
+    private boolean isNew = true;
+    
     // ============================================
     // CONSTRUCTORS
     // ============================================
@@ -76,7 +111,7 @@ public class Conversation {
     /**
      * Constructor with all fields
      */
-    public Conversation(String id, LocalDateTime createdAt, LocalDateTime updatedAt, List<Message> messages) {
+    public Conversation(UUID id, LocalDateTime createdAt, LocalDateTime updatedAt, List<Message> messages) {
         this.id = id;
         this.createdAt = createdAt;
         this.updatedAt = updatedAt;
@@ -87,8 +122,9 @@ public class Conversation {
     // GETTERS AND SETTERS
     // ============================================
     
-    public String getId() { return id; }
-    public void setId(String id) { this.id = id; }
+    @Override
+    public UUID getId() { return id; }
+    public void setId(UUID id) { this.id = id; }
     
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
@@ -96,9 +132,21 @@ public class Conversation {
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
     
+    public String getSummary() { return summary; }
+    public void setSummary(String summary) { this.summary = summary; }
+    
+    public UUID getSummaryThroughId() { return summaryThroughId; }
+    public void setSummaryThroughId(UUID summaryThroughId) { this.summaryThroughId = summaryThroughId; }
+    
+    public LocalDateTime getSummaryThroughAt() { return summaryThroughAt; }
+    public void setSummaryThroughAt(LocalDateTime summaryThroughAt) { this.summaryThroughAt = summaryThroughAt; }
+    
     public List<Message> getMessages() { return messages; }
     public void setMessages(List<Message> messages) { this.messages = messages; }
     
+    @Override
+    public boolean isNew() { return isNew; }
+    
     // ============================================
     // LIFECYCLE CALLBACKS (Automatic actions)
     // ============================================
@@ -125,4 +173,14 @@ public class Conversation {
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
     }
+    
+    /**
+     * Called automatically AFTER saving or loading
+     * From now on save() updates this row instead of inserting it
+     */
+    @PostPersist
+    @PostLoad
+    protected void markNotNew() {
+        isNew = false;
+    }
 }
@@ -2,8 +2,12 @@ package com.chatbot.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 /**
  * ============================================
@@ -30,15 +34,17 @@ import java.time.LocalDateTime;
     // Index helps the database find messages faster when searching by conversation and time
     @Index(name = "idx_conversation_created", columnList = "conversation_id, created_at")
 })
-public class Message {
+public class Message implements Persistable<UUID> {
     
     /**
-     * Unique identifier for each message (UUID format)
-     * Example: "550e8400-e29b-41d4-a716-446655440000"
+     * Unique identifier for each message (time-ordered UUID, see UuidV7)
+     * Stored as 16 bytes, shown as text in the API
+     * Example: "0190b6c4-8f2a-7c3e-9d41-6a1f0e2b7c55"
      */
     @Id
-    @Column(name = "id", length = 36, nullable = false)
-    private String id;
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "id", nullable = false, updatable = false)
+    private UUID id;
     
     /**
      * The conversation this message belongs to
@@ -76,6 +82,14 @@ public class Message {
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
     
+    /**
+     * Whether this entity has not been saved yet (not a database column)
+     * IDs are assigned by us, so Spring Data can't tell new entities from existing ones by a null ID.
+     * Without this flag every save() would run an extra SELECT (merge) before the INSERT.
+     */
+    @Transient
+    private boolean isNew = true;
+    
     // ============================================
     // CONSTRUCTORS
     // ============================================
@@ -88,7 +102,7 @@ public class Message {
     /**
      * Constructor with all fields
      */
-    public Message(String id, Conversation conversation, MessageSender sender, String text, LocalDateTime createdAt) {
+    public Message(UUID id, Conversation conversation, MessageSender sender, String text, LocalDateTime createdAt) {
         this.id = id;
         this.conversation = conversation;
         this.sender = sender;
@@ -100,8 +114,9 @@ public class Message {
     // GETTERS AND SETTERS
     // ============================================
     
-    public String getId() { return id; }
-    public void setId(String id) { this.id = id; }
+    @Override
+    public UUID getId() { return id; }
+    public void setId(UUID id) { this.id = id; }
     
     public Conversation getConversation() { return conversation; }
     public void setConversation(Conversation conversation) { this.conversation = conversation; }
@@ -115,6 +130,9 @@ public class Message {
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
+    @Override
+    public boolean isNew() { return isNew; }
+    
     // ============================================
     // LIFECYCLE CALLBACKS
     // ============================================
@@ -129,4 +147,14 @@ public class Message {
             createdAt = LocalDateTime.now();
         }
     }
+    
+    /**
+     * Called automatically AFTER saving or loading
+     * From now on save() updates this row instead of inserting it
+     */
+    @PostPersist
+    @PostLoad
+    protected void markNotNew() {
+        isNew = false;
+    }
 }
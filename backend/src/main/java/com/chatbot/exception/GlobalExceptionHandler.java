@@ -1,42 +1,89 @@
 package com.chatbot.exception;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Global exception handler for all REST endpoints.
  * Catches exceptions and returns consistent JSON error responses.
  * 
  * Response format: { "error": "Error message here" }
+ * 
+ * Metrics: chat.errors{category=validation|bad_request|not_found|overloaded|internal}
  */
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
+    private final MeterRegistry meterRegistry;
+
+    public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     // Handle validation errors (400 Bad Request)
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, String>> handleValidationErrors(MethodArgumentNotValidException ex) {
         Map<String, String> errors = new HashMap<>();
         FieldError fieldError = ex.getBindingResult().getFieldErrors().get(0);
         errors.put("error", fieldError.getDefaultMessage());
+        countError("validation");
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
+    }
+
+    // Handle validation errors from the reactive controller (400 Bad Request)
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<Map<String, String>> handleReactiveValidationErrors(WebExchangeBindException ex) {
+        Map<String, String> errors = new HashMap<>();
+        FieldError fieldError = ex.getBindingResult().getFieldErrors().get(0);
+        errors.put("error", fieldError.getDefaultMessage());
+        countError("validation");
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
     }
 
+    // Handle invalid request parameters (400 Bad Request)
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleIllegalArgument(IllegalArgumentException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        countError("bad_request");
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
+    // Handle a full work queue, e.g. async chat jobs (503 Service Unavailable, retry later)
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, String>> handleRejected(RejectedExecutionException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        countError("overloaded");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "5").body(error);
+    }
+
     // Handle runtime exceptions (404 Not Found or 500 Internal Error)
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String, String>> handleRuntimeException(RuntimeException ex) {
         Map<String, String> error = new HashMap<>();
         error.put("error", ex.getMessage());
         
-        if (ex.getMessage().contains("not found")) {
+        if (ex.getMessage() != null && ex.getMessage().contains("not found")) {
+            countError("not_found");
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
         }
+        countError("internal");
+        log.error("Request failed", ex);
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
     }
 
@@ -45,8 +92,12 @@ public class GlobalExceptionHandler {
     public ResponseEntity<Map<String, String>> handleGenericException(Exception ex) {
         Map<String, String> error = new HashMap<>();
         error.put("error", "An unexpected error occurred. Please try again.");
-        System.err.println("Unexpected error: " + ex.getMessage());
-        ex.printStackTrace();
+        countError("internal");
+        log.error("Unexpected error: {}", ex.getMessage(), ex);
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
     }
+
+    private void countError(String category) {
+        meterRegistry.counter("chat.errors", "category", category).increment();
+    }
 }
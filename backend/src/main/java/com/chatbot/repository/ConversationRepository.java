@@ -1,18 +1,26 @@
 package com.chatbot.repository;
 
+import com.chatbot.dto.ConversationSummary;
 import com.chatbot.entity.Conversation;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 /**
  * JPA Repository for Conversation entity.
  * Spring Data JPA auto-generates implementations for these methods.
  */
 @Repository
-public interface ConversationRepository extends JpaRepository<Conversation, String> {
+public interface ConversationRepository extends JpaRepository<Conversation, UUID> {
     
     // Find conversations created after a date
     List<Conversation> findByCreatedAtAfterOrderByCreatedAtDesc(LocalDateTime date);
@@ -23,6 +31,43 @@ public interface ConversationRepository extends JpaRepository<Conversation, Stri
     // Count conversations created after date
     long countByCreatedAtAfter(LocalDateTime date);
     
-    // Delete old conversations
-    void deleteByCreatedAtBefore(LocalDateTime date);
+    // Record activity: set updatedAt of the conversations, skipping rows touched after staleBefore
+    // (one UPDATE per batch of messages instead of one per message)
+    @Modifying
+    @Query("UPDATE Conversation c SET c.updatedAt = :now WHERE c.id IN :ids AND c.updatedAt < :staleBefore")
+    int touch(@Param("ids") Collection<UUID> ids, @Param("now") LocalDateTime now,
+              @Param("staleBefore") LocalDateTime staleBefore);
+    
+    // Rolling summary of a conversation (empty Optional: no such conversation; fields are null until summarized)
+    @Query("SELECT new com.chatbot.dto.ConversationSummary(c.summary, c.summaryThroughId, c.summaryThroughAt) "
+            + "FROM Conversation c WHERE c.id = :id")
+    Optional<ConversationSummary> findSummary(@Param("id") UUID id);
+    
+    // Replace the summary only if nobody moved it since it was read (compare-and-set on its last message)
+    // 0 rows: summarized concurrently or the conversation was deleted
+    @Modifying
+    @Query("UPDATE Conversation c SET c.summary = :text, c.summaryThroughId = :throughId, c.summaryThroughAt = :throughAt "
+            + "WHERE c.id = :id AND c.summaryThroughId = :previousThroughId")
+    int updateSummary(@Param("id") UUID id, @Param("text") String text, @Param("throughId") UUID throughId,
+                      @Param("throughAt") LocalDateTime throughAt, @Param("previousThroughId") UUID previousThroughId);
+    
+    // First summary of a conversation (same compare-and-set, for a conversation never summarized)
+    @Modifying
+    @Query("UPDATE Conversation c SET c.summary = :text, c.summaryThroughId = :throughId, c.summaryThroughAt = :throughAt "
+            + "WHERE c.id = :id AND c.summaryThroughId IS NULL")
+    int insertSummary(@Param("id") UUID id, @Param("text") String text, @Param("throughId") UUID throughId,
+                      @Param("throughAt") LocalDateTime throughAt);
+    
+    // Retention: IDs of conversations created before the cutoff (one chunk)
+    @Query("SELECT c.id FROM Conversation c WHERE c.createdAt < :cutoff")
+    List<UUID> findIdsCreatedBefore(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+    
+    // Retention: IDs of conversations without activity since the cutoff (one chunk)
+    @Query("SELECT c.id FROM Conversation c WHERE c.updatedAt < :cutoff")
+    List<UUID> findIdsUpdatedBefore(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+    
+    // Bulk delete by ID - a single statement, no entities loaded (delete their messages first)
+    @Modifying
+    @Query("DELETE FROM Conversation c WHERE c.id IN :ids")
+    int deleteAllByIds(@Param("ids") Collection<UUID> ids);
 }
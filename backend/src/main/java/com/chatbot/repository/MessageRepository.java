@@ -1,36 +1,95 @@
 package com.chatbot.repository;
 
+import com.chatbot.dto.ChatTurn;
+import com.chatbot.dto.MessageResponse;
 import com.chatbot.entity.Message;
 import com.chatbot.entity.MessageSender;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 /**
  * JPA Repository for Message entity.
  * Provides methods for querying messages by conversation.
  */
 @Repository
-public interface MessageRepository extends JpaRepository<Message, String> {
+public interface MessageRepository extends JpaRepository<Message, UUID> {
     
     // Get all messages in conversation (oldest first)
-    List<Message> findByConversation_IdOrderByCreatedAtAsc(String conversationId);
+    List<Message> findByConversation_IdOrderByCreatedAtAsc(UUID conversationId);
     
     // Get recent messages with pagination
-    Page<Message> findByConversation_IdOrderByCreatedAtDesc(String conversationId, Pageable pageable);
+    Page<Message> findByConversation_IdOrderByCreatedAtDesc(UUID conversationId, Pageable pageable);
     
     // Get messages by sender
-    List<Message> findByConversation_IdAndSenderOrderByCreatedAtAsc(String conversationId, MessageSender sender);
+    List<Message> findByConversation_IdAndSenderOrderByCreatedAtAsc(UUID conversationId, MessageSender sender);
     
     // Count messages in conversation
-    long countByConversation_Id(String conversationId);
+    long countByConversation_Id(UUID conversationId);
     
     // Get top 10 recent messages
-    List<Message> findTop10ByConversation_IdOrderByCreatedAtDesc(String conversationId);
+    List<Message> findTop10ByConversation_IdOrderByCreatedAtDesc(UUID conversationId);
+    
+    // Get the most recent turns as compact records, newest first (LLM context, no entity hydration)
+    @Query("SELECT new com.chatbot.dto.ChatTurn(m.id, m.sender, m.text) FROM Message m "
+            + "WHERE m.conversation.id = :conversationId ORDER BY m.createdAt DESC")
+    List<ChatTurn> findRecentTurns(@Param("conversationId") UUID conversationId, Limit limit);
+    
+    // Message history pages, keyset pagination on (createdAt, id) using idx_conversation_created
+    // (InnoDB secondary indexes end with the primary key, so the index also covers the id tie-breaker)
+    
+    // Latest messages, newest first
+    @Query("SELECT new com.chatbot.dto.MessageResponse(m.id, m.sender, m.text, m.createdAt) FROM Message m "
+            + "WHERE m.conversation.id = :conversationId ORDER BY m.createdAt DESC, m.id DESC")
+    List<MessageResponse> findLatestPage(@Param("conversationId") UUID conversationId, Limit limit);
+    
+    // Messages older than the cursor message, newest first
+    @Query("SELECT new com.chatbot.dto.MessageResponse(m.id, m.sender, m.text, m.createdAt) FROM Message m "
+            + "WHERE m.conversation.id = :conversationId "
+            + "AND (m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id)) "
+            + "ORDER BY m.createdAt DESC, m.id DESC")
+    List<MessageResponse> findPageBefore(@Param("conversationId") UUID conversationId,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") UUID id, Limit limit);
+    
+    // First messages of the conversation, oldest first
+    @Query("SELECT new com.chatbot.dto.MessageResponse(m.id, m.sender, m.text, m.createdAt) FROM Message m "
+            + "WHERE m.conversation.id = :conversationId ORDER BY m.createdAt ASC, m.id ASC")
+    List<MessageResponse> findFirstPage(@Param("conversationId") UUID conversationId, Limit limit);
+    
+    // Messages newer than the cursor message, oldest first
+    @Query("SELECT new com.chatbot.dto.MessageResponse(m.id, m.sender, m.text, m.createdAt) FROM Message m "
+            + "WHERE m.conversation.id = :conversationId "
+            + "AND (m.createdAt > :createdAt OR (m.createdAt = :createdAt AND m.id > :id)) "
+            + "ORDER BY m.createdAt ASC, m.id ASC")
+    List<MessageResponse> findPageAfter(@Param("conversationId") UUID conversationId,
+                                        @Param("createdAt") LocalDateTime createdAt,
+                                        @Param("id") UUID id, Limit limit);
+    
+    // Creation time of a message in the conversation (resolves a page cursor)
+    @Query("SELECT m.createdAt FROM Message m WHERE m.id = :id AND m.conversation.id = :conversationId")
+    Optional<LocalDateTime> findCreatedAt(@Param("conversationId") UUID conversationId, @Param("id") UUID id);
+    
+    // IDs of messages in the conversations (one chunk of a bulk delete)
+    @Query("SELECT m.id FROM Message m WHERE m.conversation.id IN :conversationIds")
+    List<UUID> findIdsByConversationIds(@Param("conversationIds") Collection<UUID> conversationIds, Limit limit);
+    
+    // Bulk delete by ID - a single statement, no entities loaded
+    @Modifying
+    @Query("DELETE FROM Message m WHERE m.id IN :ids")
+    int deleteAllByIds(@Param("ids") Collection<UUID> ids);
     
     // Count messages by sender
-    long countByConversation_IdAndSender(String conversationId, MessageSender sender);
+    long countByConversation_IdAndSender(UUID conversationId, MessageSender sender);
 }
@@ -0,0 +1,121 @@
+package com.chatbot.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Small in-memory BM25 index over knowledge base sections.
+ * Immutable once built - a reload builds a new index.
+ */
+final class Bm25Index {
+
+    // Standard BM25 parameters: term frequency saturation and length normalization
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "can", "do", "does", "for", "from",
+            "how", "i", "if", "in", "is", "it", "me", "my", "of", "on", "or", "our", "the", "to",
+            "we", "what", "when", "where", "which", "who", "will", "with", "you", "your");
+
+    private final List<Map<String, Integer>> termFrequencies = new ArrayList<>();
+    private final int[] lengths;
+    private final Map<String, Double> idf = new HashMap<>();
+    private final double averageLength;
+
+    Bm25Index(List<String> documents) {
+        this.lengths = new int[documents.size()];
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        long totalLength = 0;
+
+        for (int i = 0; i < documents.size(); i++) {
+            List<String> terms = tokenize(documents.get(i));
+            Map<String, Integer> tf = new HashMap<>();
+            for (String term : terms) {
+                tf.merge(term, 1, Integer::sum);
+            }
+            for (String term : tf.keySet()) {
+                documentFrequency.merge(term, 1, Integer::sum);
+            }
+            termFrequencies.add(tf);
+            lengths[i] = terms.size();
+            totalLength += terms.size();
+        }
+
+        int n = documents.size();
+        documentFrequency.forEach((term, df) ->
+                idf.put(term, Math.log(1 + (n - df + 0.5) / (df + 0.5))));
+        this.averageLength = n == 0 ? 0 : (double) totalLength / n;
+    }
+
+    // Indexes of the best matching documents (score > 0), best first, at most k
+    List<Integer> search(String query, int k) {
+        List<String> queryTerms = tokenize(query);
+        List<double[]> scored = new ArrayList<>();
+        for (int doc = 0; doc < termFrequencies.size(); doc++) {
+            double score = score(doc, queryTerms);
+            if (score > 0) {
+                scored.add(new double[] {doc, score});
+            }
+        }
+        scored.sort(Comparator.comparingDouble((double[] s) -> s[1]).reversed());
+
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < Math.min(k, scored.size()); i++) {
+            result.add((int) scored.get(i)[0]);
+        }
+        return result;
+    }
+
+    private double score(int doc, List<String> queryTerms) {
+        Map<String, Integer> tf = termFrequencies.get(doc);
+        double norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+        double score = 0;
+        for (String term : queryTerms) {
+            Integer f = tf.get(term);
+            if (f != null) {
+                score += idf.get(term) * (f * (K1 + 1)) / (f + norm);
+            }
+        }
+        return score;
+    }
+
+    // Lowercase words without stop words, with a light suffix stemmer ("returns" -> "return")
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (word.length() > 0) {
+                String term = stem(word.toString());
+                if (!STOP_WORDS.contains(term)) {
+                    terms.add(term);
+                }
+                word.setLength(0);
+            }
+        }
+        return terms;
+    }
+
+    private static String stem(String word) {
+        if (word.length() > 5 && (word.endsWith("ing") || word.endsWith("ed"))) {
+            String stem = word.substring(0, word.length() - (word.endsWith("ing") ? 3 : 2));
+            // "shipping" -> "shipp" -> "ship"
+            int n = stem.length();
+            return stem.charAt(n - 1) == stem.charAt(n - 2) ? stem.substring(0, n - 1) : stem;
+        }
+        if (word.length() > 4 && word.endsWith("ies")) {
+            return word.substring(0, word.length() - 3) + "y";
+        }
+        if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss")) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+}
@@ -0,0 +1,134 @@
+package com.chatbot.service;
+
+import com.chatbot.dto.ChatBatchResult;
+import com.chatbot.dto.ChatRequest;
+import com.chatbot.entity.Message;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Runs many chat requests in one call (POST /api/chat/batch), e.g. replaying past customer
+ * questions for QA or to warm the first-turn answer cache.
+ *
+ * - At most chat.batch.parallelism requests of a batch are in flight at once. Their LLM calls
+ *   go through the same LlmRouter (concurrency limiter, rate-limit headers, circuit breakers)
+ *   as interactive chat, so a batch queues behind the provider limit instead of causing 429s.
+ * - Requests for the same conversation run one after the other, in batch order; requests
+ *   without a conversation ID each start a new conversation.
+ * - Results are emitted as each request finishes. A failed request (validation, unknown
+ *   conversation) yields an error result, the rest of the batch goes on.
+ * - Cancelled when the client disconnects (requests already sent to the AI still finish).
+ *
+ * Metrics: chat.batch.requests{result=success|error}
+ */
+@Service
+public class ChatBatchService {
+
+    private final ConversationService conversationService;
+    private final LlmService llmService;
+    private final Scheduler blockingScheduler;
+    private final Validator validator;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.batch.parallelism:4}")
+    private int parallelism;
+
+    @Value("${chat.batch.max-requests:1000}")
+    private int maxRequests;
+
+    public ChatBatchService(ConversationService conversationService,
+                            LlmService llmService,
+                            @Qualifier("blockingScheduler") Scheduler blockingScheduler,
+                            Validator validator,
+                            MeterRegistry meterRegistry) {
+        this.conversationService = conversationService;
+        this.llmService = llmService;
+        this.blockingScheduler = blockingScheduler;
+        this.validator = validator;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Process a batch; results arrive in completion order (ChatBatchResult.index is the request position)
+    public Flux<ChatBatchResult> process(List<ChatRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one request");
+        }
+        if (requests.size() > maxRequests) {
+            throw new IllegalArgumentException("Batch too large: " + requests.size() + " requests (max " + maxRequests + ")");
+        }
+
+        // 1. Group by conversation, keeping batch order within each group
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            ChatRequest request = requests.get(i);
+            String conversationId = request != null ? request.getConversationId() : null;
+            String key = conversationId == null || conversationId.isBlank() ? "#" + i : conversationId;
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+
+        // 2. Groups in parallel (bounded), requests of a group in sequence
+        return Flux.fromIterable(groups.values())
+                .flatMap(indexes -> Flux.fromIterable(indexes)
+                        .concatMap(index -> processOne(index, requests.get(index))), parallelism)
+                .doOnNext(result -> meterRegistry.counter("chat.batch.requests",
+                        "result", result.getError() == null ? "success" : "error").increment());
+    }
+
+    // One request, same steps as POST /api/chat; failures become an error result
+    private Mono<ChatBatchResult> processOne(int index, ChatRequest request) {
+        String invalid = validate(request);
+        String requestedId = request != null ? request.getConversationId() : null;
+        if (invalid != null) {
+            return Mono.just(ChatBatchResult.error(index, requestedId, invalid));
+        }
+
+        return resolveConversationId(requestedId)
+                .flatMap(conversationId -> offload(() -> conversationService.prepareTurn(conversationId, request.getMessage()))
+                        .flatMap(turn -> llmService.generateResponseAsync(turn.history(), request.getMessage()))
+                        .flatMap(aiResponseText -> offload(() -> conversationService.saveAiMessage(conversationId, aiResponseText)))
+                        .map(aiMessage -> toResult(index, conversationId, aiMessage)))
+                .onErrorResume(e -> Mono.just(ChatBatchResult.error(index, requestedId, Exceptions.unwrap(e).getMessage())));
+    }
+
+    // First violation of the ChatRequest constraints (same messages as POST /api/chat), null if valid
+    private String validate(ChatRequest request) {
+        if (request == null) {
+            return "Request cannot be empty";
+        }
+        Set<ConstraintViolation<ChatRequest>> violations = validator.validate(request);
+        return violations.isEmpty() ? null : violations.iterator().next().getMessage();
+    }
+
+    // Use the given conversation, or create one for the first message
+    private Mono<String> resolveConversationId(String conversationId) {
+        if (conversationId == null || conversationId.isBlank()) {
+            return offload(() -> conversationService.createConversation().getId().toString());
+        }
+        return Mono.just(conversationId);
+    }
+
+    private static ChatBatchResult toResult(int index, String conversationId, Message aiMessage) {
+        return new ChatBatchResult(index, conversationId, aiMessage.getId().toString(), aiMessage.getText(),
+                aiMessage.getSender().name().toLowerCase(), aiMessage.getCreatedAt(), null);
+    }
+
+    // Run blocking JPA work on the bounded scheduler, never on the caller's or the event loop's thread
+    private <T> Mono<T> offload(Callable<T> work) {
+        return Mono.fromCallable(work).subscribeOn(blockingScheduler);
+    }
+}
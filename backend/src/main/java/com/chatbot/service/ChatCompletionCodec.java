@@ -0,0 +1,249 @@
+package com.chatbot.service;
+
+import com.chatbot.dto.ChatTurn;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Allocation-light JSON codec for OpenAI-compatible chat completion calls (Groq, OpenAI).
+ * 
+ * Requests: the constant parts (model/max_tokens/temperature prefix, system role and
+ * guidelines, knowledge base sections) are JSON-escaped once and copied as bytes;
+ * only history, the conversation summary and the user message are escaped per call. The body is written into
+ * one exactly-sized byte[] - no JsonNode tree, no intermediate String.
+ * 
+ * Responses: a streaming parser picks out choices[0].message.content (or .delta.content
+ * for stream chunks) and the token usage, skipping everything else without building a tree.
+ */
+public final class ChatCompletionCodec {
+
+    private static final JsonStringEncoder ESCAPER = JsonStringEncoder.getInstance();
+
+    private static final byte[] SYSTEM_OPEN = utf8("\"messages\":[{\"role\":\"system\",\"content\":\"");
+    private static final byte[] USER_OPEN = utf8("\"},{\"role\":\"user\",\"content\":\"");
+    private static final byte[] ASSISTANT_OPEN = utf8("\"},{\"role\":\"assistant\",\"content\":\"");
+    private static final byte[] BODY_CLOSE = utf8("\"}]}");
+    static final String SUMMARY_HEADER = "\n=== EARLIER IN THIS CONVERSATION (summary) ===\n";
+    private static final byte[] SUMMARY_OPEN = escape(SUMMARY_HEADER);
+
+    private final JsonFactory jsonFactory;
+    private final int maxTokens;
+    private final double temperature;
+
+    // Pre-escaped system prompt pieces
+    private final byte[] systemRole;
+    private final byte[] noKnowledgeMatch;
+    private final byte[] systemGuidelines;
+
+    // {"model":"...","max_tokens":...,"temperature":...,["stream":true,] - one per model and stream flag
+    private final Map<String, byte[]> prefixes = new ConcurrentHashMap<>();
+
+    public ChatCompletionCodec(JsonFactory jsonFactory, int maxTokens, double temperature,
+                               String systemRole, String noKnowledgeMatch, String systemGuidelines) {
+        this.jsonFactory = jsonFactory;
+        this.maxTokens = maxTokens;
+        this.temperature = temperature;
+        this.systemRole = escape(systemRole);
+        this.noKnowledgeMatch = escape(noKnowledgeMatch);
+        this.systemGuidelines = escape(systemGuidelines);
+    }
+
+    // Encode request body: system prompt (role + sections + guidelines) + history + current user message
+    public byte[] encodeRequest(String model, boolean stream, List<KnowledgeBase.Section> sections,
+                                List<ChatTurn> history, String userMessage) {
+        return encodeRequest(model, stream, sections, null, history, userMessage);
+    }
+
+    // Same, with the summary of the conversation's older messages at the end of the system prompt (null: none)
+    public byte[] encodeRequest(String model, boolean stream, List<KnowledgeBase.Section> sections,
+                                String summary, List<ChatTurn> history, String userMessage) {
+        byte[] prefix = prefixes.computeIfAbsent(model + (stream ? "|stream" : ""), key -> encodePrefix(model, stream));
+
+        // Escape the per-request strings first so the body can be allocated at its exact size
+        byte[][] historyContent = new byte[history.size()][];
+        int size = prefix.length + SYSTEM_OPEN.length + systemRole.length + systemGuidelines.length
+                + (sections.isEmpty() ? noKnowledgeMatch.length : 0);
+        for (KnowledgeBase.Section section : sections) {
+            size += section.promptJson().length;
+        }
+        for (int i = 0; i < history.size(); i++) {
+            historyContent[i] = escape(history.get(i).text());
+            size += roleOpen(history.get(i)).length + historyContent[i].length;
+        }
+        byte[] summaryContent = summary != null ? escape(summary) : null;
+        if (summaryContent != null) {
+            size += SUMMARY_OPEN.length + summaryContent.length;
+        }
+        byte[] userContent = escape(userMessage);
+        size += USER_OPEN.length + userContent.length + BODY_CLOSE.length;
+
+        byte[] body = new byte[size];
+        int pos = put(body, 0, prefix);
+        pos = put(body, pos, SYSTEM_OPEN);
+        pos = put(body, pos, systemRole);
+        if (sections.isEmpty()) {
+            pos = put(body, pos, noKnowledgeMatch);
+        }
+        for (KnowledgeBase.Section section : sections) {
+            pos = put(body, pos, section.promptJson());
+        }
+        pos = put(body, pos, systemGuidelines);
+        if (summaryContent != null) {
+            pos = put(body, pos, SUMMARY_OPEN);
+            pos = put(body, pos, summaryContent);
+        }
+        for (int i = 0; i < history.size(); i++) {
+            pos = put(body, pos, roleOpen(history.get(i)));
+            pos = put(body, pos, historyContent[i]);
+        }
+        pos = put(body, pos, USER_OPEN);
+        pos = put(body, pos, userContent);
+        put(body, pos, BODY_CLOSE);
+        return body;
+    }
+
+    // Extract choices[0].message.content and token usage from a complete (non-streaming) response
+    public Completion parseCompletion(byte[] response) {
+        try (JsonParser parser = jsonFactory.createParser(response)) {
+            Completion completion = parse(parser, "message");
+            if (completion.content() == null) {
+                throw new IllegalStateException("No choices[0].message.content in AI response");
+            }
+            return completion;
+        } catch (IOException | RuntimeException e) {
+            throw new RuntimeException("Failed to parse AI response", e);
+        }
+    }
+
+    // Extract choices[0].delta.content (empty for role/finish chunks) and token usage (usually only
+    // on the last chunk) from one stream chunk
+    public Completion parseChunk(String chunk) {
+        try (JsonParser parser = jsonFactory.createParser(chunk)) {
+            Completion completion = parse(parser, "delta");
+            return completion.content() != null ? completion : new Completion("", completion.usage());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to parse AI stream chunk", e);
+        }
+    }
+
+    // Walk {"choices":[{"<container>":{"content":"..."}}], "usage":{...}}, skipping everything else
+    // Groq reports the usage of a stream in "x_groq":{"usage":{...}} instead
+    private static Completion parse(JsonParser parser, String container) throws IOException {
+        String content = null;
+        Usage usage = null;
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return new Completion(null, null);
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("choices".equals(field) && value == JsonToken.START_ARRAY) {
+                JsonToken element = parser.nextToken();
+                if (element == JsonToken.START_OBJECT) {
+                    content = findField(parser, container, "content");
+                    element = parser.nextToken();
+                }
+                // Other choices are not used
+                while (element != JsonToken.END_ARRAY) {
+                    parser.skipChildren();
+                    element = parser.nextToken();
+                }
+            } else if ("usage".equals(field) && value == JsonToken.START_OBJECT) {
+                usage = parseUsage(parser);
+            } else if ("x_groq".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    boolean isUsage = "usage".equals(parser.currentName());
+                    if (parser.nextToken() == JsonToken.START_OBJECT && isUsage) {
+                        usage = parseUsage(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new Completion(content, usage);
+    }
+
+    // Inside the current object: find <container> object, then its <field> string (null if absent or JSON null)
+    // Reads up to the end of the current object
+    private static String findField(JsonParser parser, String container, String field) throws IOException {
+        String found = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (container.equals(name) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String inner = parser.currentName();
+                    JsonToken innerValue = parser.nextToken();
+                    if (field.equals(inner) && innerValue == JsonToken.VALUE_STRING) {
+                        found = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return found;
+    }
+
+    // {"prompt_tokens":..,"completion_tokens":..,...}
+    private static Usage parseUsage(JsonParser parser) throws IOException {
+        int promptTokens = 0;
+        int completionTokens = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_NUMBER_INT && "prompt_tokens".equals(name)) {
+                promptTokens = parser.getIntValue();
+            } else if (value == JsonToken.VALUE_NUMBER_INT && "completion_tokens".equals(name)) {
+                completionTokens = parser.getIntValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new Usage(promptTokens, completionTokens);
+    }
+
+    /** Text of a response (or stream chunk) and its token usage (null when the provider didn't send it) */
+    public record Completion(String content, Usage usage) {}
+
+    /** Tokens billed for a call, from the provider's "usage" field */
+    public record Usage(int promptTokens, int completionTokens) {}
+
+    private static byte[] roleOpen(ChatTurn turn) {
+        return turn.isUser() ? USER_OPEN : ASSISTANT_OPEN;
+    }
+
+    private byte[] encodePrefix(String model, boolean stream) {
+        return utf8("{\"model\":\"" + new String(ESCAPER.quoteAsString(model)) + "\","
+                + "\"max_tokens\":" + maxTokens + ","
+                + "\"temperature\":" + temperature + ","
+                + (stream ? "\"stream\":true," : ""));
+    }
+
+    // JSON-escaped UTF-8 bytes of a string value, without the surrounding quotes
+    static byte[] escape(String text) {
+        return ESCAPER.quoteAsUTF8(text);
+    }
+
+    private static int put(byte[] target, int pos, byte[] source) {
+        System.arraycopy(source, 0, target, pos, source.length);
+        return pos + source.length;
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
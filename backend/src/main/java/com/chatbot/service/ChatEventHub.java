@@ -0,0 +1,61 @@
+package com.chatbot.service;
+
+import com.chatbot.dto.ChatStreamEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * In-process publish/subscribe of conversation events, for server push over the WebSocket
+ * channel: every saved AI message is published as a "done" event to the listeners of its
+ * conversation, whichever endpoint produced it (REST, stream, batch, async job, WebSocket).
+ *
+ * Listeners are called on the publishing thread and must not block.
+ * Per instance, like the history cache.
+ *
+ * A streamed reply's own listener already gets the done event from the stream: the stream's
+ * subscriber puts that listener in the Reactor context under ORIGIN, and it is skipped when
+ * the saved reply is published.
+ */
+@Component
+public class ChatEventHub {
+
+    // Reactor context key: the listener the streamed reply is delivered to directly
+    public static final String ORIGIN = ChatEventHub.class.getName() + ".origin";
+
+    private final Map<String, Set<Consumer<ChatStreamEvent>>> listeners = new ConcurrentHashMap<>();
+
+    // Listen to a conversation; run the returned action to stop listening
+    public Runnable subscribe(String conversationId, Consumer<ChatStreamEvent> listener) {
+        listeners.computeIfAbsent(conversationId, id -> ConcurrentHashMap.newKeySet()).add(listener);
+        return () -> listeners.computeIfPresent(conversationId, (id, set) -> {
+            set.remove(listener);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    // Deliver an event to the listeners of its conversation (a map lookup when there are none)
+    public void publish(ChatStreamEvent event) {
+        publish(event, null);
+    }
+
+    // Same, except to origin (the listener that produced the event itself, null: none)
+    public void publish(ChatStreamEvent event, Consumer<ChatStreamEvent> origin) {
+        Set<Consumer<ChatStreamEvent>> subscribers = listeners.get(event.getConversationId());
+        if (subscribers != null) {
+            subscribers.forEach(listener -> {
+                if (listener != origin) {
+                    listener.accept(event);
+                }
+            });
+        }
+    }
+
+    // Number of conversations somebody listens to
+    public int size() {
+        return listeners.size();
+    }
+}
@@ -0,0 +1,188 @@
+package com.chatbot.service;
+
+import com.chatbot.entity.Message;
+import com.chatbot.util.UuidV7;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous chat turns (POST /api/chat/async): the turn is queued and answered by a
+ * worker pool, the client fetches the reply later (long-poll on GET /api/chat/jobs/{id}).
+ * No HTTP request stays open for the whole LLM call, so proxies and mobile clients with
+ * short timeouts still get their answer.
+ *
+ * - Workers: chat.async.workers threads run ConversationService.sendMessage; at most
+ *   chat.async.queue-capacity turns wait for one, more are rejected (503)
+ * - Results are kept chat.async.result-ttl after the job finished, then dropped (404)
+ * - Jobs live in memory: they are per instance (like the history cache) and queued ones
+ *   are finished on a graceful shutdown, but lost on a crash
+ * - Metrics: chat.async.jobs{result=done|failed|rejected}, executor metrics of the pool
+ *   (executor.queued{name=chat.async}, executor.active, ...)
+ */
+@Service
+@Profile("!reactive")
+public class ChatJobService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatJobService.class);
+
+    private final ConversationService conversationService;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ChatJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${chat.async.workers:8}")
+    private int workers;
+
+    @Value("${chat.async.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${chat.async.result-ttl:10m}")
+    private Duration resultTtl;
+
+    private ExecutorService executor;
+    private volatile boolean running;
+
+    public ChatJobService(ConversationService conversationService, MeterRegistry meterRegistry) {
+        this.conversationService = conversationService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Queue a turn; returns the job right away (its result completes when the AI message is saved)
+    // Throws RejectedExecutionException when the queue is full or the app is shutting down
+    public ChatJob submit(String conversationId, String userMessageText) {
+        ChatJob job = new ChatJob(UuidV7.randomUuid().toString(), conversationId);
+        jobs.put(job.id(), job);
+        try {
+            executor.execute(() -> run(job, userMessageText));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id());
+            count("rejected");
+            throw new RejectedExecutionException("Too many chat requests queued, please retry shortly", e);
+        }
+        return job;
+    }
+
+    // A job that hasn't expired yet
+    public ChatJob getJob(String jobId) {
+        ChatJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new RuntimeException("Job not found: " + jobId);
+        }
+        return job;
+    }
+
+    private void run(ChatJob job, String userMessageText) {
+        try {
+            Message aiMessage = conversationService.sendMessage(job.conversationId(), userMessageText);
+            count("done");
+            job.complete(aiMessage);
+        } catch (RuntimeException e) {
+            count("failed");
+            log.warn("Chat job {} failed: {}", job.id(), e.getMessage());
+            job.fail(e);
+        }
+    }
+
+    // Drop results nobody fetched within result-ttl
+    @Scheduled(fixedDelayString = "${chat.async.sweep-interval:60000}")
+    void evictExpired() {
+        long cutoff = System.nanoTime() - resultTtl.toNanos();
+        jobs.values().removeIf(job -> job.isFinished() && job.finishedAt - cutoff < 0);
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("chat.async.jobs", "result", result).increment();
+    }
+
+    // ============================================
+    // LIFECYCLE (start with the app, finish queued jobs on shutdown)
+    // ============================================
+
+    @Override
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), task -> {
+                    Thread thread = new Thread(task, "chat-async-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "chat.async");
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Chat jobs still running after 30s, giving up on them");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stopped after the web server and before MessageWriter (phase 0), so replies of queued
+    // jobs are still saved
+    @Override
+    public int getPhase() {
+        return 1;
+    }
+
+    /** One queued chat turn and its outcome */
+    public static final class ChatJob {
+        private final String id;
+        private final String conversationId;
+        private final CompletableFuture<Message> result = new CompletableFuture<>();
+        private volatile long finishedAt;
+
+        ChatJob(String id, String conversationId) {
+            this.id = id;
+            this.conversationId = conversationId;
+        }
+
+        public String id() { return id; }
+        public String conversationId() { return conversationId; }
+
+        // Completes with the saved AI message, or exceptionally when the turn failed
+        public CompletableFuture<Message> result() { return result; }
+
+        public boolean isFinished() { return result.isDone(); }
+
+        void complete(Message aiMessage) {
+            finishedAt = System.nanoTime();
+            result.complete(aiMessage);
+        }
+
+        void fail(Throwable error) {
+            finishedAt = System.nanoTime();
+            result.completeExceptionally(error);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.chatbot.service;
+
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Circuit breaker for one AI provider, so an outage fails fast instead of every request
+ * waiting for the full timeout.
+ *
+ * - CLOSED: calls pass. The last window-size calls are kept; once there are at least
+ *   minimum-calls, the circuit opens when failure-rate-threshold % of them failed, or
+ *   slow-call-rate-threshold % took longer than slow-call-threshold
+ * - OPEN: calls are refused for open-duration
+ * - HALF_OPEN: half-open-calls trial calls pass; if they all succeed (and none is slow)
+ *   the circuit closes, otherwise it opens again
+ *
+ * Failures are server errors (5xx), timeouts and connection errors. Client errors
+ * (bad request, auth, 429 - handled by ConcurrencyLimiter) say nothing about an outage.
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** Thrown instead of calling a provider whose circuit is open */
+    public static final class OpenException extends RuntimeException {
+        OpenException(String message) {
+            super(message);
+        }
+    }
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    // Outcome ring of the CLOSED window: 0 = ok, 1 = failed, 2 = slow (ok but slow)
+    private final byte[] window;
+    private int next;
+    private int size;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private long halfOpenedAt;
+    private int trialsStarted;
+    private int trialsSucceeded;
+
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, double slowCallRateThreshold,
+                   Duration slowCallThreshold, Duration openDuration, int halfOpenCalls) {
+        this.window = new byte[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallThreshold.toNanos();
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    // Current state (an OPEN circuit whose open-duration is over reports HALF_OPEN)
+    public synchronized State state() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    // Whether a call could start now (doesn't reserve a half-open trial)
+    public synchronized boolean isCallPermitted() {
+        long now = System.nanoTime();
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> now - openedAt >= openNanos;
+            case HALF_OPEN -> trialsStarted < halfOpenCalls || now - halfOpenedAt >= openNanos;
+        };
+    }
+
+    // Reserve permission for one call; false = fail fast
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        // Also restarts trials that never reported back (e.g. cancelled while queued)
+        boolean trialsStuck = state == State.HALF_OPEN && now - halfOpenedAt >= openNanos;
+        if ((state == State.OPEN && now - openedAt >= openNanos) || trialsStuck) {
+            state = State.HALF_OPEN;
+            halfOpenedAt = now;
+            trialsStarted = 0;
+            trialsSucceeded = 0;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && trialsStarted < halfOpenCalls) {
+            trialsStarted++;
+            return true;
+        }
+        return false;
+    }
+
+    // Record a finished call
+    public synchronized void onResult(long durationNanos, Throwable error) {
+        boolean failed = error != null && isFailure(error);
+        if (error != null && !failed) {
+            onIgnored();
+            return;
+        }
+        boolean slow = !failed && durationNanos > slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            if (failed || slow) {
+                open();
+            } else if (++trialsSucceeded >= halfOpenCalls) {
+                close();
+            }
+            return;
+        }
+        if (state != State.CLOSED) {
+            return;
+        }
+        record((byte) (failed ? 1 : slow ? 2 : 0));
+        if (size >= minimumCalls
+                && (failures * 100.0 / size >= failureRateThreshold || slowCalls * 100.0 / size >= slowCallRateThreshold)) {
+            open();
+        }
+    }
+
+    // A permitted call ended without telling anything about the provider (cancelled, client error)
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && trialsStarted > trialsSucceeded) {
+            trialsStarted--;
+        }
+    }
+
+    private void record(byte outcome) {
+        if (size == window.length) {
+            byte evicted = window[next];
+            failures -= evicted == 1 ? 1 : 0;
+            slowCalls -= evicted == 2 ? 1 : 0;
+        } else {
+            size++;
+        }
+        window[next] = outcome;
+        failures += outcome == 1 ? 1 : 0;
+        slowCalls += outcome == 2 ? 1 : 0;
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        next = 0;
+        size = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    private static boolean isFailure(Throwable error) {
+        if (error instanceof WebClientResponseException responseError) {
+            return responseError.getStatusCode().is5xxServerError();
+        }
+        return error instanceof TimeoutException || error instanceof WebClientRequestException;
+    }
+}
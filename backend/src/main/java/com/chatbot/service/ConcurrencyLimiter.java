@@ -0,0 +1,355 @@
+package com.chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Adaptive limit on concurrent calls to one AI provider (AIMD), with a bounded wait queue.
+ *
+ * - The limit grows by 1/limit for every successful call (about +1 per round of calls)
+ *   and is halved when the provider pushes back (429 Too Many Requests or a timeout)
+ * - Rate-limit headers pause the provider: Retry-After on a 429, and
+ *   x-ratelimit-remaining-requests/-tokens = 0 until x-ratelimit-reset-requests/-tokens
+ * - Calls over the limit wait in a FIFO queue (queue-capacity) for at most max-wait,
+ *   so short bursts are smoothed instead of failing; beyond that they are rejected
+ *
+ * Metrics (tag provider): llm.limiter.limit, llm.limiter.in.flight, llm.limiter.queued,
+ * llm.limiter.queue.time, llm.limiter.rejected{reason=queue-full|timeout}
+ */
+public final class ConcurrencyLimiter {
+
+    // Longest pause taken from rate-limit headers (protects against odd header values)
+    private static final Duration MAX_PAUSE = Duration.ofMinutes(1);
+
+    // Go-style durations used by Groq/OpenAI reset headers: "1s", "6m0s", "2m59.56s", "150ms"
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    /** Thrown when a call can't be admitted: the queue is full or the wait took too long */
+    public static final class RejectedException extends RuntimeException {
+        RejectedException(String message) {
+            super(message);
+        }
+    }
+
+    private enum Outcome { SUCCESS, OVERLOAD, IGNORE }
+
+    private final String provider;
+    private final double minLimit;
+    private final double maxLimit;
+    private final int queueCapacity;
+    private final Duration maxWait;
+
+    private final Deque<Waiter> queue = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private long pausedUntilNanos = System.nanoTime();
+    private boolean drainScheduled;
+
+    private final Timer queueTime;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedTimeout;
+
+    ConcurrencyLimiter(String provider, int initialLimit, int minLimit, int maxLimit,
+                       int queueCapacity, Duration maxWait, MeterRegistry meterRegistry) {
+        this.provider = provider;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.queueCapacity = queueCapacity;
+        this.maxWait = maxWait;
+
+        this.queueTime = Timer.builder("llm.limiter.queue.time").tag("provider", provider).register(meterRegistry);
+        this.rejectedQueueFull = meterRegistry.counter("llm.limiter.rejected", "provider", provider, "reason", "queue-full");
+        this.rejectedTimeout = meterRegistry.counter("llm.limiter.rejected", "provider", provider, "reason", "timeout");
+        Gauge.builder("llm.limiter.limit", this, l -> l.snapshot()[0]).tag("provider", provider).register(meterRegistry);
+        Gauge.builder("llm.limiter.in.flight", this, l -> l.snapshot()[1]).tag("provider", provider).register(meterRegistry);
+        Gauge.builder("llm.limiter.queued", this, l -> l.snapshot()[2]).tag("provider", provider).register(meterRegistry);
+    }
+
+    // Run a call once admitted; the slot is freed when it ends (or is cancelled)
+    public <T> Mono<T> execute(Supplier<Mono<T>> call) {
+        return acquire().flatMap(permit -> call.get()
+                .doOnSuccess(value -> permit.release(Outcome.SUCCESS))
+                .doOnError(e -> permit.release(outcomeOf(e)))
+                .doOnCancel(() -> permit.release(Outcome.IGNORE)));
+    }
+
+    // Same for a streamed reply: the slot is held until the stream ends
+    public <T> Flux<T> executeMany(Supplier<Flux<T>> call) {
+        return acquire().flatMapMany(permit -> call.get()
+                .doOnComplete(() -> permit.release(Outcome.SUCCESS))
+                .doOnError(e -> permit.release(outcomeOf(e)))
+                .doOnCancel(() -> permit.release(Outcome.IGNORE)));
+    }
+
+    // Pause the provider as long as its rate-limit headers ask for
+    public void observe(HttpHeaders headers) {
+        Duration pause = pauseFrom(headers);
+        if (pause == null || pause.isZero() || pause.isNegative()) {
+            return;
+        }
+        synchronized (this) {
+            long until = System.nanoTime() + (pause.compareTo(MAX_PAUSE) > 0 ? MAX_PAUSE : pause).toNanos();
+            pausedUntilNanos = Math.max(pausedUntilNanos, until);
+        }
+    }
+
+    // Whether a 429 is worth retrying through the queue: the provider wants us back within max-wait
+    public boolean isRetryable(Throwable error) {
+        if (!(error instanceof WebClientResponseException.TooManyRequests tooManyRequests)) {
+            return false;
+        }
+        Duration retryAfter = retryAfter(tooManyRequests.getHeaders());
+        return retryAfter == null || retryAfter.compareTo(maxWait) <= 0;
+    }
+
+    // ============================================
+    // ADMISSION
+    // ============================================
+
+    private Mono<Permit> acquire() {
+        return Mono.create(sink -> {
+            Waiter waiter = null;
+            boolean startNow = false;
+            synchronized (this) {
+                if (queue.isEmpty() && canStart()) {
+                    inFlight++;
+                    startNow = true;
+                } else if (queue.size() < queueCapacity) {
+                    Waiter queued = new Waiter(sink);
+                    queue.addLast(queued);
+                    queued.timer = Schedulers.parallel().schedule(() -> expire(queued), maxWait.toNanos(), TimeUnit.NANOSECONDS);
+                    scheduleDrainIfPaused();
+                    waiter = queued;
+                }
+            }
+            // Signals are sent outside the lock: the call starts on this thread
+            if (startNow) {
+                queueTime.record(0, TimeUnit.NANOSECONDS);
+                sink.success(new Permit());
+                return;
+            }
+            if (waiter == null) {
+                rejectedQueueFull.increment();
+                sink.error(new RejectedException(provider + " request queue is full"));
+                return;
+            }
+            Waiter queued = waiter;
+            sink.onCancel(() -> {
+                if (queued.claim()) {
+                    remove(queued);
+                } else if (queued.permit() != null) {
+                    // Granted just as the caller went away (the grant and its permit are one step)
+                    queued.permit().release(Outcome.IGNORE);
+                }
+            });
+        });
+    }
+
+    private void expire(Waiter waiter) {
+        if (waiter.claim()) {
+            remove(waiter);
+            rejectedTimeout.increment();
+            waiter.sink.error(new RejectedException("Waited more than " + maxWait + " for a " + provider + " request slot"));
+        }
+    }
+
+    private synchronized void remove(Waiter waiter) {
+        queue.remove(waiter);
+        waiter.timer.dispose();
+    }
+
+    private boolean canStart() {
+        return inFlight < Math.floor(limit) && System.nanoTime() - pausedUntilNanos >= 0;
+    }
+
+    // Start queued calls while there is room; emitting happens outside the lock
+    private void drain() {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            drainScheduled = false;
+            while (!queue.isEmpty() && canStart()) {
+                Waiter waiter = queue.pollFirst();
+                if (!waiter.grant(new Permit())) {
+                    continue;
+                }
+                waiter.timer.dispose();
+                inFlight++;
+                granted.add(waiter);
+            }
+            scheduleDrainIfPaused();
+        }
+        for (Waiter waiter : granted) {
+            queueTime.record(System.nanoTime() - waiter.enqueuedAt, TimeUnit.NANOSECONDS);
+            waiter.sink.success(waiter.permit());
+        }
+    }
+
+    // Queued calls can't be started by a release while the provider is paused, so wake up when it ends
+    private void scheduleDrainIfPaused() {
+        long pause = pausedUntilNanos - System.nanoTime();
+        if (pause > 0 && !queue.isEmpty() && !drainScheduled) {
+            drainScheduled = true;
+            Schedulers.parallel().schedule(this::drain, pause, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void onRelease(Outcome outcome) {
+        synchronized (this) {
+            inFlight--;
+            if (outcome == Outcome.SUCCESS) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            } else if (outcome == Outcome.OVERLOAD) {
+                limit = Math.max(minLimit, limit / 2);
+            }
+        }
+        drain();
+    }
+
+    private Outcome outcomeOf(Throwable error) {
+        if (error instanceof WebClientResponseException responseError) {
+            observe(responseError.getHeaders());
+            return responseError instanceof WebClientResponseException.TooManyRequests
+                    ? Outcome.OVERLOAD : Outcome.IGNORE;
+        }
+        return error instanceof TimeoutException ? Outcome.OVERLOAD : Outcome.IGNORE;
+    }
+
+    private synchronized double[] snapshot() {
+        return new double[] {limit, inFlight, queue.size()};
+    }
+
+    // ============================================
+    // RATE-LIMIT HEADERS
+    // ============================================
+
+    private static Duration pauseFrom(HttpHeaders headers) {
+        Duration pause = retryAfter(headers);
+        if ("0".equals(headers.getFirst("x-ratelimit-remaining-requests"))) {
+            pause = longer(pause, parseDuration(headers.getFirst("x-ratelimit-reset-requests")));
+        }
+        if ("0".equals(headers.getFirst("x-ratelimit-remaining-tokens"))) {
+            pause = longer(pause, parseDuration(headers.getFirst("x-ratelimit-reset-tokens")));
+        }
+        return pause;
+    }
+
+    // Retry-After: seconds or an HTTP date
+    static Duration retryAfter(HttpHeaders headers) {
+        String value = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofMillis((long) (Double.parseDouble(value.trim()) * 1000));
+        } catch (NumberFormatException notSeconds) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Duration.between(ZonedDateTime.now(at.getZone()), at);
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+    }
+
+    static Duration parseDuration(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            // Plain number = seconds
+            return Duration.ofMillis((long) (Double.parseDouble(value.trim()) * 1000));
+        } catch (NumberFormatException e) {
+            double millis = 0;
+            Matcher matcher = DURATION_PART.matcher(value);
+            boolean found = false;
+            while (matcher.find()) {
+                found = true;
+                double amount = Double.parseDouble(matcher.group(1));
+                millis += switch (matcher.group(2)) {
+                    case "h" -> amount * 3_600_000;
+                    case "m" -> amount * 60_000;
+                    case "s" -> amount * 1000;
+                    default -> amount;
+                };
+            }
+            return found ? Duration.ofMillis((long) millis) : null;
+        }
+    }
+
+    private static Duration longer(Duration a, Duration b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.compareTo(b) >= 0 ? a : b;
+    }
+
+    // ============================================
+    // PERMITS AND WAITERS
+    // ============================================
+
+    /** A running call's slot; released exactly once */
+    private final class Permit {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        void release(Outcome outcome) {
+            if (released.compareAndSet(false, true)) {
+                onRelease(outcome);
+            }
+        }
+    }
+
+    /** A call waiting for a slot; claimed once, either by drain (granted a permit) or by timeout/cancel */
+    private static final class Waiter {
+        // State once claimed by a timeout or cancel (a granted waiter holds its Permit instead)
+        private static final Object CLAIMED = new Object();
+
+        final MonoSink<Permit> sink;
+        final long enqueuedAt = System.nanoTime();
+        final AtomicReference<Object> state = new AtomicReference<>();
+        volatile Disposable timer;
+
+        Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+
+        // Claim and hand over the permit in one step, so a cancel that loses always sees the permit
+        boolean grant(Permit permit) {
+            return state.compareAndSet(null, permit);
+        }
+
+        boolean claim() {
+            return state.compareAndSet(null, CLAIMED);
+        }
+
+        // The permit if granted, else null
+        Permit permit() {
+            return state.get() instanceof Permit permit ? permit : null;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.chatbot.service;
+
+import com.chatbot.dto.ChatHistory;
+import com.chatbot.dto.ChatTurn;
+import com.chatbot.dto.ConversationSummary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * In-memory cache of the most recent turns of active conversations.
+ * 
+ * Each conversation keeps a fixed-size ring of ChatTurn records (oldest first),
+ * kept warm by ConversationService as messages are saved, so a hot conversation
+ * needs no history query at all. On a miss the ring is loaded from the database.
+ * The conversation's rolling summary (ConversationSummarizer) is kept next to its ring.
+ * 
+ * - Size: chat.max-history-messages turns per conversation (LlmService sends as many as fit its token budget)
+ * - Eviction: idle for chat.history-cache.idle-ttl, or least recently used beyond max-conversations
+ * - Metrics: chat.history.cache{result=hit|miss}, chat.history.cache.size
+ * 
+ * The cache is per instance: it assumes each conversation is served by one instance
+ * at a time (sticky routing or a single instance, as on Render).
+ */
+@Component
+public class ConversationHistoryCache {
+
+    @Value("${chat.history-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.max-history-messages:10}")
+    private int turnsPerConversation;
+
+    @Value("${chat.history-cache.max-conversations:10000}")
+    private int maxConversations;
+
+    @Value("${chat.history-cache.idle-ttl:30m}")
+    private Duration idleTtl;
+
+    private final Map<String, HistoryRing> rings = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public ConversationHistoryCache(MeterRegistry meterRegistry) {
+        this.hits = meterRegistry.counter("chat.history.cache", "result", "hit");
+        this.misses = meterRegistry.counter("chat.history.cache", "result", "miss");
+        meterRegistry.gauge("chat.history.cache.size", rings, Map::size);
+    }
+
+    // Number of recent turns kept per conversation (and loaded on a miss)
+    public int turnsPerConversation() {
+        return turnsPerConversation;
+    }
+
+    // Summary and recent turns (oldest first) of a conversation; loader is called on a miss with the conversation ID
+    public ChatHistory history(String conversationId, Function<String, ChatHistory> loader) {
+        if (!enabled) {
+            return loader.apply(conversationId);
+        }
+        HistoryRing ring = rings.get(conversationId);
+        if (ring != null) {
+            hits.increment();
+            return ring.snapshot();
+        }
+        misses.increment();
+        // Loading inside computeIfAbsent makes concurrent appends for this conversation wait for it
+        ring = rings.computeIfAbsent(conversationId, id -> {
+            ChatHistory history = loader.apply(id);
+            HistoryRing loaded = new HistoryRing(turnsPerConversation);
+            history.turns().forEach(loaded::append);
+            loaded.summary = history.summary();
+            return loaded;
+        });
+        if (rings.size() > maxConversations) {
+            evictLeastRecentlyUsed();
+        }
+        return ring.snapshot();
+    }
+
+    // Add a saved message to a cached conversation (no-op if not cached - it will load on next use)
+    public void append(String conversationId, ChatTurn turn) {
+        rings.computeIfPresent(conversationId, (id, ring) -> {
+            ring.append(turn);
+            return ring;
+        });
+    }
+
+    // Cached history of a conversation without loading it (null if not cached or the cache is off)
+    public ChatHistory peek(String conversationId) {
+        HistoryRing ring = rings.get(conversationId);
+        return ring != null ? ring.snapshot() : null;
+    }
+
+    // Replace the summary of a cached conversation (no-op if not cached - it is loaded with the history)
+    public void updateSummary(String conversationId, ConversationSummary summary) {
+        HistoryRing ring = rings.get(conversationId);
+        if (ring != null) {
+            ring.summary = summary;
+        }
+    }
+
+    public void evict(String conversationId) {
+        rings.remove(conversationId);
+    }
+
+    // Drop conversations nobody used within idle-ttl
+    @Scheduled(fixedDelayString = "${chat.history-cache.sweep-interval:60000}")
+    void evictIdle() {
+        long cutoff = System.nanoTime() - idleTtl.toNanos();
+        rings.values().removeIf(ring -> ring.lastAccess - cutoff < 0);
+    }
+
+    // Over capacity: drop the least recently used 10% in one pass
+    // Sorts a snapshot of the access times: requests keep touching the rings meanwhile, and a sort
+    // key that changes under TimSort can make it throw
+    private void evictLeastRecentlyUsed() {
+        List<EvictionCandidate> candidates = new ArrayList<>(rings.size());
+        rings.forEach((id, ring) -> candidates.add(new EvictionCandidate(id, ring, ring.lastAccess)));
+        // nanoTime values are compared by their difference (they may wrap), as in evictIdle
+        candidates.sort((a, b) -> Long.signum(a.lastAccess() - b.lastAccess()));
+        int toEvict = Math.max(1, rings.size() - maxConversations + maxConversations / 10);
+        for (int i = 0; i < toEvict && i < candidates.size(); i++) {
+            rings.remove(candidates.get(i).conversationId(), candidates.get(i).ring());
+        }
+    }
+
+    private record EvictionCandidate(String conversationId, HistoryRing ring, long lastAccess) {}
+
+    /** Fixed-size ring buffer of turns, overwriting the oldest when full, plus the conversation summary */
+    private static final class HistoryRing {
+        private final ChatTurn[] turns;
+        private int start;
+        private int size;
+        private volatile ConversationSummary summary;
+        private volatile long lastAccess = System.nanoTime();
+
+        HistoryRing(int capacity) {
+            this.turns = new ChatTurn[Math.max(1, capacity)];
+        }
+
+        synchronized void append(ChatTurn turn) {
+            // Same message reported twice (loaded from DB and appended after commit) - keep one
+            for (int i = 0; i < size; i++) {
+                if (turns[(start + i) % turns.length].messageId().equals(turn.messageId())) {
+                    return;
+                }
+            }
+            if (size < turns.length) {
+                turns[(start + size) % turns.length] = turn;
+                size++;
+            } else {
+                turns[start] = turn;
+                start = (start + 1) % turns.length;
+            }
+            lastAccess = System.nanoTime();
+        }
+
+        synchronized ChatHistory snapshot() {
+            lastAccess = System.nanoTime();
+            ChatTurn[] copy = new ChatTurn[size];
+            for (int i = 0; i < size; i++) {
+                copy[i] = turns[(start + i) % turns.length];
+            }
+            return new ChatHistory(summary, List.of(copy));
+        }
+    }
+}
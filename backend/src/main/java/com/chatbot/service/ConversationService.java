@@ -1,21 +1,38 @@
 package com.chatbot.service;
 
+import com.chatbot.dto.ChatHistory;
+import com.chatbot.dto.ChatStreamEvent;
+import com.chatbot.dto.ChatTurn;
+import com.chatbot.dto.ConversationSummary;
+import com.chatbot.dto.MessageResponse;
 import com.chatbot.entity.Conversation;
 import com.chatbot.entity.Message;
 import com.chatbot.entity.MessageSender;
 import com.chatbot.repository.ConversationRepository;
 import com.chatbot.repository.MessageRepository;
+import com.chatbot.util.UuidV7;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
-import java.util.HashMap;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 /**
  * Service for managing conversations and messages
+ * 
+ * Metrics: chat.history.query (history cache miss: loading recent turns for the LLM context)
  */
 @Service
 public class ConversationService {
@@ -23,82 +40,237 @@ public class ConversationService {
     private final ConversationRepository conversationRepository;
     private final MessageRepository messageRepository;
     private final LlmService llmService;
+    private final Scheduler blockingScheduler;
+    private final ConversationHistoryCache historyCache;
+    private final MessageWriter messageWriter;
+    private final RetentionService retentionService;
+    private final ConversationSummarizer summarizer;
+    private final ChatEventHub eventHub;
+    private final Timer historyQueryTimer;
+
+    @Value("${chat.messages.page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${chat.messages.max-page-size:500}")
+    private int maxPageSize;
     
     public ConversationService(ConversationRepository conversationRepository, 
                              MessageRepository messageRepository, 
-                             LlmService llmService) {
+                             LlmService llmService,
+                             @Qualifier("blockingScheduler") Scheduler blockingScheduler,
+                             ConversationHistoryCache historyCache,
+                             MessageWriter messageWriter,
+                             RetentionService retentionService,
+                             ConversationSummarizer summarizer,
+                             ChatEventHub eventHub,
+                             MeterRegistry meterRegistry) {
         this.conversationRepository = conversationRepository;
         this.messageRepository = messageRepository;
         this.llmService = llmService;
+        this.blockingScheduler = blockingScheduler;
+        this.historyCache = historyCache;
+        this.messageWriter = messageWriter;
+        this.retentionService = retentionService;
+        this.summarizer = summarizer;
+        this.eventHub = eventHub;
+        this.historyQueryTimer = meterRegistry.timer("chat.history.query");
     }
 
     // Create a new conversation
     @Transactional
     public Conversation createConversation() {
         Conversation conversation = new Conversation();
-        conversation.setId(UUID.randomUUID().toString());
+        conversation.setId(UuidV7.randomUuid());
         return conversationRepository.save(conversation);
     }
 
     // Get conversation by ID
     public Conversation getConversation(String conversationId) {
-        return conversationRepository.findById(conversationId)
+        return conversationRepository.findById(toKey(conversationId))
                 .orElseThrow(() -> new RuntimeException("Conversation not found: " + conversationId));
     }
 
-    // Get all messages in a conversation (ordered by time)
-    public List<Message> getMessages(String conversationId) {
-        getConversation(conversationId);
-        return messageRepository.findByConversation_IdOrderByCreatedAtAsc(conversationId);
+    // Get one page of messages in a conversation, oldest first (DTO projection, no entities)
+    // - no cursor: the latest `limit` messages
+    // - before:    the `limit` messages right before that message (scrolling back in history)
+    // - after:     up to `limit` messages after that message (polling clients fetch only new ones)
+    // Keyset pagination: each page is one range scan of idx_conversation_created, however long the conversation
+    public List<MessageResponse> getMessages(String conversationId, String before, String after, Integer limit) {
+        if (before != null && after != null) {
+            throw new IllegalArgumentException("Use either 'before' or 'after', not both");
+        }
+        UUID key = toKey(conversationId);
+        Limit pageLimit = Limit.of(Math.max(1, Math.min(limit != null ? limit : defaultPageSize, maxPageSize)));
+
+        // 1. Messages after the cursor are already oldest first
+        if (after != null) {
+            UUID cursorId = toMessageKey(after);
+            return messageRepository.findPageAfter(key, cursorCreatedAt(key, cursorId), cursorId, pageLimit);
+        }
+
+        // 2. Pages ending at the cursor (or at the latest message) are read newest first
+        List<MessageResponse> newestFirst;
+        if (before != null) {
+            UUID cursorId = toMessageKey(before);
+            newestFirst = messageRepository.findPageBefore(key, cursorCreatedAt(key, cursorId), cursorId, pageLimit);
+        } else {
+            newestFirst = messageRepository.findLatestPage(key, pageLimit);
+            if (newestFirst.isEmpty()) {
+                // Only an empty result needs the extra query: new conversation or unknown ID (404)
+                getConversation(conversationId);
+            }
+        }
+        List<MessageResponse> chronological = new ArrayList<>(newestFirst);
+        Collections.reverse(chronological);
+        return chronological;
+    }
+
+    // A cursor must be a message of this conversation (also proves the conversation exists)
+    private LocalDateTime cursorCreatedAt(UUID conversationId, UUID messageId) {
+        return messageRepository.findCreatedAt(conversationId, messageId)
+                .orElseThrow(() -> new RuntimeException("Message not found: " + messageId));
     }
 
     // Send user message and get AI response
-    // Steps: save user msg -> get history -> call AI -> save AI msg -> return
-    @Transactional
+    // Steps: get history (cache) + save user msg (tx) -> call AI (no tx) -> save AI msg (tx) -> return
+    // No transaction or DB connection is held while waiting for the AI provider, so slow
+    // LLM calls can't starve the connection pool. The user message stays committed even if
+    // the AI call fails, just like an unanswered message in any chat app.
     public Message sendMessage(String conversationId, String userMessageText) {
-        // 1. Verify conversation exists
-        Conversation conversation = getConversation(conversationId);
-
-        // 2. Save user message
-        Message userMessage = new Message();
-        userMessage.setId(UUID.randomUUID().toString());
-        userMessage.setConversation(conversation);
-        userMessage.setSender(MessageSender.user);
-        userMessage.setText(userMessageText);
-        messageRepository.save(userMessage);
-
-        // 3. Get conversation history (last 10 messages for context)
-        List<Message> history = messageRepository.findTop10ByConversation_IdOrderByCreatedAtDesc(conversationId);
-        
-        // Convert to format expected by LLM service
-        List<Map<String, String>> historyForLlm = history.stream()
-                .map(msg -> {
-                    Map<String, String> map = new HashMap<>();
-                    map.put("sender", msg.getSender().name().toLowerCase());
-                    map.put("text", msg.getText());
-                    return map;
-                })
-                .collect(Collectors.toList());
-
-        // 4. Generate AI response
-        String aiResponseText = llmService.generateResponse(historyForLlm, userMessageText);
-
-        // 5. Save AI response
-        Message aiMessage = new Message();
-        aiMessage.setId(UUID.randomUUID().toString());
-        aiMessage.setConversation(conversation);
-        aiMessage.setSender(MessageSender.ai);
-        aiMessage.setText(aiResponseText);
-        messageRepository.save(aiMessage);
-
-        // 6. Return AI message
-        return aiMessage;
+        // 1-2. Get history and save user message (short transactions)
+        PreparedTurn turn = prepareTurn(conversationId, userMessageText);
+
+        // 3. Generate AI response (no transaction open)
+        String aiResponseText = llmService.generateResponse(turn.history(), userMessageText);
+
+        // 4-5. Save AI response (short transaction) and return it
+        return saveAiMessage(conversationId, aiResponseText);
+    }
+
+    // Send user message and stream the AI response token by token
+    // Steps: get history (cache) + save user msg (tx) -> stream AI tokens -> save full AI msg (tx) -> emit "done"
+    // The AI message is only saved when the stream completes (a client disconnect cancels it); a reply
+    // the provider broke off ends with an "error" event instead and is not saved
+    public Flux<ChatStreamEvent> streamMessage(String conversationId, String userMessageText) {
+        return streamReply(prepareTurn(conversationId, userMessageText), userMessageText);
+    }
+
+    // Same, with phase 1 (history + saving the user message) on the blocking scheduler once subscribed,
+    // for callers that must not block (WebSocket frames); cancelling the stream drops the AI reply
+    public Flux<ChatStreamEvent> streamMessageOffloaded(String conversationId, String userMessageText) {
+        return Mono.fromCallable(() -> prepareTurn(conversationId, userMessageText))
+                .subscribeOn(blockingScheduler)
+                .flatMapMany(turn -> streamReply(turn, userMessageText));
+    }
+
+    // Phase 2 + 3 of a streamed turn: stream AI tokens, then save the full reply
+    // (an incomplete reply is not saved: the user message stays unanswered, as when sendMessage fails)
+    Flux<ChatStreamEvent> streamReply(PreparedTurn turn, String userMessageText) {
+        String conversationId = turn.conversationId();
+        return Flux.defer(() -> {
+            StringBuilder fullText = new StringBuilder();
+            
+            Flux<ChatStreamEvent> tokens = llmService.streamResponse(turn.history(), userMessageText)
+                    .doOnNext(fullText::append)
+                    .map(token -> ChatStreamEvent.token(conversationId, token));
+            
+            // Save AI response off the network thread once the provider stream has ended
+            // (not pushed back to the subscriber's own hub listener, ChatEventHub.ORIGIN - it gets this done event)
+            Mono<ChatStreamEvent> done = Mono.deferContextual(context -> Mono.fromCallable(() -> saveAiMessage(
+                            conversationId, fullText.toString(), context.getOrDefault(ChatEventHub.ORIGIN, null))))
+                    .subscribeOn(blockingScheduler)
+                    .map(aiMessage -> new ChatStreamEvent(ChatStreamEvent.DONE, conversationId,
+                            aiMessage.getId().toString(), aiMessage.getText(), aiMessage.getCreatedAt()));
+            
+            return tokens.concatWith(done)
+                    .onErrorResume(LlmService.StreamInterruptedException.class, e -> Mono.just(
+                            new ChatStreamEvent(ChatStreamEvent.ERROR, conversationId, null, e.getMessage(), null)));
+        });
+    }
+
+    // Phase 1: get history (history cache, DB on a miss), then save user message - short transactions
+    // History is taken before the user message is saved, so it holds only the previous turns
+    PreparedTurn prepareTurn(String conversationId, String userMessageText) {
+        // 1. Get summary and recent history (a cached conversation is known to exist, no query needed)
+        ChatHistory history = historyCache.history(conversationId, this::loadHistory);
+
+        // 2. Save user message (queued instead when write-behind is on)
+        Message userMessage = messageWriter.write(conversationId, newMessage(MessageSender.user, userMessageText));
+        historyCache.append(conversationId, toTurn(userMessage));
+
+        return new PreparedTurn(conversationId, history);
+    }
+
+    // Phase 3: save AI response - one short transaction (or queued), no entity state carried over from phase 1
+    // It is pushed to WebSocket subscribers of the conversation, and a long conversation then gets
+    // its older turns summarized in the background
+    Message saveAiMessage(String conversationId, String aiResponseText) {
+        return saveAiMessage(conversationId, aiResponseText, null);
+    }
+
+    // Same, not pushed to origin (the hub listener of the stream that produced it, null: none)
+    private Message saveAiMessage(String conversationId, String aiResponseText, Consumer<ChatStreamEvent> origin) {
+        Message saved = messageWriter.write(conversationId, newMessage(MessageSender.ai, aiResponseText));
+        historyCache.append(conversationId, toTurn(saved));
+        eventHub.publish(new ChatStreamEvent(ChatStreamEvent.DONE, conversationId,
+                saved.getId().toString(), saved.getText(), saved.getCreatedAt()), origin);
+        summarizer.summarizeIfDue(conversationId);
+        return saved;
+    }
+
+    // History cache miss: load the summary (also proves the conversation exists) and recent turns, oldest first
+    private ChatHistory loadHistory(String conversationId) {
+        return historyQueryTimer.record(() -> {
+            UUID key = toKey(conversationId);
+            ConversationSummary summary = conversationRepository.findSummary(key)
+                    .orElseThrow(() -> new RuntimeException("Conversation not found: " + conversationId));
+            List<ChatTurn> chronological = new ArrayList<>(
+                    messageRepository.findRecentTurns(key, Limit.of(historyCache.turnsPerConversation())));
+            Collections.reverse(chronological);
+            return new ChatHistory(summary.throughId() != null ? summary : null, chronological);
+        });
+    }
+
+    // ID and time are set here, not on insert, so a queued message keeps its real order
+    private static Message newMessage(MessageSender sender, String text) {
+        Message message = new Message();
+        message.setId(UuidV7.randomUuid());
+        message.setSender(sender);
+        message.setText(text);
+        message.setCreatedAt(LocalDateTime.now());
+        return message;
+    }
+
+    private static ChatTurn toTurn(Message message) {
+        return new ChatTurn(message.getId(), message.getSender(), message.getText());
+    }
+
+    // Conversation IDs are text in the API and UUIDs in the database
+    // Anything that isn't a UUID can't name a conversation, so it is reported as not found (404)
+    private static UUID toKey(String conversationId) {
+        return parseId(conversationId, "Conversation");
+    }
+
+    private static UUID toMessageKey(String messageId) {
+        return parseId(messageId, "Message");
+    }
+
+    private static UUID parseId(String id, String entityName) {
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException(entityName + " not found: " + id);
+        }
     }
 
     // Delete conversation and all its messages
-    @Transactional
+    // Bulk deletes in chunks (RetentionService), so a long conversation isn't loaded and removed row by row
     public void deleteConversation(String conversationId) {
         getConversation(conversationId);
-        conversationRepository.deleteById(conversationId);
+        retentionService.deleteConversation(toKey(conversationId));
+        historyCache.evict(conversationId);
     }
+
+    // Result of phase 1: the conversation and its summary and previous turns (oldest first) to send to the LLM
+    record PreparedTurn(String conversationId, ChatHistory history) {}
 }
@@ -0,0 +1,191 @@
+package com.chatbot.service;
+
+import com.chatbot.dto.ChatHistory;
+import com.chatbot.dto.ChatTurn;
+import com.chatbot.dto.ConversationSummary;
+import com.chatbot.dto.MessageResponse;
+import com.chatbot.repository.ConversationRepository;
+import com.chatbot.repository.MessageRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolling conversation summaries, so long chats keep a flat prompt size.
+ *
+ * Once more than chat.summary.trigger-messages messages of a conversation are not covered
+ * by its summary, the older ones (all but the chat.summary.keep-recent newest) are folded
+ * into the summary by one LLM call, in the background after a reply was saved. The summary
+ * is stored on the conversation and sent to the LLM instead of those messages (LlmService).
+ *
+ * - One run per conversation at a time; a run folds at most chat.summary.max-input-tokens of messages
+ * - The summary is replaced with a compare-and-set on its last message, so a concurrent run
+ *   (another instance) can't move it backwards
+ * - Failures are only counted: the next reply tries again, the raw turns are sent meanwhile
+ * - Metrics: chat.summary.runs{result=updated|conflict|skipped|failed}, chat.summary.duration,
+ *   chat.summary.folded (messages folded per update)
+ */
+@Service
+public class ConversationSummarizer {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationSummarizer.class);
+
+    private final ConversationRepository conversationRepository;
+    private final MessageRepository messageRepository;
+    private final ConversationHistoryCache historyCache;
+    private final LlmService llmService;
+    private final LlmRouter router;
+    private final TokenCounter tokenCounter;
+    private final Scheduler blockingScheduler;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Timer duration;
+    private final DistributionSummary folded;
+
+    // Conversations with a run in progress
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    @Value("${chat.summary.enabled:true}")
+    private boolean enabled;
+
+    // Summarize once more messages than this are not covered by the summary
+    // (keep it below chat.max-history-messages: only cached turns are checked)
+    @Value("${chat.summary.trigger-messages:16}")
+    private int triggerMessages;
+
+    // Newest messages always sent as they are
+    @Value("${chat.summary.keep-recent:8}")
+    private int keepRecent;
+
+    // Messages folded in by one run, at most (the rest waits for the next run)
+    @Value("${chat.summary.max-input-tokens:2000}")
+    private int maxInputTokens;
+
+    public ConversationSummarizer(ConversationRepository conversationRepository,
+                                  MessageRepository messageRepository,
+                                  ConversationHistoryCache historyCache,
+                                  LlmService llmService,
+                                  LlmRouter router,
+                                  TokenCounter tokenCounter,
+                                  @Qualifier("blockingScheduler") Scheduler blockingScheduler,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry) {
+        this.conversationRepository = conversationRepository;
+        this.messageRepository = messageRepository;
+        this.historyCache = historyCache;
+        this.llmService = llmService;
+        this.router = router;
+        this.tokenCounter = tokenCounter;
+        this.blockingScheduler = blockingScheduler;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.duration = meterRegistry.timer("chat.summary.duration");
+        this.folded = meterRegistry.summary("chat.summary.folded");
+    }
+
+    // Called after a message was saved: start a background run when the conversation is due
+    // Only looks at the history cache - no query unless a run starts
+    public void summarizeIfDue(String conversationId) {
+        if (!enabled) {
+            return;
+        }
+        ChatHistory history = historyCache.peek(conversationId);
+        if (history == null || history.unsummarizedTurns().size() <= triggerMessages) {
+            return;
+        }
+        if (!running.add(conversationId)) {
+            return;
+        }
+        long start = System.nanoTime();
+        Mono.fromCallable(() -> nextBatch(UUID.fromString(conversationId)))
+                .subscribeOn(blockingScheduler)
+                .flatMap(batch -> llmService.summarize(batch.previous().text(), batch.turns())
+                        .publishOn(blockingScheduler)
+                        .map(text -> save(conversationId, batch, text)))
+                .defaultIfEmpty("skipped")
+                .onErrorResume(e -> {
+                    log.warn("Summarizing conversation {} failed: {}", conversationId, e.toString());
+                    return Mono.just("failed");
+                })
+                .doFinally(signal -> {
+                    running.remove(conversationId);
+                    duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                })
+                .subscribe(result -> meterRegistry.counter("chat.summary.runs", "result", result).increment());
+    }
+
+    // Messages to fold in: the oldest ones after the summary, leaving the keep-recent newest out
+    // Empty when too few (already summarized by another run, or not saved yet in write-behind mode)
+    private Batch nextBatch(UUID conversationId) {
+        // 1. Current summary, straight from the database
+        ConversationSummary previous = conversationRepository.findSummary(conversationId).orElse(null);
+        if (previous == null) {
+            return null;
+        }
+
+        // 2. Unsummarized messages, oldest first (a page that still leaves the keep-recent newest when folded)
+        Limit limit = Limit.of(triggerMessages + keepRecent + 1);
+        List<MessageResponse> messages = previous.throughId() == null
+                ? messageRepository.findFirstPage(conversationId, limit)
+                : messageRepository.findPageAfter(conversationId, previous.throughAt(),
+                        UUID.fromString(previous.throughId()), limit);
+        int foldable = messages.size() - keepRecent;
+        if (messages.size() <= triggerMessages || foldable <= 0) {
+            return null;
+        }
+
+        // 3. As many as fit the input budget (at least one, so a long message can't stall the summary)
+        String model = router.primary().model();
+        int tokens = previous.text() != null ? tokenCounter.count(model, previous.text()) : 0;
+        int count = 0;
+        while (count < foldable) {
+            tokens += tokenCounter.countMessage(model, messages.get(count).getText());
+            if (count > 0 && tokens > maxInputTokens) {
+                break;
+            }
+            count++;
+        }
+        List<ChatTurn> turns = messages.subList(0, count).stream()
+                .map(message -> new ChatTurn(message.getId(), message.getSender(), message.getText()))
+                .toList();
+        return new Batch(previous, turns, messages.get(count - 1));
+    }
+
+    // Store the new summary unless another run moved it meanwhile, then update the cached history
+    private String save(String conversationId, Batch batch, String text) {
+        UUID key = UUID.fromString(conversationId);
+        UUID throughId = UUID.fromString(batch.last().getId());
+        ConversationSummary previous = batch.previous();
+        Integer updated = transactionTemplate.execute(status -> previous.throughId() == null
+                ? conversationRepository.insertSummary(key, text, throughId, batch.last().getTimestamp())
+                : conversationRepository.updateSummary(key, text, throughId, batch.last().getTimestamp(),
+                        UUID.fromString(previous.throughId())));
+        if (updated == null || updated == 0) {
+            return "conflict";
+        }
+        historyCache.updateSummary(conversationId, new ConversationSummary(text, throughId.toString(),
+                batch.last().getTimestamp()));
+        folded.record(batch.turns().size());
+        log.debug("Conversation {}: summary now covers {} more messages", conversationId, batch.turns().size());
+        return "updated";
+    }
+
+    // One run's input: the summary it started from, the messages to fold in and the last of them
+    private record Batch(ConversationSummary previous, List<ChatTurn> turns, MessageResponse last) {}
+}
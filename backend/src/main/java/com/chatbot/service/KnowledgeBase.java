@@ -0,0 +1,172 @@
+package com.chatbot.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Store knowledge base (FAQ) used to ground AI answers.
+ * 
+ * - Loaded from llm.knowledge-base.location (markdown, one "## " section per topic)
+ * - Indexed with BM25 so only the top-k relevant sections go into each prompt
+ * - Hot-reloaded when the file changes on disk (checked every reload-interval ms)
+ */
+@Component
+public class KnowledgeBase {
+
+    private static final Logger log = LoggerFactory.getLogger(KnowledgeBase.class);
+
+    @Value("${llm.knowledge-base.location:classpath:knowledge-base.md}")
+    private String location;
+
+    @Value("${llm.knowledge-base.top-k:3}")
+    private int topK;
+
+    private final ResourceLoader resourceLoader;
+
+    // Replaced as a whole on reload, so readers always see a consistent sections + index pair
+    private volatile Snapshot snapshot;
+    private volatile long lastModified;
+
+    public KnowledgeBase(ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    @PostConstruct
+    void load() throws IOException {
+        Resource resource = resourceLoader.getResource(location);
+        this.lastModified = lastModified(resource);
+        this.snapshot = parse(read(resource));
+        log.info("Loaded knowledge base from {} ({} sections)", location, snapshot.sections.size());
+    }
+
+    // Reload when the file has changed; a broken file keeps the previous version in use
+    @Scheduled(fixedDelayString = "${llm.knowledge-base.reload-interval:30000}")
+    void reloadIfChanged() {
+        Resource resource = resourceLoader.getResource(location);
+        long modified = lastModified(resource);
+        if (modified == lastModified) {
+            return;
+        }
+        try {
+            this.snapshot = parse(read(resource));
+            this.lastModified = modified;
+            log.info("Reloaded knowledge base from {} ({} sections)", location, snapshot.sections.size());
+        } catch (Exception e) {
+            log.warn("Knowledge base reload failed, keeping previous version: {}", e.getMessage());
+        }
+    }
+
+    // Top-k sections relevant to the query, best match first (empty if nothing matches)
+    public List<Section> search(String query) {
+        Snapshot current = snapshot;
+        List<Section> result = new ArrayList<>();
+        for (int index : current.index.search(query, topK)) {
+            result.add(current.sections.get(index));
+        }
+        return result;
+    }
+
+    public List<Section> sections() {
+        return snapshot.sections;
+    }
+
+    // Changes whenever the knowledge base content changes (used in answer cache keys)
+    public String fingerprint() {
+        return snapshot.fingerprint;
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.isFile() ? resource.lastModified() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static String read(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // Split markdown into "## Title" sections; lines starting with a single "#" are comments
+    static Snapshot parse(String markdown) {
+        List<Section> sections = new ArrayList<>();
+        String title = null;
+        StringBuilder body = new StringBuilder();
+        for (String line : markdown.split("\\R")) {
+            if (line.startsWith("## ")) {
+                if (title != null) {
+                    sections.add(new Section(title, body.toString().strip()));
+                }
+                title = line.substring(3).strip();
+                body.setLength(0);
+            } else if (title != null && !line.startsWith("#")) {
+                body.append(line).append('\n');
+            }
+        }
+        if (title != null) {
+            sections.add(new Section(title, body.toString().strip()));
+        }
+        if (sections.isEmpty()) {
+            throw new IllegalStateException("Knowledge base has no '## ' sections");
+        }
+
+        List<String> documents = new ArrayList<>();
+        for (Section section : sections) {
+            // Title words count twice - they describe the whole section
+            documents.add(section.title() + " " + section.title() + "\n" + section.body());
+        }
+        return new Snapshot(List.copyOf(sections), new Bm25Index(documents), sha256(markdown));
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** One knowledge base topic, rendered into the prompt as "**Title:**" followed by the body */
+    public static final class Section {
+        private final String title;
+        private final String body;
+        private final byte[] promptJson;
+
+        public Section(String title, String body) {
+            this.title = title;
+            this.body = body;
+            // Escaped once here, copied as-is into every request that uses this section
+            this.promptJson = ChatCompletionCodec.escape(toPromptText() + "\n");
+        }
+
+        public String title() { return title; }
+        public String body() { return body; }
+
+        public String toPromptText() {
+            return "**" + title + ":**\n" + body + "\n";
+        }
+
+        // JSON-escaped UTF-8 prompt text (plus separating blank line), without quotes
+        byte[] promptJson() { return promptJson; }
+    }
+
+    record Snapshot(List<Section> sections, Bm25Index index, String fingerprint) {}
+}
@@ -0,0 +1,46 @@
+package com.chatbot.service;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Circuit breaker state of each AI provider on /actuator/health (component "llm").
+ *
+ * UP while at least one provider accepts calls, DEGRADED when every circuit is open
+ * (chat still answers from the cache / knowledge base, HTTP status stays 200).
+ */
+@Component("llm")
+public class LlmHealthIndicator implements HealthIndicator {
+
+    public static final Status DEGRADED = new Status("DEGRADED", "All AI provider circuits are open");
+
+    private final LlmRouter router;
+
+    public LlmHealthIndicator(LlmRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public Health health() {
+        Map<String, String> circuits = circuitStates(router);
+        boolean anyAvailable = router.providers().stream()
+                .anyMatch(provider -> provider.circuitBreaker().isCallPermitted());
+        return Health.status(anyAvailable ? Status.UP : DEGRADED)
+                .withDetail("circuits", circuits)
+                .build();
+    }
+
+    // Provider name -> CLOSED / OPEN / HALF_OPEN
+    public static Map<String, String> circuitStates(LlmRouter router) {
+        Map<String, String> circuits = new LinkedHashMap<>();
+        for (LlmProvider provider : router.providers()) {
+            circuits.put(provider.name(), provider.circuitBreaker().state().name());
+        }
+        return circuits;
+    }
+}
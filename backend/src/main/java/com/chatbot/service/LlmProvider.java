@@ -0,0 +1,127 @@
+package com.chatbot.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * One configured AI provider (Groq, OpenAI, ...) and its recent call statistics.
+ *
+ * Groq and OpenAI share the OpenAI chat completions API, so a provider is just
+ * a base URL, model and API key. Gemini has no base URL yet and can't be called.
+ *
+ * Calls are admitted through the provider's own CircuitBreaker and ConcurrencyLimiter.
+ *
+ * Statistics cover the last window-size calls that finished within window-time;
+ * older outcomes are ignored, so a provider that recovered is not held back forever.
+ */
+public final class LlmProvider {
+
+    private final String name;
+    private final String baseUrl;
+    private final String model;
+    private final String apiKey;
+    private final Stats stats;
+    private final ConcurrencyLimiter limiter;
+    private final CircuitBreaker circuitBreaker;
+
+    LlmProvider(String name, String baseUrl, String model, String apiKey, int windowSize, Duration windowTime,
+                ConcurrencyLimiter limiter, CircuitBreaker circuitBreaker) {
+        this.name = name;
+        this.baseUrl = baseUrl;
+        this.model = model;
+        this.apiKey = apiKey;
+        this.stats = new Stats(windowSize, windowTime.toNanos());
+        this.limiter = limiter;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public String name() { return name; }
+    public String baseUrl() { return baseUrl; }
+    public String model() { return model; }
+    public String apiKey() { return apiKey; }
+    public ConcurrencyLimiter limiter() { return limiter; }
+    public CircuitBreaker circuitBreaker() { return circuitBreaker; }
+    Stats stats() { return stats; }
+
+    // Whether requests can be sent (providers without an OpenAI-compatible API are not supported yet)
+    public boolean isCallable() {
+        return baseUrl != null && !baseUrl.isBlank();
+    }
+
+    @Override
+    public String toString() {
+        return name + "(" + model + ")";
+    }
+
+    /**
+     * Ring buffer of recent call outcomes: latency (nanos) and success/failure.
+     */
+    static final class Stats {
+
+        private final long[] latencies;
+        private final long[] finishedAt;
+        private final boolean[] failed;
+        private final long windowNanos;
+        private int next;
+        private int size;
+
+        Stats(int windowSize, long windowNanos) {
+            this.latencies = new long[windowSize];
+            this.finishedAt = new long[windowSize];
+            this.failed = new boolean[windowSize];
+            this.windowNanos = windowNanos;
+        }
+
+        synchronized void record(long latencyNanos, boolean failure) {
+            latencies[next] = latencyNanos;
+            finishedAt[next] = System.nanoTime();
+            failed[next] = failure;
+            next = (next + 1) % latencies.length;
+            size = Math.min(size + 1, latencies.length);
+        }
+
+        // Outcomes still inside the time window
+        synchronized Snapshot snapshot() {
+            long now = System.nanoTime();
+            long[] successLatencies = new long[size];
+            int successes = 0;
+            int failures = 0;
+            for (int i = 0; i < size; i++) {
+                if (now - finishedAt[i] > windowNanos) {
+                    continue;
+                }
+                if (failed[i]) {
+                    failures++;
+                } else {
+                    successLatencies[successes++] = latencies[i];
+                }
+            }
+            long[] sorted = Arrays.copyOf(successLatencies, successes);
+            Arrays.sort(sorted);
+            return new Snapshot(sorted, failures);
+        }
+    }
+
+    /**
+     * Recent outcomes of a provider: sorted latencies of successful calls and the failure count.
+     */
+    record Snapshot(long[] sortedLatencies, int failures) {
+
+        int calls() {
+            return sortedLatencies.length + failures;
+        }
+
+        double errorRate() {
+            return calls() == 0 ? 0 : (double) failures / calls();
+        }
+
+        // Latency percentile (0-1) of successful calls, null when there are none
+        Duration percentile(double p) {
+            if (sortedLatencies.length == 0) {
+                return null;
+            }
+            int index = (int) Math.ceil(p * sortedLatencies.length) - 1;
+            return Duration.ofNanos(sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))]);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of AI answers to first-turn questions (shipping, returns, COD...).
+ * 
+ * - Key: normalized question + fingerprint of the prompt setup (system prompt, model)
+ * - Eviction: least recently used entry once max-entries is reached, and entries expire after ttl
+ * - Metrics: llm.cache.requests{result=hit|miss}, llm.cache.evictions{cause=size|expired}, llm.cache.size
+ * 
+ * Only answers that don't depend on conversation history may be stored (see LlmService).
+ */
+@Component
+public class LlmResponseCache {
+
+    @Value("${llm.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${llm.cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${llm.cache.ttl:6h}")
+    private Duration ttl;
+
+    // Access-ordered map = LRU order, guarded by "this"
+    private final LinkedHashMap<String, CachedAnswer> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+
+    public LlmResponseCache(MeterRegistry meterRegistry) {
+        this.hits = meterRegistry.counter("llm.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("llm.cache.requests", "result", "miss");
+        this.sizeEvictions = meterRegistry.counter("llm.cache.evictions", "cause", "size");
+        this.expiredEvictions = meterRegistry.counter("llm.cache.evictions", "cause", "expired");
+        meterRegistry.gauge("llm.cache.size", this, LlmResponseCache::size);
+    }
+
+    // Build cache key: "<fingerprint>:<normalized question>"
+    public String key(String question, String promptFingerprint) {
+        return promptFingerprint + ":" + normalize(question);
+    }
+
+    // Get cached answer, or null on miss / expired / cache disabled
+    public synchronized String get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        CachedAnswer answer = entries.get(key);
+        if (answer != null && answer.isExpired()) {
+            entries.remove(key);
+            expiredEvictions.increment();
+            answer = null;
+        }
+        if (answer == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return answer.text;
+    }
+
+    // Store answer, evicting expired entries first and then the least recently used ones
+    public synchronized void put(String key, String text) {
+        if (!enabled || maxEntries <= 0) {
+            return;
+        }
+        entries.put(key, new CachedAnswer(text, System.nanoTime() + ttl.toNanos()));
+        if (entries.size() > maxEntries) {
+            removeExpired();
+        }
+        Iterator<CachedAnswer> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            sizeEvictions.increment();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void removeExpired() {
+        Iterator<Map.Entry<String, CachedAnswer>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getValue().isExpired()) {
+                it.remove();
+                expiredEvictions.increment();
+            }
+        }
+    }
+
+    // "What's the Return policy??" and "whats the return policy" map to the same key
+    static String normalize(String question) {
+        StringBuilder sb = new StringBuilder(question.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < question.length(); i++) {
+            char c = question.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                pendingSpace = false;
+                sb.append(Character.toLowerCase(c));
+            } else if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+            }
+            // Punctuation is dropped without splitting words ("what's" -> "whats")
+        }
+        return sb.toString();
+    }
+
+    private static final class CachedAnswer {
+        final String text;
+        final long expiresAtNanos;
+
+        CachedAnswer(String text, long expiresAtNanos) {
+            this.text = text;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos > 0;
+        }
+    }
+}
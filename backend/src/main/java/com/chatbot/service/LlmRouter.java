@@ -0,0 +1,370 @@
+package com.chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Chooses which AI provider answers a request, based on live latency and error statistics.
+ *
+ * - Providers: llm.routing.providers, in order of preference (default: llm.provider only).
+ *   Each one reads llm.&lt;name&gt;.base-url / model / api-key (api-key defaults to llm.api.key).
+ * - Ranking: by median latency, penalised by error rate. The first configured provider
+ *   is used while it has too few recent calls; other providers move up once they have
+ *   answered hedged requests.
+ * - Hedging: if the first provider hasn't answered within its llm.routing.hedge.percentile
+ *   latency (or fails), the same request is sent to the second one. The first answer wins
+ *   and the other call is cancelled.
+ *
+ * Providers whose CircuitBreaker is open are skipped; when all are open, calls fail fast
+ * with CircuitBreaker.OpenException.
+ *
+ * Every call goes through the provider's ConcurrencyLimiter (adaptive limit, wait queue,
+ * rate-limit headers); a 429 the provider wants retried soon is retried through it.
+ *
+ * Streaming replies are not hedged (tokens may already have been sent), they go to the
+ * best ranked provider. Their circuit breaker latency is the time to the first token (a long
+ * answer is not a slow call), and they stay out of the ranking statistics, which are the
+ * latencies of whole calls that hedge delays are based on.
+ *
+ * Metrics: llm.request{provider,model,mode=call|stream,outcome} (latency of each provider call;
+ * outcome is success, timeout, rate_limited, server_error, client_error, connection_error, error
+ * or cancelled), llm.routing.hedges{result=sent|won}, llm.provider.error.rate{provider},
+ * llm.provider.latency.p95{provider}, llm.circuit.state{provider} (0 closed, 1 half-open, 2 open)
+ */
+@Component
+public class LlmRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmRouter.class);
+
+    // Defaults for the providers we know (base URL, model); Gemini has no OpenAI-compatible API yet
+    private static final Map<String, String[]> KNOWN_PROVIDERS = Map.of(
+            "groq", new String[] {"https://api.groq.com/openai/v1", "llama-3.1-8b-instant"},
+            "openai", new String[] {"https://api.openai.com/v1", "gpt-4o-mini"},
+            "gemini", new String[] {"", "gemini-1.5-flash"});
+
+    @Value("${llm.routing.hedge.enabled:true}")
+    private boolean hedgeEnabled;
+
+    @Value("${llm.routing.hedge.percentile:0.95}")
+    private double hedgePercentile;
+
+    @Value("${llm.routing.hedge.min-delay:300ms}")
+    private Duration minHedgeDelay;
+
+    @Value("${llm.routing.hedge.max-delay:10s}")
+    private Duration maxHedgeDelay;
+
+    // Used until the primary has min-samples recent calls
+    @Value("${llm.routing.hedge.default-delay:3s}")
+    private Duration defaultHedgeDelay;
+
+    @Value("${llm.routing.min-samples:5}")
+    private int minSamples;
+
+    // Retries of a 429 whose Retry-After fits in llm.limiter.max-wait (they wait in the limiter queue)
+    @Value("${llm.limiter.max-retries:2}")
+    private int maxRetries;
+
+    private final List<LlmProvider> providers;
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+    private final Meter.MeterProvider<Timer> requestTimers;
+
+    public LlmRouter(Environment env, MeterRegistry meterRegistry,
+                     @Value("${llm.routing.providers:${llm.provider:groq}}") List<String> providerNames,
+                     @Value("${llm.routing.window-size:50}") int windowSize,
+                     @Value("${llm.routing.window-time:5m}") Duration windowTime,
+                     @Value("${llm.limiter.initial-limit:10}") int initialLimit,
+                     @Value("${llm.limiter.min-limit:1}") int minLimit,
+                     @Value("${llm.limiter.max-limit:50}") int maxLimit,
+                     @Value("${llm.limiter.queue-capacity:100}") int queueCapacity,
+                     @Value("${llm.limiter.max-wait:5s}") Duration maxWait,
+                     @Value("${llm.circuit-breaker.window-size:20}") int breakerWindowSize,
+                     @Value("${llm.circuit-breaker.minimum-calls:10}") int breakerMinimumCalls,
+                     @Value("${llm.circuit-breaker.failure-rate-threshold:50}") double failureRateThreshold,
+                     @Value("${llm.circuit-breaker.slow-call-rate-threshold:80}") double slowCallRateThreshold,
+                     @Value("${llm.circuit-breaker.slow-call-threshold:10s}") Duration slowCallThreshold,
+                     @Value("${llm.circuit-breaker.open-duration:30s}") Duration openDuration,
+                     @Value("${llm.circuit-breaker.half-open-calls:3}") int halfOpenCalls) {
+        List<LlmProvider> configured = new ArrayList<>();
+        for (String rawName : providerNames) {
+            String name = rawName.trim().toLowerCase();
+            String[] defaults = KNOWN_PROVIDERS.getOrDefault(name, new String[] {"", ""});
+            LlmProvider provider = new LlmProvider(name,
+                    env.getProperty("llm." + name + ".base-url", defaults[0]),
+                    env.getProperty("llm." + name + ".model", defaults[1]),
+                    env.getProperty("llm." + name + ".api-key", env.getProperty("llm.api.key", "")),
+                    windowSize, windowTime,
+                    new ConcurrencyLimiter(name, initialLimit, minLimit, maxLimit, queueCapacity, maxWait, meterRegistry),
+                    new CircuitBreaker(breakerWindowSize, breakerMinimumCalls, failureRateThreshold,
+                            slowCallRateThreshold, slowCallThreshold, openDuration, halfOpenCalls));
+            configured.add(provider);
+
+            Gauge.builder("llm.provider.error.rate", provider, p -> p.stats().snapshot().errorRate())
+                    .tag("provider", name)
+                    .register(meterRegistry);
+            Gauge.builder("llm.provider.latency.p95", provider, p -> {
+                        Duration p95 = p.stats().snapshot().percentile(0.95);
+                        return p95 == null ? Double.NaN : p95.toMillis();
+                    })
+                    .tag("provider", name)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            // 0 = closed, 1 = half-open, 2 = open
+            Gauge.builder("llm.circuit.state", provider, p -> switch (p.circuitBreaker().state()) {
+                        case CLOSED -> 0;
+                        case HALF_OPEN -> 1;
+                        case OPEN -> 2;
+                    })
+                    .tag("provider", name)
+                    .register(meterRegistry);
+        }
+        this.providers = List.copyOf(configured);
+        this.hedgesSent = meterRegistry.counter("llm.routing.hedges", "result", "sent");
+        this.hedgesWon = meterRegistry.counter("llm.routing.hedges", "result", "won");
+        this.requestTimers = Timer.builder("llm.request")
+                .description("AI provider call latency")
+                .withRegistry(meterRegistry);
+        log.info("LLM providers: {}", providers);
+    }
+
+    // All configured providers, in configured order
+    public List<LlmProvider> providers() {
+        return providers;
+    }
+
+    // The first configured provider (the one the prompt setup is tuned for)
+    public LlmProvider primary() {
+        return providers.get(0);
+    }
+
+    // Providers ordered best first by recent latency and error rate; open circuits last
+    public List<LlmProvider> ranked() {
+        double[] scores = new double[providers.size()];
+        for (int i = 0; i < providers.size(); i++) {
+            LlmProvider provider = providers.get(i);
+            scores[i] = provider.circuitBreaker().isCallPermitted() ? score(provider, i == 0) : Double.NaN;
+        }
+        Integer[] order = new Integer[providers.size()];
+        Arrays.setAll(order, i -> i);
+        // Stable sort: equal scores keep the configured order (NaN = open circuit sorts last)
+        Arrays.sort(order, Comparator.comparingDouble(i -> scores[i]));
+        return Arrays.stream(order).map(providers::get).toList();
+    }
+
+    // Lower is better: median latency (ms) divided by success rate
+    private double score(LlmProvider provider, boolean preferred) {
+        LlmProvider.Snapshot snapshot = provider.stats().snapshot();
+        if (snapshot.calls() < minSamples) {
+            // Not enough data: keep the preferred provider first, others after any known-good one
+            return preferred ? 0 : Double.MAX_VALUE;
+        }
+        Duration median = snapshot.percentile(0.5);
+        if (median == null) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return median.toMillis() / Math.max(0.05, 1 - snapshot.errorRate());
+    }
+
+    // Run a request on the best provider, hedged to the second best when the first is slow or fails
+    public <T> Mono<T> call(Function<LlmProvider, Mono<T>> request) {
+        return Mono.defer(() -> {
+            List<LlmProvider> ranked = ranked();
+            LlmProvider first = ranked.get(0);
+            if (!first.circuitBreaker().isCallPermitted()) {
+                return Mono.error(new CircuitBreaker.OpenException("All AI providers are unavailable (circuit open)"));
+            }
+            // Latency of the call that answered (0 until one has)
+            AtomicLong winnerLatency = new AtomicLong();
+            if (!hedgeEnabled || ranked.size() < 2 || !ranked.get(1).circuitBreaker().isCallPermitted()) {
+                return admitted(first, request, winnerLatency);
+            }
+            LlmProvider second = ranked.get(1);
+
+            Sinks.Empty<Void> firstFailed = Sinks.empty();
+            Mono<T> firstCall = admitted(first, request, winnerLatency)
+                    .doOnError(e -> firstFailed.tryEmitEmpty());
+
+            // Hedge after the first provider's usual latency, or right away once it has failed
+            Mono<T> hedge = Mono.firstWithSignal(Mono.delay(hedgeDelay(first)).then(),
+                            firstFailed.asMono())
+                    .then(Mono.defer(() -> {
+                        hedgesSent.increment();
+                        return admitted(second, request, winnerLatency).doOnNext(value -> hedgesWon.increment());
+                    }));
+
+            // First answer wins, the other call is cancelled; if both fail report the first error
+            return Mono.firstWithValue(firstCall, hedge)
+                    .onErrorMap(NoSuchElementException.class,
+                            e -> e.getSuppressed().length > 0 ? e.getSuppressed()[0] : e);
+        });
+    }
+
+    // Stream from the best ranked provider (no hedging)
+    public <T> Flux<T> stream(Function<LlmProvider, Flux<T>> request) {
+        return Flux.defer(() -> {
+            LlmProvider provider = ranked().get(0);
+            ConcurrencyLimiter limiter = provider.limiter();
+            CircuitBreaker breaker = provider.circuitBreaker();
+            return Flux.defer(() -> breaker.tryAcquire()
+                            ? limiter.executeMany(() -> {
+                                long start = System.nanoTime();
+                                AtomicLong firstToken = new AtomicLong();
+                                AtomicBoolean finished = new AtomicBoolean();
+                                return request.apply(provider)
+                                        .doOnNext(item -> firstToken.compareAndSet(0, System.nanoTime() - start))
+                                        .doOnComplete(() -> {
+                                            finished.set(true);
+                                            recordStreamResult(provider, start, firstToken.get(), null);
+                                        })
+                                        .doOnError(e -> {
+                                            finished.set(true);
+                                            recordStreamResult(provider, start, firstToken.get(), e);
+                                        })
+                                        .doOnCancel(() -> {
+                                            if (finished.get()) {
+                                                return;
+                                            }
+                                            breaker.onIgnored();
+                                            requestTimer(provider, "stream", "cancelled")
+                                                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                                        });
+                            })
+                            : Flux.error(openCircuit(provider)))
+                    // A 429 arrives before any token, so retrying can't repeat output
+                    .retryWhen(Retry.max(maxRetries).filter(limiter::isRetryable));
+        });
+    }
+
+    // Call a provider if its circuit allows it, once admitted by its limiter
+    // A 429 worth waiting for is retried through the queue
+    private <T> Mono<T> admitted(LlmProvider provider, Function<LlmProvider, Mono<T>> request,
+                                 AtomicLong winnerLatency) {
+        ConcurrencyLimiter limiter = provider.limiter();
+        return Mono.defer(() -> provider.circuitBreaker().tryAcquire()
+                        ? limiter.execute(() -> measured(provider, request, winnerLatency))
+                                .doOnError(ConcurrencyLimiter.RejectedException.class,
+                                        e -> provider.circuitBreaker().onIgnored())
+                        : Mono.<T>error(openCircuit(provider)))
+                .retryWhen(Retry.max(maxRetries).filter(limiter::isRetryable));
+    }
+
+    private static CircuitBreaker.OpenException openCircuit(LlmProvider provider) {
+        return new CircuitBreaker.OpenException(provider.name() + " is unavailable (circuit open)");
+    }
+
+    private void recordResult(LlmProvider provider, long latencyNanos, Throwable error) {
+        provider.stats().record(latencyNanos, error != null);
+        provider.circuitBreaker().onResult(latencyNanos, error);
+        requestTimer(provider, "call", outcome(error)).record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // A stream is slow when its first token is (the whole duration only when nothing came);
+    // it is not added to provider.stats()
+    private void recordStreamResult(LlmProvider provider, long start, long firstTokenNanos, Throwable error) {
+        long duration = System.nanoTime() - start;
+        provider.circuitBreaker().onResult(firstTokenNanos > 0 ? firstTokenNanos : duration, error);
+        requestTimer(provider, "stream", outcome(error)).record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer requestTimer(LlmProvider provider, String mode, String outcome) {
+        return requestTimers.withTags("provider", provider.name(), "model", provider.model(),
+                "mode", mode, "outcome", outcome);
+    }
+
+    // Outcome tag of llm.request
+    private static String outcome(Throwable error) {
+        if (error == null) {
+            return "success";
+        }
+        Throwable e = Exceptions.unwrap(error);
+        if (e instanceof TimeoutException) {
+            return "timeout";
+        }
+        if (e instanceof WebClientResponseException responseError) {
+            HttpStatusCode status = responseError.getStatusCode();
+            return status.value() == 429 ? "rate_limited" : status.is5xxServerError() ? "server_error" : "client_error";
+        }
+        return e instanceof WebClientRequestException ? "connection_error" : "error";
+    }
+
+    // Call a provider and record its latency and outcome
+    // A call cancelled because the other provider answered first is a censored sample: its own
+    // elapsed time is a lower bound of its latency. It is recorded when that bound is at least the
+    // winner's latency, so a provider that keeps losing hedges drops in the ranking; a shorter bound
+    // (a hedge sent late and cancelled early) says nothing and is skipped, so it neither looks faster
+    // nor is charged for time it wasn't running.
+    // Other cancels (client gone) say nothing about the provider and are not recorded;
+    // retryWhen also cancels a call that has already failed, that cancel is not a second outcome
+    private <T> Mono<T> measured(LlmProvider provider, Function<LlmProvider, Mono<T>> request,
+                                 AtomicLong winnerLatency) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean finished = new AtomicBoolean();
+            return request.apply(provider)
+                    .doOnSuccess(value -> {
+                        finished.set(true);
+                        long latency = System.nanoTime() - start;
+                        winnerLatency.compareAndSet(0, latency);
+                        recordResult(provider, latency, null);
+                    })
+                    .doOnError(e -> {
+                        finished.set(true);
+                        recordResult(provider, System.nanoTime() - start, e);
+                    })
+                    .doOnCancel(() -> {
+                        if (finished.get()) {
+                            return;
+                        }
+                        long elapsed = System.nanoTime() - start;
+                        long winner = winnerLatency.get();
+                        if (winner > 0 && elapsed >= winner) {
+                            provider.stats().record(elapsed, false);
+                        }
+                        provider.circuitBreaker().onIgnored();
+                        requestTimer(provider, "call", "cancelled").record(elapsed, TimeUnit.NANOSECONDS);
+                    });
+        });
+    }
+
+    private Duration hedgeDelay(LlmProvider provider) {
+        LlmProvider.Snapshot snapshot = provider.stats().snapshot();
+        Duration percentile = snapshot.percentile(hedgePercentile);
+        if (snapshot.calls() < minSamples || percentile == null) {
+            return defaultHedgeDelay;
+        }
+        if (percentile.compareTo(minHedgeDelay) < 0) {
+            return minHedgeDelay;
+        }
+        return percentile.compareTo(maxHedgeDelay) > 0 ? maxHedgeDelay : percentile;
+    }
+}
@@ -1,101 +1,136 @@
 package com.chatbot.service;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.chatbot.dto.ChatHistory;
+import com.chatbot.dto.ChatTurn;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import jakarta.annotation.PostConstruct;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Service that integrates with AI APIs (Groq, OpenAI, Gemini)
  * Handles LLM calls with proper error handling and rate limiting
+ * 
+ * Prompt size: the prompt (system prompt with knowledge, history, user message) is assembled
+ * against llm.context.max-prompt-tokens, counted locally with TokenCounter. The most recent
+ * history turns are packed in until the budget is full; older ones are left out. The user
+ * message itself is cut at llm.context.max-user-message-tokens. Once a conversation is long,
+ * ConversationSummarizer condenses its older turns; the summary is part of the system prompt
+ * and only the turns after it are sent as they are, so long chats keep a flat prompt size.
+ *
+ * Metrics: llm.tokens{provider,model,type=prompt|completion} (from the provider's "usage" field),
+ * llm.prompt.tokens.estimated{model} (local estimate per request, before the call),
+ * llm.context.turns{result=included|dropped} (history turns per request),
+ * chat.errors{category=llm_*} (failures answered with a fallback message)
  */
 @Service
 public class LlmService {
 
+    private static final Logger log = LoggerFactory.getLogger(LlmService.class);
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_CHUNK_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    // Terminal data line of an OpenAI-compatible stream
+    private static final String STREAM_DONE = "[DONE]";
+
     private final WebClient webClient;
     private final ObjectMapper objectMapper;
+    private final LlmResponseCache responseCache;
+    private final KnowledgeBase knowledgeBase;
+    private final LlmRouter router;
+    private final TokenCounter tokenCounter;
+    private final MeterRegistry meterRegistry;
 
-    @Value("${llm.api.key}")
-    private String apiKey;
+    // Concurrent identical first-turn prompts, keyed by the assembled prompt bytes
+    private final SingleFlight<ByteBuffer, String> singleFlight;
 
-    @Value("${llm.provider:groq}")
-    private String provider;
+    // Request/response JSON codec, built once the prompt settings are injected
+    private ChatCompletionCodec codec;
 
-    @Value("${llm.groq.model:llama-3.1-8b-instant}")
-    private String groqModel;
+    // Codec of summarization calls (own system prompt, low temperature)
+    private ChatCompletionCodec summaryCodec;
 
-    @Value("${llm.groq.base-url:https://api.groq.com/openai/v1}")
-    private String groqBaseUrl;
+    // Tokens of the fixed system prompt parts, for the prompt budget (counted with the primary model's tokenizer)
+    private String budgetModel;
+    private int systemPromptTokens;
+    private int noKnowledgeMatchTokens;
+    private int summaryHeaderTokens;
+    private DistributionSummary estimatedPromptTokens;
+    private DistributionSummary includedTurns;
+    private DistributionSummary droppedTurns;
 
-    @Value("${llm.openai.model:gpt-4o-mini}")
-    private String openaiModel;
+    // Identifies the prompt setup (system prompt, model, max tokens) that cached answers were generated with
+    // The knowledge base fingerprint is added per lookup since the knowledge base can be reloaded
+    private String promptFingerprint;
 
-    @Value("${llm.gemini.model:gemini-1.5-flash}")
-    private String geminiModel;
+    // Connections opened to the provider at startup
+    @Value("${llm.http.warm-up-connections:2}")
+    private int warmUpConnections;
+
+    // Provider call timeout (between chunks when streaming); slow calls also count against the circuit breaker
+    @Value("${llm.timeout:15000}")
+    private long timeoutMillis;
 
     @Value("${llm.max-tokens:500}")
     private int maxTokens;
     
-    // Maximum messages to include in context (cost control)
-    @Value("${llm.max-history:10}")
-    private int maxHistory;
+    // Prompt token budget: system prompt + history + user message (the reply's max-tokens come on top)
+    @Value("${llm.context.max-prompt-tokens:3000}")
+    private int maxPromptTokens;
+
+    // Longer user messages are cut (cost control)
+    @Value("${llm.context.max-user-message-tokens:500}")
+    private int maxUserMessageTokens;
+
+    // Length limit of a conversation summary (max_tokens of the summarization call)
+    @Value("${chat.summary.max-tokens:300}")
+    private int summaryMaxTokens;
 
-    // System prompt with e-commerce store knowledge (FAQ)
-    private static final String SYSTEM_PROMPT = """
+    // System prompt: role + relevant store knowledge (from KnowledgeBase) + guidelines
+    private static final String SYSTEM_ROLE = """
         You are a helpful customer support agent for "ShopEase", a trusted e-commerce store 
         selling electronics and accessories. Answer clearly and concisely.
         
         === STORE KNOWLEDGE / FAQ ===
         
-        **About ShopEase:**
-        - We sell electronics, gadgets, phone accessories, and tech gear
-        - Founded in 2020, based in Bangalore, India
-        - Website: www.shopease.in
-        
-        **Shipping Policy:**
-        - FREE standard shipping on orders over ₹500
-        - Standard shipping: 5-7 business days (₹49 for orders under ₹500)
-        - Express shipping: 2-3 business days (₹99)
-        - Same-day delivery: Available in metro cities (₹149)
-        - We ship across all of India
-        - International shipping available to USA, UK, UAE (10-15 business days, ₹999)
-        - Orders placed before 2 PM IST ship same day
-        
-        **Return & Refund Policy:**
-        - 30-day return window from delivery date
-        - Items must be unused and in original packaging
-        - FREE returns on defective items
-        - Return shipping fee: ₹50 for non-defective returns
-        - Refunds processed within 5-7 business days after we receive the item
-        - Original shipping costs are non-refundable
-        - Electronics with opened seals: 15-day return window, 15% restocking fee
-        
-        **Support Hours:**
-        - Live Chat: Monday-Saturday, 9 AM - 9 PM IST
-        - Email Support: support@shopease.in (24-48 hour response)
-        - Phone Support: 1800-123-4567 (Toll Free), Monday-Saturday, 10 AM - 7 PM IST
-        - Sunday: Limited email support, responses by Monday
-        
-        **Payment Methods:**
-        - Credit/Debit Cards (Visa, MasterCard, Rupay, Amex)
-        - UPI (GPay, PhonePe, Paytm)
-        - Net Banking
-        - Cash on Delivery (COD) available
-        - EMI options on orders above ₹3000
-        
-        **Warranty:**
-        - 1-year manufacturer warranty on all electronics
-        - Extended warranty available for purchase (2 or 3 years)
-        - Warranty does not cover physical damage or water damage
+        """;
+
+    private static final String NO_KNOWLEDGE_MATCH = "(No store knowledge matches this question.)\n";
+
+    // Prefix of a degraded-mode answer (knowledge base section shown as is)
+    private static final String DEGRADED_INTRO =
+            "Our AI assistant is temporarily unavailable, but this from our help center may answer your question:\n\n";
+
+    private static final String SYSTEM_GUIDELINES = """
         
         === GUIDELINES ===
         - Be friendly, professional, and helpful
@@ -104,164 +139,377 @@ public class LlmService {
         - Never make up information not in the knowledge base
         """;
 
-    // Constructor - WebClient is used to make HTTP calls to AI APIs
-    public LlmService(WebClient.Builder webClientBuilder, ObjectMapper objectMapper) {
-        this.webClient = webClientBuilder
-                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(1024 * 1024))
-                .build();
+    // Summarization: the older turns are sent as chat history, followed by this instruction
+    private static final String SUMMARY_ROLE = """
+        You keep a running summary of a customer support chat between a customer and the
+        support assistant of "ShopEase", an e-commerce store.
+        """;
+
+    private static final String SUMMARY_INSTRUCTION = """
+        Previous summary:
+        %s
+        
+        Write an updated summary that merges the previous summary with the messages above.
+        Keep what the assistant needs later: the customer's problem, order numbers, products,
+        what was already answered or promised, and open questions.
+        At most 150 words, plain sentences, no greeting.
+        """;
+
+    // Constructor - WebClient (pooled, see LlmHttpClientConfig) is used to make HTTP calls to AI APIs
+    public LlmService(WebClient llmWebClient, ObjectMapper objectMapper,
+                      LlmResponseCache responseCache, KnowledgeBase knowledgeBase, LlmRouter router,
+                      TokenCounter tokenCounter, MeterRegistry meterRegistry) {
+        this.webClient = llmWebClient;
         this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
+        this.knowledgeBase = knowledgeBase;
+        this.router = router;
+        this.tokenCounter = tokenCounter;
+        this.meterRegistry = meterRegistry;
+        this.singleFlight = new SingleFlight<>(meterRegistry, "llm.singleflight");
+    }
+
+    @PostConstruct
+    void initPrompt() throws NoSuchAlgorithmException {
+        this.codec = new ChatCompletionCodec(objectMapper.getFactory(), maxTokens, 0.7,
+                SYSTEM_ROLE, NO_KNOWLEDGE_MATCH, SYSTEM_GUIDELINES);
+        this.summaryCodec = new ChatCompletionCodec(objectMapper.getFactory(), summaryMaxTokens, 0.2,
+                SUMMARY_ROLE, "", "");
+
+        String model = router.primary().model();
+        this.budgetModel = model;
+        this.systemPromptTokens = tokenCounter.count(model, SYSTEM_ROLE + SYSTEM_GUIDELINES) + TokenCounter.TOKENS_PER_MESSAGE;
+        this.noKnowledgeMatchTokens = tokenCounter.count(model, NO_KNOWLEDGE_MATCH);
+        this.summaryHeaderTokens = tokenCounter.count(model, ChatCompletionCodec.SUMMARY_HEADER);
+        this.estimatedPromptTokens = DistributionSummary.builder("llm.prompt.tokens.estimated")
+                .description("Prompt tokens per request, estimated locally")
+                .baseUnit("tokens")
+                .tag("model", model)
+                .register(meterRegistry);
+        this.includedTurns = meterRegistry.summary("llm.context.turns", "result", "included");
+        this.droppedTurns = meterRegistry.summary("llm.context.turns", "result", "dropped");
+
+        byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest((SYSTEM_ROLE + SYSTEM_GUIDELINES + "|" + model + "|" + maxTokens).getBytes(StandardCharsets.UTF_8));
+        this.promptFingerprint = HexFormat.of().formatHex(digest, 0, 8);
     }
 
-    // Generate AI response using conversation history for context
-    public String generateResponse(List<Map<String, String>> messages, String userMessage) {
+    // Open connections to the providers (DNS, TCP, TLS) once the app is up, so the first
+    // chat requests don't pay for them. Any response counts, even an auth error.
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (warmUpConnections <= 0) {
+            return;
+        }
+        Flux.fromIterable(router.providers())
+                .filter(LlmProvider::isCallable)
+                .flatMap(provider -> Flux.range(0, warmUpConnections).map(i -> provider))
+                .flatMap(provider -> webClient.get()
+                        .uri(provider.baseUrl() + "/models")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + provider.apiKey())
+                        .exchangeToMono(response -> response.releaseBody())
+                        .timeout(Duration.ofSeconds(10))
+                        .onErrorResume(e -> Mono.empty()))
+                .subscribe();
+    }
+
+    // Generate AI response using conversation history for context (blocks the calling thread)
+    // history = summary and previous turns, oldest first, without the current user message
+    public String generateResponse(ChatHistory history, String userMessage) {
+        return generateResponseAsync(history, userMessage).block();
+    }
+
+    // Non-blocking variant: the returned Mono never errors, failures become a friendly message
+    public Mono<String> generateResponseAsync(ChatHistory history, String userMessage) {
         // Validate input
         if (userMessage == null || userMessage.trim().isEmpty()) {
-            return "I didn't receive a message. Could you please try again?";
+            return Mono.just("I didn't receive a message. Could you please try again?");
         }
         
-        // Truncate very long messages (cost control)
-        String truncatedMessage = userMessage.length() > 2000 
-            ? userMessage.substring(0, 2000) + "... [message truncated]" 
-            : userMessage;
-        
-        // Limit history to maxHistory messages (cost control)
-        List<Map<String, String>> limitedHistory = messages.size() > maxHistory 
-            ? messages.subList(messages.size() - maxHistory, messages.size())
-            : messages;
+        String truncatedMessage = truncateMessage(userMessage);
         
-        try {
-            switch (provider.toLowerCase()) {
-                case "groq":
-                    return callGroqApi(limitedHistory, truncatedMessage);
-                case "openai":
-                    return callOpenAiApi(limitedHistory, truncatedMessage);
-                case "gemini":
-                    return callGeminiApi(limitedHistory, truncatedMessage);
-                default:
-                    throw new IllegalArgumentException("Unsupported LLM provider: " + provider);
+        // First-turn questions are answered from cache when possible
+        String cacheKey = cacheKeyFor(history, truncatedMessage);
+        if (cacheKey != null) {
+            String cached = responseCache.get(cacheKey);
+            if (cached != null) {
+                return Mono.just(cached);
             }
-        } catch (org.springframework.web.reactive.function.client.WebClientResponseException.TooManyRequests e) {
-            return "I'm receiving too many requests right now. Please wait a moment and try again.";
-        } catch (org.springframework.web.reactive.function.client.WebClientResponseException.Unauthorized e) {
-            System.err.println("LLM API authentication failed - check API key");
-            return "I'm having trouble connecting to the AI service. Please contact support.";
-        } catch (org.springframework.web.reactive.function.client.WebClientRequestException e) {
-            // Check if it's a timeout-related error
-            if (e.getCause() != null && e.getCause().getClass().getName().contains("Timeout")) {
-                return "The AI service is taking too long to respond. Please try again.";
-            }
-            System.err.println("LLM API connection error: " + e.getMessage());
-            return "I'm having trouble reaching the AI service. Please check your connection and try again.";
-        } catch (Exception e) {
-            System.err.println("LLM error: " + e.getClass().getSimpleName() + " - " + e.getMessage());
-            return "I apologize, but I'm having trouble processing your request. Please try again later.";
         }
+        
+        // Best provider answers; hedged to the next one when it is slow or fails (see LlmRouter)
+        // Identical first-turn prompts arriving together share one provider call
+        return Mono.fromSupplier(() -> promptInput(history, truncatedMessage))
+                .flatMap(prompt -> cacheKey != null
+                        ? singleFlight.execute(prompt.coalescingKey(codec), () -> routedCall(prompt))
+                        : routedCall(prompt))
+                // Only real answers are cached - error messages are produced below
+                .doOnNext(reply -> {
+                    if (cacheKey != null) {
+                        responseCache.put(cacheKey, reply);
+                    }
+                })
+                .onErrorResume(e -> Mono.just(fallbackFor(e, truncatedMessage)));
     }
 
-    // Call Groq API (uses OpenAI-compatible format)
-    private String callGroqApi(List<Map<String, String>> messages, String userMessage) {
-        // Build request body
-        ObjectNode requestBody = objectMapper.createObjectNode();
-        requestBody.put("model", groqModel);
-        requestBody.put("max_tokens", maxTokens);
-        requestBody.put("temperature", 0.7);
-
-        // Add messages array
-        ArrayNode messagesArray = requestBody.putArray("messages");
-
-        // System message with store knowledge (FAQ)
-        ObjectNode systemMessage = objectMapper.createObjectNode();
-        systemMessage.put("role", "system");
-        systemMessage.put("content", SYSTEM_PROMPT);
-        messagesArray.add(systemMessage);
-
-        // Add conversation history (limited to maxHistory)
-        for (Map<String, String> msg : messages) {
-            ObjectNode historyMsg = objectMapper.createObjectNode();
-            historyMsg.put("role", msg.get("sender").equals("user") ? "user" : "assistant");
-            historyMsg.put("content", msg.get("text"));
-            messagesArray.add(historyMsg);
+    // Stream AI response token by token (OpenAI-compatible "stream": true, sent back as SSE chunks)
+    // Completes after the provider's [DONE] marker. An error before the first token is turned into a
+    // friendly message token; after it the reply is incomplete and ends with StreamInterruptedException
+    public Flux<String> streamResponse(ChatHistory history, String userMessage) {
+        if (userMessage == null || userMessage.trim().isEmpty()) {
+            return Flux.just("I didn't receive a message. Could you please try again?");
+        }
+
+        String truncatedMessage = truncateMessage(userMessage);
+        String cacheKey = cacheKeyFor(history, truncatedMessage);
+        if (cacheKey != null) {
+            String cached = responseCache.get(cacheKey);
+            if (cached != null) {
+                return Flux.just(cached);
+            }
         }
 
-        // Add current user message
-        ObjectNode userMsg = objectMapper.createObjectNode();
-        userMsg.put("role", "user");
-        userMsg.put("content", userMessage);
-        messagesArray.add(userMsg);
+        StringBuilder fullText = new StringBuilder();
+        AtomicBoolean started = new AtomicBoolean();
+
+        return Mono.fromSupplier(() -> promptInput(history, truncatedMessage))
+                .flatMapMany(prompt -> router.stream(provider -> streamProvider(provider, prompt)))
+                .doOnNext(token -> {
+                    started.set(true);
+                    if (cacheKey != null) {
+                        fullText.append(token);
+                    }
+                })
+                .doOnComplete(() -> {
+                    if (cacheKey != null && fullText.length() > 0) {
+                        responseCache.put(cacheKey, fullText.toString());
+                    }
+                })
+                .onErrorResume(e -> started.get()
+                        ? Flux.error(new StreamInterruptedException(errorMessageFor(e), e))
+                        : Flux.just(fallbackFor(e, truncatedMessage)));
+    }
+
+    // Condense older turns into a new conversation summary (for ConversationSummarizer)
+    // turns = the turns to fold in, oldest first; previousSummary = the summary before them (null: none)
+    // Errors are passed on: nobody waits for a summary, a failed one is tried again on a later message
+    public Mono<String> summarize(String previousSummary, List<ChatTurn> turns) {
+        String instruction = SUMMARY_INSTRUCTION.formatted(previousSummary != null ? previousSummary : "(none)");
+        return router.call(provider -> provider.isCallable()
+                ? complete(provider, summaryCodec.encodeRequest(provider.model(), false, List.of(), turns, instruction))
+                : Mono.error(new UnsupportedOperationException(provider.name() + " integration coming soon!")))
+                .map(String::strip);
+    }
+
+    private Mono<String> routedCall(PromptInput prompt) {
+        return router.call(provider -> callProvider(provider, prompt));
+    }
+
+    // Call a provider's OpenAI-compatible chat completions API (Groq, OpenAI)
+    private Mono<String> callProvider(LlmProvider provider, PromptInput prompt) {
+        if (!provider.isCallable()) {
+            return Mono.error(new UnsupportedOperationException(provider.name() + " integration coming soon!"));
+        }
+        return complete(provider, prompt.encode(codec, provider.model(), false));
+    }
 
+    // POST a chat completions request body and return the reply text
+    private Mono<String> complete(LlmProvider provider, byte[] requestBody) {
         // Make API call with timeout
-        String response = webClient.post()
-                .uri(groqBaseUrl + "/chat/completions")
-                .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+        return webClient.post()
+                .uri(provider.baseUrl() + "/chat/completions")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + provider.apiKey())
                 .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .bodyValue(requestBody)
                 .retrieve()
-                .bodyToMono(String.class)
-                .timeout(java.time.Duration.ofSeconds(30))
-                .block();
-
-        // Parse response
-        return parseOpenAiResponse(response);
+                .toEntity(byte[].class)
+                .timeout(Duration.ofMillis(timeoutMillis))
+                // Rate-limit headers of a successful call can already ask us to slow down
+                .doOnNext(response -> provider.limiter().observe(response.getHeaders()))
+                .map(response -> codec.parseCompletion(response.getBody() != null ? response.getBody() : new byte[0]))
+                .map(completion -> {
+                    recordUsage(provider, completion.usage());
+                    return completion.content();
+                });
     }
 
-    // Call OpenAI API (same format as Groq)
-    private String callOpenAiApi(List<Map<String, String>> messages, String userMessage) {
-        // Build request body
-        ObjectNode requestBody = objectMapper.createObjectNode();
-        requestBody.put("model", openaiModel);
-        requestBody.put("max_tokens", maxTokens);
-        requestBody.put("temperature", 0.7);
-
-        // Add messages array (same logic as Groq)
-        ArrayNode messagesArray = requestBody.putArray("messages");
-
-        ObjectNode systemMessage = objectMapper.createObjectNode();
-        systemMessage.put("role", "system");
-        systemMessage.put("content", SYSTEM_PROMPT);
-        messagesArray.add(systemMessage);
-
-        for (Map<String, String> msg : messages) {
-            ObjectNode historyMsg = objectMapper.createObjectNode();
-            historyMsg.put("role", msg.get("sender").equals("user") ? "user" : "assistant");
-            historyMsg.put("content", msg.get("text"));
-            messagesArray.add(historyMsg);
+    // Stream a reply from a provider ("stream": true), emitting the text of each chunk
+    private Flux<String> streamProvider(LlmProvider provider, PromptInput prompt) {
+        if (!provider.isCallable()) {
+            return Flux.error(new UnsupportedOperationException(provider.name() + " integration coming soon!"));
         }
+        byte[] requestBody = prompt.encode(codec, provider.model(), true);
 
-        ObjectNode userMsg = objectMapper.createObjectNode();
-        userMsg.put("role", "user");
-        userMsg.put("content", userMessage);
-        messagesArray.add(userMsg);
-
-        // Make API call to OpenAI with timeout
-        String response = webClient.post()
-                .uri("https://api.openai.com/v1/chat/completions")
-                .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
-                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+        return webClient.post()
+                .uri(provider.baseUrl() + "/chat/completions")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + provider.apiKey())
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.TEXT_EVENT_STREAM)
                 .bodyValue(requestBody)
                 .retrieve()
-                .bodyToMono(String.class)
-                .timeout(java.time.Duration.ofSeconds(30))
-                .block();
+                .toEntityFlux(SSE_CHUNK_TYPE)
+                .flatMapMany(response -> {
+                    provider.limiter().observe(response.getHeaders());
+                    return response.getBody();
+                })
+                // Applies between chunks, so a long answer that keeps flowing is never cut off
+                .timeout(Duration.ofMillis(timeoutMillis))
+                .map(event -> event.data() != null ? event.data() : "")
+                .takeWhile(data -> !STREAM_DONE.equals(data.trim()))
+                .map(codec::parseChunk)
+                .doOnNext(chunk -> recordUsage(provider, chunk.usage()))
+                .map(ChatCompletionCodec.Completion::content)
+                .filter(token -> !token.isEmpty());
+    }
+
+    // Token counts of a call (providers that don't report usage are skipped)
+    private void recordUsage(LlmProvider provider, ChatCompletionCodec.Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        meterRegistry.summary("llm.tokens", "provider", provider.name(), "model", provider.model(), "type", "prompt")
+                .record(usage.promptTokens());
+        meterRegistry.summary("llm.tokens", "provider", provider.name(), "model", provider.model(), "type", "completion")
+                .record(usage.completionTokens());
+    }
+
+    // Everything a request body is built from; the knowledge base is searched once per turn,
+    // even when the request goes to more than one provider
+    private PromptInput promptInput(ChatHistory chatHistory, String userMessage) {
+        String summary = chatHistory.summaryText();
+        List<ChatTurn> history = chatHistory.unsummarizedTurns();
+        List<KnowledgeBase.Section> sections = knowledgeBase.search(retrievalQuery(history, userMessage));
+
+        // 1. Fixed part: system prompt with the knowledge sections and summary, user message, reply priming
+        int tokens = systemPromptTokens + TokenCounter.REPLY_PRIMING_TOKENS
+                + tokenCounter.countMessage(budgetModel, userMessage);
+        if (sections.isEmpty()) {
+            tokens += noKnowledgeMatchTokens;
+        }
+        if (summary != null) {
+            tokens += summaryHeaderTokens + tokenCounter.count(budgetModel, summary);
+        }
+        for (KnowledgeBase.Section section : sections) {
+            tokens += tokenCounter.count(budgetModel, section.toPromptText());
+        }
+
+        // 2. History fills the rest of the budget, newest turn first
+        int first = history.size();
+        while (first > 0) {
+            int turnTokens = tokenCounter.countMessage(budgetModel, history.get(first - 1).text());
+            if (tokens + turnTokens > maxPromptTokens) {
+                break;
+            }
+            tokens += turnTokens;
+            first--;
+        }
 
-        return parseOpenAiResponse(response);
+        estimatedPromptTokens.record(tokens);
+        includedTurns.record(history.size() - first);
+        droppedTurns.record(first);
+        log.debug("Prompt ~{} tokens ({} of {} history turns{})", tokens, history.size() - first, history.size(),
+                summary != null ? ", summary" : "");
+        return new PromptInput(sections, summary, history.subList(first, history.size()), userMessage);
     }
 
-    // Call Google Gemini API (different format - not yet implemented)
-    private String callGeminiApi(List<Map<String, String>> messages, String userMessage) {
-        throw new UnsupportedOperationException("Gemini integration coming soon!");
+    // Knowledge base search text for this turn
+    // The previous user message is part of the search so follow-ups ("and for express?") keep their topic
+    private String retrievalQuery(List<ChatTurn> history, String userMessage) {
+        for (int i = history.size() - 1; i >= 0; i--) {
+            if (history.get(i).isUser()) {
+                return history.get(i).text() + " " + userMessage;
+            }
+        }
+        return userMessage;
     }
 
-    // Parse AI response and extract message content
-    private String parseOpenAiResponse(String jsonResponse) {
-        try {
-            JsonNode root = objectMapper.readTree(jsonResponse);
-            return root.path("choices")
-                    .get(0)
-                    .path("message")
-                    .path("content")
-                    .asText();
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to parse AI response", e);
+    // Cache key for a context-free first turn, null when history matters (multi-turn) and the cache must be bypassed
+    private String cacheKeyFor(ChatHistory history, String userMessage) {
+        if (!history.isEmpty()) {
+            return null;
+        }
+        return responseCache.key(userMessage, promptFingerprint + knowledgeBase.fingerprint());
+    }
+
+    // Truncate very long messages (cost control)
+    private String truncateMessage(String userMessage) {
+        String truncated = tokenCounter.truncate(budgetModel, userMessage, maxUserMessageTokens);
+        return truncated.length() < userMessage.length()
+            ? truncated + "... [message truncated]"
+            : userMessage;
+    }
+
+    // Reply when no provider answered: while every circuit is open, answer in degraded mode
+    // from the answer cache or the knowledge base instead of just apologising
+    private String fallbackFor(Throwable error, String userMessage) {
+        if (!(Exceptions.unwrap(error) instanceof CircuitBreaker.OpenException)) {
+            return errorMessageFor(error);
+        }
+        countError("llm_unavailable");
+        String cached = responseCache.get(responseCache.key(userMessage, promptFingerprint + knowledgeBase.fingerprint()));
+        if (cached != null) {
+            return cached;
+        }
+        List<KnowledgeBase.Section> sections = knowledgeBase.search(userMessage);
+        if (!sections.isEmpty()) {
+            return DEGRADED_INTRO + sections.get(0).toPromptText().strip();
+        }
+        return "Our AI assistant is temporarily unavailable. Please try again in a few minutes or contact support.";
+    }
+
+    // Map provider/transport failures to a user-facing message (shared by blocking and streaming calls)
+    private String errorMessageFor(Throwable error) {
+        Throwable e = Exceptions.unwrap(error);
+        if (e instanceof WebClientResponseException.TooManyRequests || e instanceof ConcurrencyLimiter.RejectedException) {
+            countError("llm_rate_limited");
+            return "I'm receiving too many requests right now. Please wait a moment and try again.";
+        }
+        if (e instanceof WebClientResponseException.Unauthorized) {
+            countError("llm_auth");
+            log.error("LLM API authentication failed - check API key");
+            return "I'm having trouble connecting to the AI service. Please contact support.";
+        }
+        if (e instanceof TimeoutException) {
+            countError("llm_timeout");
+            return "The AI service is taking too long to respond. Please try again.";
+        }
+        if (e instanceof WebClientRequestException) {
+            // Check if it's a timeout-related error
+            if (e.getCause() != null && e.getCause().getClass().getName().contains("Timeout")) {
+                countError("llm_timeout");
+                return "The AI service is taking too long to respond. Please try again.";
+            }
+            countError("llm_connection");
+            log.warn("LLM API connection error: {}", e.getMessage());
+            return "I'm having trouble reaching the AI service. Please check your connection and try again.";
+        }
+        countError("llm_error");
+        log.error("LLM error: {} - {}", e.getClass().getSimpleName(), e.getMessage());
+        return "I apologize, but I'm having trouble processing your request. Please try again later.";
+    }
+
+    private void countError(String category) {
+        meterRegistry.counter("chat.errors", "category", category).increment();
+    }
+
+    /** A streamed reply broke off after part of it was sent; the message is user-facing */
+    public static final class StreamInterruptedException extends RuntimeException {
+        StreamInterruptedException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    // System prompt knowledge and summary + history + current user message, encoded per provider model
+    private record PromptInput(List<KnowledgeBase.Section> sections, String summary, List<ChatTurn> history,
+                               String userMessage) {
+
+        byte[] encode(ChatCompletionCodec codec, String model, boolean stream) {
+            return codec.encodeRequest(model, stream, sections, summary, history, userMessage);
+        }
+
+        // The assembled prompt itself (model-independent), compared by content
+        ByteBuffer coalescingKey(ChatCompletionCodec codec) {
+            return ByteBuffer.wrap(encode(codec, "", false));
         }
     }
 }
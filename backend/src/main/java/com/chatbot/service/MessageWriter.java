@@ -0,0 +1,261 @@
+package com.chatbot.service;
+
+import com.chatbot.entity.Message;
+import com.chatbot.repository.ConversationRepository;
+import com.chatbot.repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves chat messages, either immediately or in batches (write-behind).
+ *
+ * chat.persistence.mode:
+ * - sync (default): each message is committed in its own transaction before the request
+ *   continues. Nothing acknowledged to a client is ever lost.
+ * - write-behind: messages are put on a bounded in-memory queue and a background thread
+ *   inserts them in JDBC batches, when batch-size messages are waiting or flush-interval
+ *   has passed since the first one. A message is acknowledged once it is queued, so a
+ *   crash (not a normal shutdown) can lose the messages of the last flush-interval.
+ *   Reads (GET /messages) may lag behind by up to flush-interval.
+ *
+ * Saving messages also touches Conversation.updatedAt (at most once per TOUCH_INTERVAL), which
+ * the retention job's inactivity policy relies on.
+ *
+ * The queue is flushed completely on shutdown. When it is full, the caller waits up to
+ * enqueue-timeout for space and then saves the message itself - messages are never dropped.
+ *
+ * Metrics: chat.persistence.insert (direct save latency), chat.persistence.queue.depth,
+ * chat.persistence.flush (batch latency),
+ * chat.persistence.flushed.messages, chat.persistence.failed.messages
+ */
+@Component
+public class MessageWriter implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageWriter.class);
+
+    public enum Mode { SYNC, WRITE_BEHIND }
+
+    // updatedAt is precise to this interval; skipping fresher rows saves an UPDATE per message
+    private static final Duration TOUCH_INTERVAL = Duration.ofMinutes(1);
+
+    @Value("${chat.persistence.mode:sync}")
+    private String mode;
+
+    @Value("${chat.persistence.write-behind.batch-size:100}")
+    private int batchSize;
+
+    @Value("${chat.persistence.write-behind.flush-interval:200ms}")
+    private Duration flushInterval;
+
+    @Value("${chat.persistence.write-behind.enqueue-timeout:1s}")
+    private Duration enqueueTimeout;
+
+    private final ConversationRepository conversationRepository;
+    private final MessageRepository messageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PendingMessage> queue;
+
+    private final Timer insertTimer;
+    private final Timer flushTimer;
+    private final Counter flushedMessages;
+    private final Counter failedMessages;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public MessageWriter(ConversationRepository conversationRepository,
+                         MessageRepository messageRepository,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${chat.persistence.write-behind.queue-capacity:10000}") int queueCapacity) {
+        this.conversationRepository = conversationRepository;
+        this.messageRepository = messageRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.insertTimer = meterRegistry.timer("chat.persistence.insert");
+        this.flushTimer = meterRegistry.timer("chat.persistence.flush");
+        this.flushedMessages = meterRegistry.counter("chat.persistence.flushed.messages");
+        this.failedMessages = meterRegistry.counter("chat.persistence.failed.messages");
+        meterRegistry.gauge("chat.persistence.queue.depth", queue, BlockingQueue::size);
+    }
+
+    public Mode mode() {
+        return Mode.valueOf(mode.trim().toUpperCase().replace('-', '_'));
+    }
+
+    // Save a new message for the conversation; returns it as it will be stored
+    // The message must have its ID and createdAt set (they can't be filled in later by the flusher)
+    public Message write(String conversationId, Message message) {
+        if (mode() == Mode.WRITE_BEHIND && running) {
+            try {
+                if (queue.offer(new PendingMessage(conversationId, message),
+                        enqueueTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    return message;
+                }
+                log.warn("Write-behind queue full, saving message {} directly", message.getId());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return insertTimer.record(() -> transactionTemplate.execute(status -> {
+            UUID conversationKey = UUID.fromString(conversationId);
+            message.setConversation(conversationRepository.getReferenceById(conversationKey));
+            Message saved = messageRepository.save(message);
+            touchConversations(List.of(conversationKey));
+            return saved;
+        }));
+    }
+
+    // ============================================
+    // FLUSHER THREAD
+    // ============================================
+
+    private void runFlusher() {
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                // Wait for the first message, then until the batch is full or the interval has passed
+                PendingMessage first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushInterval.toNanos();
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (queue.drainTo(batch, batchSize - batch.size()) == 0) {
+                        if (remaining <= 0) {
+                            break;
+                        }
+                        PendingMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("Write-behind flush failed", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Insert a batch in one transaction; if that fails, insert one by one so a bad row
+    // (e.g. its conversation was deleted meanwhile) doesn't take the others down with it
+    private void flush(List<PendingMessage> batch) {
+        try {
+            flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> persist(batch)));
+            flushedMessages.increment(batch.size());
+        } catch (RuntimeException batchError) {
+            log.warn("Batch insert of {} messages failed, retrying one by one: {}",
+                    batch.size(), batchError.getMessage());
+            for (PendingMessage pending : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> persist(List.of(pending)));
+                    flushedMessages.increment();
+                } catch (RuntimeException e) {
+                    failedMessages.increment();
+                    log.error("Dropping message {} of conversation {}: {}",
+                            pending.message().getId(), pending.conversationId(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void persist(List<PendingMessage> batch) {
+        Set<UUID> conversationKeys = new HashSet<>();
+        for (PendingMessage pending : batch) {
+            UUID conversationKey = UUID.fromString(pending.conversationId());
+            pending.message().setConversation(conversationRepository.getReferenceById(conversationKey));
+            conversationKeys.add(conversationKey);
+        }
+        // New entities (Persistable) are persisted without a SELECT; Hibernate groups the
+        // INSERTs into JDBC batches (hibernate.jdbc.batch_size) at commit
+        messageRepository.saveAll(batch.stream().map(PendingMessage::message).toList());
+        touchConversations(conversationKeys);
+    }
+
+    // One UPDATE for all conversations of the batch
+    private void touchConversations(Collection<UUID> conversationKeys) {
+        LocalDateTime now = LocalDateTime.now();
+        conversationRepository.touch(conversationKeys, now, now.minus(TOUCH_INTERVAL));
+    }
+
+    // ============================================
+    // LIFECYCLE (start with the app, flush everything on shutdown)
+    // ============================================
+
+    @Override
+    public void start() {
+        if (mode() != Mode.WRITE_BEHIND) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::runFlusher, "message-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Write-behind message persistence enabled (batch-size={}, flush-interval={})",
+                batchSize, flushInterval);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        // New messages are saved directly from now on
+        // The flusher notices within a second; it isn't interrupted so an in-flight batch can commit
+        running = false;
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<PendingMessage> remaining = new ArrayList<>();
+        while (queue.drainTo(remaining, batchSize) > 0) {
+            flush(remaining);
+            remaining.clear();
+        }
+        log.info("Write-behind queue flushed on shutdown");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stopped after the web server (lower phase = stopped later), so messages of requests
+    // finishing during graceful shutdown are still flushed
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private record PendingMessage(String conversationId, Message message) {}
+}
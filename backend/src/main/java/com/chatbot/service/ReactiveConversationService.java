@@ -0,0 +1,82 @@
+package com.chatbot.service;
+
+import com.chatbot.dto.ChatStreamEvent;
+import com.chatbot.dto.MessageResponse;
+import com.chatbot.entity.Conversation;
+import com.chatbot.entity.Message;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Non-blocking counterpart of ConversationService for the "reactive" profile.
+ * 
+ * The LLM call runs on WebClient's event loop without any thread waiting for it.
+ * The short JPA phases (save user msg + load history, save AI msg) are offloaded to
+ * the bounded blockingScheduler, sized to the DB pool, so event-loop threads never block.
+ * All persistence logic stays in ConversationService.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveConversationService {
+
+    private final ConversationService conversationService;
+    private final LlmService llmService;
+    private final Scheduler blockingScheduler;
+
+    public ReactiveConversationService(ConversationService conversationService,
+                                       LlmService llmService,
+                                       @Qualifier("blockingScheduler") Scheduler blockingScheduler) {
+        this.conversationService = conversationService;
+        this.llmService = llmService;
+        this.blockingScheduler = blockingScheduler;
+    }
+
+    // Create a new conversation
+    public Mono<Conversation> createConversation() {
+        return offload(conversationService::createConversation);
+    }
+
+    // Get conversation by ID
+    public Mono<Conversation> getConversation(String conversationId) {
+        return offload(() -> conversationService.getConversation(conversationId));
+    }
+
+    // Get all messages in a conversation (ordered by time)
+    public Mono<List<MessageResponse>> getMessages(String conversationId, String before, String after, Integer limit) {
+        return offload(() -> conversationService.getMessages(conversationId, before, after, limit));
+    }
+
+    // Send user message and get AI response
+    // Steps: save user msg + get history (offloaded) -> call AI (event loop) -> save AI msg (offloaded)
+    public Mono<Message> sendMessage(String conversationId, String userMessageText) {
+        return offload(() -> conversationService.prepareTurn(conversationId, userMessageText))
+                .flatMap(turn -> llmService.generateResponseAsync(turn.history(), userMessageText))
+                .flatMap(aiResponseText -> offload(() -> conversationService.saveAiMessage(conversationId, aiResponseText)));
+    }
+
+    // Send user message and stream the AI response token by token
+    public Flux<ChatStreamEvent> streamMessage(String conversationId, String userMessageText) {
+        return offload(() -> conversationService.prepareTurn(conversationId, userMessageText))
+                .flatMapMany(turn -> conversationService.streamReply(turn, userMessageText));
+    }
+
+    // Delete conversation and all its messages
+    public Mono<Void> deleteConversation(String conversationId) {
+        return offload(() -> {
+            conversationService.deleteConversation(conversationId);
+            return null;
+        }).then();
+    }
+
+    // Run blocking JPA work on the bounded scheduler instead of the event loop
+    private <T> Mono<T> offload(Callable<T> work) {
+        return Mono.fromCallable(work).subscribeOn(blockingScheduler);
+    }
+}
@@ -0,0 +1,199 @@
+package com.chatbot.service;
+
+import com.chatbot.repository.ConversationRepository;
+import com.chatbot.repository.MessageRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Deletes conversations with their messages: old ones in the background (retention) and
+ * single ones on request (DELETE /api/conversations/{id}).
+ *
+ * Retention policies (chat.retention.*, a zero duration turns a policy off):
+ * - max-age: conversations created longer ago than this
+ * - max-inactivity: conversations without a new message for this long (Conversation.updatedAt)
+ *
+ * Deletes never load entities (no cascade through Conversation.messages). Messages go first,
+ * in bulk DELETE statements of chunk-size rows, then the conversations. Each statement is its own
+ * short transaction, so locks and undo stay small. The background job also sleeps
+ * pause-between-chunks after every chunk and stops after max-run-time (the rest waits for the
+ * next run), so it doesn't compete with live traffic.
+ *
+ * Metrics: chat.retention.purged{table=conversations|messages, policy=age|inactivity} (rows deleted),
+ * chat.retention.run (duration of a run)
+ */
+@Component
+public class RetentionService {
+
+    private static final Logger log = LoggerFactory.getLogger(RetentionService.class);
+
+    @Value("${chat.retention.enabled:false}")
+    private boolean enabled;
+
+    @Value("${chat.retention.max-age:0}")
+    private Duration maxAge;
+
+    @Value("${chat.retention.max-inactivity:0}")
+    private Duration maxInactivity;
+
+    @Value("${chat.retention.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${chat.retention.pause-between-chunks:100ms}")
+    private Duration pauseBetweenChunks;
+
+    @Value("${chat.retention.max-run-time:5m}")
+    private Duration maxRunTime;
+
+    private final ConversationRepository conversationRepository;
+    private final MessageRepository messageRepository;
+    private final ConversationHistoryCache historyCache;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Timer runTimer;
+
+    public RetentionService(ConversationRepository conversationRepository,
+                            MessageRepository messageRepository,
+                            ConversationHistoryCache historyCache,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry) {
+        this.conversationRepository = conversationRepository;
+        this.messageRepository = messageRepository;
+        this.historyCache = historyCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.runTimer = meterRegistry.timer("chat.retention.run");
+    }
+
+    // Delete one conversation and its messages (no throttling: a user is waiting)
+    public void deleteConversation(UUID conversationId) {
+        delete(List.of(conversationId), false);
+    }
+
+    // ============================================
+    // BACKGROUND JOB
+    // ============================================
+
+    @Scheduled(fixedDelayString = "${chat.retention.run-interval:3600000}",
+               initialDelayString = "${chat.retention.initial-delay:60000}")
+    public void purge() {
+        if (!enabled || (maxAge.isZero() && maxInactivity.isZero())) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + maxRunTime.toNanos();
+        LocalDateTime now = LocalDateTime.now();
+
+        Deleted total = Deleted.NONE;
+        if (!maxAge.isZero()) {
+            LocalDateTime cutoff = now.minus(maxAge);
+            total = total.plus(purge("age", limit -> conversationRepository.findIdsCreatedBefore(cutoff, limit), deadline));
+        }
+        if (!maxInactivity.isZero()) {
+            LocalDateTime cutoff = now.minus(maxInactivity);
+            total = total.plus(purge("inactivity", limit -> conversationRepository.findIdsUpdatedBefore(cutoff, limit), deadline));
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        runTimer.record(Duration.ofNanos(elapsedNanos));
+        if (total.conversations() > 0) {
+            log.info("Retention deleted {} conversations and {} messages in {} ms{}",
+                    total.conversations(), total.messages(), elapsedNanos / 1_000_000,
+                    System.nanoTime() - deadline >= 0 ? " (max-run-time reached, continuing next run)" : "");
+        }
+    }
+
+    // Delete chunks of matching conversations until none are left or the run is out of time
+    private Deleted purge(String policy, Function<Limit, List<UUID>> findChunk, long deadline) {
+        Deleted total = Deleted.NONE;
+        while (System.nanoTime() - deadline < 0) {
+            List<UUID> conversationIds = findChunk.apply(Limit.of(chunkSize));
+            if (conversationIds.isEmpty()) {
+                break;
+            }
+            Deleted deleted = delete(conversationIds, true);
+            meterRegistry.counter("chat.retention.purged", "table", "conversations", "policy", policy)
+                    .increment(deleted.conversations());
+            meterRegistry.counter("chat.retention.purged", "table", "messages", "policy", policy)
+                    .increment(deleted.messages());
+            total = total.plus(deleted);
+            if (conversationIds.size() < chunkSize || !pause()) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    // ============================================
+    // CHUNKED BULK DELETE
+    // ============================================
+
+    // Messages first (foreign key), then the conversations
+    private Deleted delete(Collection<UUID> conversationIds, boolean throttled) {
+        long messages = deleteMessages(conversationIds, throttled);
+        int conversations;
+        try {
+            conversations = transactionTemplate.execute(status -> conversationRepository.deleteAllByIds(conversationIds));
+        } catch (DataIntegrityViolationException e) {
+            // A message was saved meanwhile (e.g. a queued write-behind batch) - delete it and try once more
+            messages += deleteMessages(conversationIds, throttled);
+            conversations = transactionTemplate.execute(status -> conversationRepository.deleteAllByIds(conversationIds));
+        }
+        conversationIds.forEach(id -> historyCache.evict(id.toString()));
+        return new Deleted(conversations, messages);
+    }
+
+    private long deleteMessages(Collection<UUID> conversationIds, boolean throttled) {
+        long deleted = 0;
+        while (true) {
+            List<UUID> messageIds = messageRepository.findIdsByConversationIds(conversationIds, Limit.of(chunkSize));
+            if (messageIds.isEmpty()) {
+                return deleted;
+            }
+            deleted += transactionTemplate.execute(status -> messageRepository.deleteAllByIds(messageIds));
+            if (messageIds.size() < chunkSize) {
+                return deleted;
+            }
+            if (throttled) {
+                // Finishes this chunk of conversations even when interrupted, so none is left half-deleted
+                pause();
+            }
+        }
+    }
+
+    // Give live traffic room between chunks; false when the thread was interrupted (shutdown)
+    private boolean pause() {
+        try {
+            Thread.sleep(pauseBetweenChunks.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Rows deleted
+    private record Deleted(int conversations, long messages) {
+        static final Deleted NONE = new Deleted(0, 0);
+
+        Deleted plus(Deleted other) {
+            return new Deleted(conversations + other.conversations, messages + other.messages);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical concurrent calls: while a call for a key is in flight, callers with the
+ * same key share it and all receive its result (or error) instead of starting their own.
+ *
+ * The shared call is not cancelled when one caller goes away, since others may still wait for it.
+ *
+ * Metrics (name = prefix): {prefix}{role=leader|follower} counts callers that started a call or
+ * joined one; {prefix}.fan.in is the number of callers served by each call.
+ */
+final class SingleFlight<K, T> {
+
+    private final Map<K, Flight<T>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter followers;
+    private final DistributionSummary fanIn;
+
+    SingleFlight(MeterRegistry meterRegistry, String prefix) {
+        this.leaders = meterRegistry.counter(prefix, "role", "leader");
+        this.followers = meterRegistry.counter(prefix, "role", "follower");
+        this.fanIn = DistributionSummary.builder(prefix + ".fan.in")
+                .description("Callers served by one in-flight call")
+                .register(meterRegistry);
+        meterRegistry.gauge(prefix + ".in.flight", inFlight, Map::size);
+    }
+
+    // Run call for key, or join the call already running for it
+    Mono<T> execute(K key, Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            // Built before it is published, so a joining caller always sees a complete flight
+            Flight<T> created = new Flight<>();
+            created.result = Mono.defer(call)
+                    .doFinally(signal -> {
+                        inFlight.remove(key, created);
+                        fanIn.record(created.callers.get());
+                    })
+                    .cache();
+
+            Flight<T> flight = inFlight.putIfAbsent(key, created);
+            if (flight == null) {
+                flight = created;
+                leaders.increment();
+            } else {
+                followers.increment();
+            }
+            flight.callers.incrementAndGet();
+            return flight.result;
+        });
+    }
+
+    private static final class Flight<T> {
+        final AtomicInteger callers = new AtomicInteger();
+        Mono<T> result;
+    }
+}
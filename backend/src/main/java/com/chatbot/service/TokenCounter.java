@@ -0,0 +1,60 @@
+package com.chatbot.service;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingResult;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts prompt tokens locally (jtokkit BPE tokenizers, no provider call), for the prompt budget.
+ *
+ * - OpenAI models use their own encoding (gpt-4o family: o200k_base, older ones: cl100k_base)
+ * - Other models (Llama on Groq) are estimated with cl100k_base. Llama 3's tokenizer is also
+ *   tiktoken-based with a larger vocabulary, so English text comes out within a few percent
+ *
+ * Chat messages cost TOKENS_PER_MESSAGE on top of their content (role and separators, as in
+ * OpenAI's chat format), and the reply is primed with REPLY_PRIMING_TOKENS.
+ */
+@Component
+public class TokenCounter {
+
+    static final int TOKENS_PER_MESSAGE = 3;
+    static final int REPLY_PRIMING_TOKENS = 3;
+
+    // Loads only the encodings actually used (each is a few MB)
+    private final EncodingRegistry registry = Encodings.newLazyEncodingRegistry();
+    private final Map<String, Encoding> encodings = new ConcurrentHashMap<>();
+
+    // Tokens of a piece of text
+    public int count(String model, String text) {
+        return encoding(model).countTokensOrdinary(text);
+    }
+
+    // Tokens of a chat message with this content
+    public int countMessage(String model, String content) {
+        return count(model, content) + TOKENS_PER_MESSAGE;
+    }
+
+    // The longest prefix of text with at most maxTokens tokens (text itself when it fits)
+    public String truncate(String model, String text, int maxTokens) {
+        // jtokkit still encodes the first token when the limit is 0
+        if (maxTokens <= 0) {
+            return "";
+        }
+        EncodingResult result = encoding(model).encodeOrdinary(text, maxTokens);
+        if (!result.isTruncated()) {
+            return text;
+        }
+        return text.substring(0, result.getLastProcessedCharacterIndex() + 1);
+    }
+
+    private Encoding encoding(String model) {
+        return encodings.computeIfAbsent(model, name -> registry.getEncodingForModel(name)
+                .orElseGet(() -> registry.getEncoding(EncodingType.CL100K_BASE)));
+    }
+}
@@ -0,0 +1,35 @@
+package com.chatbot.util;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-ordered UUIDs (version 7, RFC 9562) for conversation and message IDs.
+ * 
+ * Layout: 48-bit Unix time in milliseconds | version 7 | 12-bit counter | variant | 62 random bits
+ * 
+ * IDs created later sort after earlier ones (also within the same millisecond, thanks to the
+ * counter), so inserts append to the end of the primary key index instead of splitting random
+ * pages. The 62 random bits come from SecureRandom: a conversation ID is all a client needs to
+ * read a conversation, so IDs must stay unguessable.
+ */
+public final class UuidV7 {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // Last (timestamp << 12 | counter) handed out; only ever increases
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private UuidV7() {}
+
+    public static UUID randomUuid() {
+        long now = System.currentTimeMillis() << 12;
+        // Same millisecond (or clock went back): take the next counter value, spilling into the timestamp
+        long state = LAST.updateAndGet(last -> Math.max(last + 1, now));
+
+        long mostSigBits = ((state >>> 12) << 16) | 0x7000L | (state & 0xFFFL);
+        long leastSigBits = (RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
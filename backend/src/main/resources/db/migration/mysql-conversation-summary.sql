@@ -0,0 +1,10 @@
+-- Migration (MySQL): rolling conversation summary columns on conversations
+--
+-- Nullable, so existing conversations just start without a summary.
+-- Only needed when the schema is kept and not updated by Hibernate (ddl-auto validate):
+--   mysql -u <user> -p <database> < mysql-conversation-summary.sql
+
+ALTER TABLE conversations
+    ADD COLUMN summary TEXT NULL,
+    ADD COLUMN summary_through_id BINARY(16) NULL,
+    ADD COLUMN summary_through_at DATETIME(6) NULL;
@@ -0,0 +1,32 @@
+-- One-time migration (MySQL 8): conversation and message IDs from VARCHAR(36) to BINARY(16)
+--
+-- Existing rows keep their ID (same UUID, stored as 16 bytes), so IDs that clients already
+-- hold stay valid. New rows get time-ordered IDs (UUIDv7) from the application.
+-- ddl-auto=update does not change column types, so run this once on an existing database:
+-- stop the application, take a backup, then
+--   mysql -u root -p chatbot_db < mysql-uuid-binary-ids.sql
+
+-- 1. Drop the foreign key messages -> conversations (its name was generated by Hibernate)
+SELECT CONSTRAINT_NAME INTO @fk FROM information_schema.KEY_COLUMN_USAGE
+ WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'messages'
+   AND COLUMN_NAME = 'conversation_id' AND REFERENCED_TABLE_NAME = 'conversations';
+SET @sql = CONCAT('ALTER TABLE messages DROP FOREIGN KEY ', @fk);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 2. Conversations: fill a binary copy of the ID, then swap it in as primary key
+ALTER TABLE conversations ADD COLUMN id_bin BINARY(16);
+UPDATE conversations SET id_bin = UUID_TO_BIN(id);
+ALTER TABLE conversations DROP PRIMARY KEY, DROP COLUMN id;
+ALTER TABLE conversations RENAME COLUMN id_bin TO id;
+ALTER TABLE conversations MODIFY id BINARY(16) NOT NULL, ADD PRIMARY KEY (id);
+
+-- 3. Messages: same for the ID and the conversation reference
+ALTER TABLE messages ADD COLUMN id_bin BINARY(16), ADD COLUMN conversation_id_bin BINARY(16);
+UPDATE messages SET id_bin = UUID_TO_BIN(id), conversation_id_bin = UUID_TO_BIN(conversation_id);
+ALTER TABLE messages DROP INDEX idx_conversation_created, DROP PRIMARY KEY, DROP COLUMN id, DROP COLUMN conversation_id;
+ALTER TABLE messages RENAME COLUMN id_bin TO id, RENAME COLUMN conversation_id_bin TO conversation_id;
+ALTER TABLE messages MODIFY id BINARY(16) NOT NULL, ADD PRIMARY KEY (id),
+    ADD INDEX idx_conversation_created (conversation_id, created_at),
+    ADD CONSTRAINT fk_messages_conversation FOREIGN KEY (conversation_id) REFERENCES conversations (id);
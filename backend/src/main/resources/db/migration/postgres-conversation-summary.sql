@@ -0,0 +1,10 @@
+-- Migration (PostgreSQL): rolling conversation summary columns on conversations
+--
+-- Nullable, so existing conversations just start without a summary.
+-- Only needed when the schema is kept and not updated by Hibernate (ddl-auto validate):
+--   psql "$DATABASE_URL" -f postgres-conversation-summary.sql
+
+ALTER TABLE conversations
+    ADD COLUMN IF NOT EXISTS summary TEXT,
+    ADD COLUMN IF NOT EXISTS summary_through_id uuid,
+    ADD COLUMN IF NOT EXISTS summary_through_at timestamp(6);
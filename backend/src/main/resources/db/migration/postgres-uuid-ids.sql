@@ -0,0 +1,31 @@
+-- One-time migration (PostgreSQL): conversation and message IDs from VARCHAR(36) to uuid
+--
+-- Existing rows keep their ID (same UUID, stored as 16 bytes), so IDs that clients already
+-- hold stay valid. New rows get time-ordered IDs (UUIDv7) from the application.
+-- Only needed when the schema is kept between deployments (ddl-auto other than create):
+--   psql "$DATABASE_URL" -f postgres-uuid-ids.sql
+
+BEGIN;
+
+-- 1. Drop the foreign key messages -> conversations (its name was generated by Hibernate)
+DO $$
+DECLARE fk text;
+BEGIN
+    SELECT conname INTO fk FROM pg_constraint
+     WHERE conrelid = 'messages'::regclass AND confrelid = 'conversations'::regclass AND contype = 'f';
+    IF fk IS NOT NULL THEN
+        EXECUTE format('ALTER TABLE messages DROP CONSTRAINT %I', fk);
+    END IF;
+END $$;
+
+-- 2. Convert the columns in place (primary keys and idx_conversation_created are rebuilt)
+ALTER TABLE conversations ALTER COLUMN id TYPE uuid USING id::uuid;
+ALTER TABLE messages
+    ALTER COLUMN id TYPE uuid USING id::uuid,
+    ALTER COLUMN conversation_id TYPE uuid USING conversation_id::uuid;
+
+-- 3. Restore the foreign key
+ALTER TABLE messages ADD CONSTRAINT fk_messages_conversation
+    FOREIGN KEY (conversation_id) REFERENCES conversations (id);
+
+COMMIT;
@@ -0,0 +1,162 @@
+package com.chatbot;
+
+import com.chatbot.dto.MessageResponse;
+import com.chatbot.entity.MessageSender;
+import com.chatbot.service.ConversationService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * The db/migration scripts on a real database: a schema as created by the version with VARCHAR(36) IDs
+ * (before the summary columns), holding one conversation, is converted by the scripts. The app then
+ * starts on it with ddl-auto=validate, reads the conversation by its old ID and adds a turn to it.
+ *
+ * Needs a scratch database (conversations and messages are dropped and recreated), so each database
+ * only runs when its URL is given:
+ *   mvn test -Dtest=MigrationScriptsTest -Dtest.mysql.url="jdbc:mysql://localhost:3306/chatbot_migration?createDatabaseIfNotExist=true" -Dtest.mysql.password=...
+ *   mvn test -Dtest=MigrationScriptsTest -Dtest.postgres.url=jdbc:postgresql://localhost:5432/chatbot_migration -Dtest.postgres.password=...
+ * (users default to root / postgres, override with -Dtest.mysql.username / -Dtest.postgres.username)
+ */
+class MigrationScriptsTest {
+
+    private static final String CONVERSATION_ID = "3f2c1a9e-8b4d-4c6e-9a7f-2d1e5b8c0a41";
+    private static final String USER_MESSAGE_ID = "a1b2c3d4-e5f6-4a7b-8c9d-0e1f2a3b4c5d";
+    private static final String AI_MESSAGE_ID = "f0e1d2c3-b4a5-4968-8776-655443322110";
+
+    // Schema as Hibernate created it before the UUID migration (the foreign key has a generated name)
+    private static final List<String> MYSQL_OLD_SCHEMA = List.of(
+            "DROP TABLE IF EXISTS messages",
+            "DROP TABLE IF EXISTS conversations",
+            "CREATE TABLE conversations (id VARCHAR(36) NOT NULL, created_at DATETIME(6), updated_at DATETIME(6), "
+                    + "PRIMARY KEY (id)) ENGINE=InnoDB",
+            "CREATE TABLE messages (id VARCHAR(36) NOT NULL, conversation_id VARCHAR(36) NOT NULL, "
+                    + "sender ENUM('ai','user') NOT NULL, text TEXT NOT NULL, created_at DATETIME(6), PRIMARY KEY (id)) ENGINE=InnoDB",
+            "CREATE INDEX idx_conversation_created ON messages (conversation_id, created_at)",
+            "ALTER TABLE messages ADD CONSTRAINT FKt492th6wsovh1nush5yl5jj8e FOREIGN KEY (conversation_id) REFERENCES conversations (id)");
+
+    private static final List<String> POSTGRES_OLD_SCHEMA = List.of(
+            "DROP TABLE IF EXISTS messages",
+            "DROP TABLE IF EXISTS conversations",
+            "CREATE TABLE conversations (id VARCHAR(36) NOT NULL, created_at TIMESTAMP(6), updated_at TIMESTAMP(6), PRIMARY KEY (id))",
+            "CREATE TABLE messages (id VARCHAR(36) NOT NULL, conversation_id VARCHAR(36) NOT NULL, "
+                    + "sender VARCHAR(255) NOT NULL CHECK (sender IN ('user','ai')), text TEXT NOT NULL, created_at TIMESTAMP(6), "
+                    + "PRIMARY KEY (id))",
+            "CREATE INDEX idx_conversation_created ON messages (conversation_id, created_at)",
+            "ALTER TABLE messages ADD CONSTRAINT fkt492th6wsovh1nush5yl5jj8e FOREIGN KEY (conversation_id) REFERENCES conversations (id)");
+
+    @Test
+    @EnabledIfSystemProperty(named = "test.mysql.url", matches = ".+")
+    void mysqlScriptsConvertTheOldSchema() throws Exception {
+        String url = System.getProperty("test.mysql.url");
+        String username = System.getProperty("test.mysql.username", "root");
+        String password = System.getProperty("test.mysql.password", "");
+        try (Connection connection = DriverManager.getConnection(url, username, password)) {
+            createOldSchema(connection, MYSQL_OLD_SCHEMA);
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/mysql-uuid-binary-ids.sql"));
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/mysql-conversation-summary.sql"));
+        }
+        assertAppRunsOnMigratedSchema(url, username, password, "org.hibernate.dialect.MySQLDialect");
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "test.postgres.url", matches = ".+")
+    void postgresScriptsConvertTheOldSchema() throws Exception {
+        String url = System.getProperty("test.postgres.url");
+        String username = System.getProperty("test.postgres.username", "postgres");
+        String password = System.getProperty("test.postgres.password", "");
+        try (Connection connection = DriverManager.getConnection(url, username, password);
+             Statement statement = connection.createStatement()) {
+            createOldSchema(connection, POSTGRES_OLD_SCHEMA);
+            // Each script is sent as one string: the DO $$ ... $$ block has semicolons inside (PgJDBC splits the rest)
+            statement.execute(read("db/migration/postgres-uuid-ids.sql"));
+            statement.execute(read("db/migration/postgres-conversation-summary.sql"));
+        }
+        assertAppRunsOnMigratedSchema(url, username, password, "org.hibernate.dialect.PostgreSQLDialect");
+    }
+
+    // One conversation with a question and its answer, IDs as text
+    private static void createOldSchema(Connection connection, List<String> ddl) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : ddl) {
+                statement.execute(sql);
+            }
+        }
+        LocalDateTime start = LocalDateTime.of(2024, 1, 15, 10, 30);
+        try (PreparedStatement conversation = connection.prepareStatement(
+                "INSERT INTO conversations (id, created_at, updated_at) VALUES (?, ?, ?)")) {
+            conversation.setString(1, CONVERSATION_ID);
+            conversation.setTimestamp(2, Timestamp.valueOf(start));
+            conversation.setTimestamp(3, Timestamp.valueOf(start.plusSeconds(2)));
+            conversation.executeUpdate();
+        }
+        try (PreparedStatement message = connection.prepareStatement(
+                "INSERT INTO messages (id, conversation_id, sender, text, created_at) VALUES (?, ?, ?, ?, ?)")) {
+            insertMessage(message, USER_MESSAGE_ID, "user", "Do you ship to the UK?", start);
+            insertMessage(message, AI_MESSAGE_ID, "ai", "Yes, international shipping to the UK takes 10-15 business days.",
+                    start.plusSeconds(2));
+        }
+    }
+
+    private static void insertMessage(PreparedStatement message, String id, String sender, String text,
+                                      LocalDateTime createdAt) throws SQLException {
+        message.setString(1, id);
+        message.setString(2, CONVERSATION_ID);
+        message.setString(3, sender);
+        message.setString(4, text);
+        message.setTimestamp(5, Timestamp.valueOf(createdAt));
+        message.executeUpdate();
+    }
+
+    // Hibernate validates the converted schema at startup; old IDs still work and new turns can be added
+    private static void assertAppRunsOnMigratedSchema(String url, String username, String password, String dialect)
+            throws IOException {
+        try (TestLlmServer llm = new TestLlmServer();
+             // Command line arguments, so they win over application-test.yml
+             ConfigurableApplicationContext app = new SpringApplicationBuilder(ChatBotApplication.class)
+                     .profiles("test")
+                     .run("--server.port=0",
+                             "--spring.datasource.url=" + url,
+                             "--spring.datasource.username=" + username,
+                             "--spring.datasource.password=" + password,
+                             "--spring.jpa.hibernate.ddl-auto=validate",
+                             "--spring.jpa.properties.hibernate.dialect=" + dialect,
+                             "--llm.groq.base-url=" + llm.baseUrl(),
+                             "--llm.cache.enabled=false")) {
+            ConversationService conversations = app.getBean(ConversationService.class);
+
+            assertThat(conversations.getMessages(CONVERSATION_ID, null, null, null))
+                    .extracting(MessageResponse::getId, MessageResponse::getSender)
+                    .containsExactly(
+                            tuple(USER_MESSAGE_ID, MessageSender.user),
+                            tuple(AI_MESSAGE_ID, MessageSender.ai));
+
+            conversations.sendMessage(CONVERSATION_ID, "How long does standard shipping take?");
+
+            List<MessageResponse> messages = conversations.getMessages(CONVERSATION_ID, null, null, null);
+            assertThat(messages).hasSize(4);
+            assertThat(messages.get(3).getText()).isEqualTo(TestLlmServer.ANSWER);
+        }
+    }
+
+    private static String read(String path) throws IOException {
+        return new ClassPathResource(path).getContentAsString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,233 @@
+package com.chatbot.controller;
+
+import com.chatbot.dto.ChatStreamEvent;
+import com.chatbot.entity.Conversation;
+import com.chatbot.service.ChatEventHub;
+import com.chatbot.service.ConversationService;
+import com.chatbot.util.UuidV7;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * The frames of the WebSocket chat channel, on a mocked session: every client frame type, the pushes
+ * of replies saved elsewhere, and subscriptions that complete after the connection closed.
+ */
+@ExtendWith(MockitoExtension.class)
+class ChatWebSocketHandlerTest {
+
+    private static final String CONVERSATION_ID = UuidV7.randomUuid().toString();
+
+    @Mock private ConversationService conversationService;
+    @Mock private WebSocketSession session;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final ChatEventHub eventHub = new ChatEventHub();
+    private final List<ChatStreamEvent> frames = new ArrayList<>();
+    // Blocking-scheduler work, run when the test says so
+    private final List<Runnable> blockingTasks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        lenient().when(session.getId()).thenReturn("session-1");
+        lenient().when(session.isOpen()).thenReturn(true);
+        lenient().doAnswer(call -> frames.add(objectMapper.readValue(
+                call.<TextMessage>getArgument(0).getPayload(), ChatStreamEvent.class))).when(session).sendMessage(any());
+    }
+
+    @Test
+    void pingIsAnsweredWithPong() throws Exception {
+        ChatWebSocketHandler handler = connect(Schedulers.immediate());
+
+        receive(handler, "{\"type\":\"ping\"}");
+
+        assertThat(frames).extracting(ChatStreamEvent::getType).containsExactly(ChatStreamEvent.PONG);
+    }
+
+    @Test
+    void invalidAndUnknownFramesGetAnError() throws Exception {
+        ChatWebSocketHandler handler = connect(Schedulers.immediate());
+
+        receive(handler, "not json");
+        receive(handler, "{\"type\":\"shout\",\"requestId\":\"r1\"}");
+        receive(handler, "{\"type\":\"send\",\"message\":\"hi\"}");
+
+        assertThat(frames).extracting(ChatStreamEvent::getType, ChatStreamEvent::getRequestId, ChatStreamEvent::getText)
+                .containsExactly(
+                        tuple(ChatStreamEvent.ERROR, null, "Invalid frame: expected a JSON object"),
+                        tuple(ChatStreamEvent.ERROR, "r1", "Unknown frame type: shout"),
+                        tuple(ChatStreamEvent.ERROR, null, "requestId is required"));
+    }
+
+    // The reply's done frame comes from the stream only, not a second time as a push
+    @Test
+    void sendStreamsTokensThenOneDoneTaggedWithRequestId() throws Exception {
+        when(conversationService.streamMessageOffloaded(CONVERSATION_ID, "hi")).thenReturn(Flux.deferContextual(context -> {
+            // What ConversationService does when it saves the reply
+            ChatStreamEvent done = done("m1", "Hello there");
+            eventHub.publish(done, context.getOrDefault(ChatEventHub.ORIGIN, null));
+            return Flux.just(ChatStreamEvent.token(CONVERSATION_ID, "Hello"), ChatStreamEvent.token(CONVERSATION_ID, " there"), done);
+        }));
+        ChatWebSocketHandler handler = connect(Schedulers.immediate());
+
+        receive(handler, send("r1", "hi"));
+
+        assertThat(frames).extracting(ChatStreamEvent::getType, ChatStreamEvent::getRequestId, ChatStreamEvent::getText)
+                .containsExactly(
+                        tuple(ChatStreamEvent.TOKEN, "r1", "Hello"),
+                        tuple(ChatStreamEvent.TOKEN, "r1", " there"),
+                        tuple(ChatStreamEvent.DONE, "r1", "Hello there"));
+        // and the conversation is now subscribed, for replies from other tabs
+        assertThat(eventHub.size()).isEqualTo(1);
+    }
+
+    // The turn fails before its first event: no subscription is left behind for the unknown ID
+    @Test
+    void sendToUnknownConversationLeavesNoSubscription() throws Exception {
+        when(conversationService.streamMessageOffloaded("nope", "hi"))
+                .thenReturn(Flux.error(new RuntimeException("Conversation not found: nope")));
+        ChatWebSocketHandler handler = connect(Schedulers.immediate());
+
+        receive(handler, objectMapper.writeValueAsString(Map.of(
+                "type", "send", "requestId", "r1", "conversationId", "nope", "message", "hi")));
+
+        assertThat(frames).extracting(ChatStreamEvent::getType, ChatStreamEvent::getRequestId, ChatStreamEvent::getText)
+                .containsExactly(tuple(ChatStreamEvent.ERROR, "r1", "Conversation not found: nope"));
+        assertThat(eventHub.size()).isZero();
+    }
+
+    // Another tab's reply in the same conversation is pushed even while this connection streams one
+    @Test
+    void replyFromAnotherTabIsPushedWhileStreaming() throws Exception {
+        Sinks.Many<ChatStreamEvent> reply = Sinks.many().unicast().onBackpressureBuffer();
+        when(conversationService.streamMessageOffloaded(CONVERSATION_ID, "hi")).thenReturn(reply.asFlux());
+        ChatWebSocketHandler handler = connect(Schedulers.immediate());
+
+        receive(handler, send("r1", "hi"));
+        reply.tryEmitNext(ChatStreamEvent.token(CONVERSATION_ID, "Hel"));
+        eventHub.publish(done("other-tab", "Saved by another tab"));
+        reply.tryEmitNext(done("m1", "Hello"));
+        reply.tryEmitComplete();
+
+        assertThat(frames).extracting(ChatStreamEvent::getType, ChatStreamEvent::getRequestId, ChatStreamEvent::getMessageId)
+                .containsExactly(
+                        tuple(ChatStreamEvent.TOKEN, "r1", null),
+                        tuple(ChatStreamEvent.DONE, null, "other-tab"),
+                        tuple(ChatStreamEvent.DONE, "r1", "m1"));
+    }
+
+    @Test
+    void cancelStopsTheStreamWithoutDone() throws Exception {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        when(conversationService.streamMessageOffloaded(CONVERSATION_ID, "hi")).thenReturn(
+                Flux.just(ChatStreamEvent.token(CONVERSATION_ID, "Hel")).concatWith(Flux.never())
+                        .doOnCancel(() -> cancelled.set(true)));
+        ChatWebSocketHandler handler = connect(Schedulers.immediate());
+
+        receive(handler, send("r1", "hi"));
+        receive(handler, "{\"type\":\"cancel\",\"requestId\":\"r1\"}");
+
+        assertThat(cancelled).isTrue();
+        assertThat(frames).extracting(ChatStreamEvent::getType).containsExactly(ChatStreamEvent.TOKEN);
+    }
+
+    @Test
+    void subscribePushesRepliesUntilUnsubscribe() throws Exception {
+        when(conversationService.getConversation(CONVERSATION_ID)).thenReturn(new Conversation());
+        ChatWebSocketHandler handler = connect(Schedulers.immediate());
+
+        receive(handler, "{\"type\":\"subscribe\",\"conversationId\":\"" + CONVERSATION_ID + "\"}");
+        eventHub.publish(done("m1", "First"));
+        receive(handler, "{\"type\":\"unsubscribe\",\"conversationId\":\"" + CONVERSATION_ID + "\"}");
+        eventHub.publish(done("m2", "Second"));
+
+        assertThat(frames).extracting(ChatStreamEvent::getType, ChatStreamEvent::getMessageId)
+                .containsExactly(tuple(ChatStreamEvent.DONE, "m1"));
+        assertThat(eventHub.size()).isZero();
+    }
+
+    @Test
+    void subscribeToUnknownConversationGetsAnError() throws Exception {
+        when(conversationService.getConversation("nope")).thenThrow(new RuntimeException("Conversation not found: nope"));
+        ChatWebSocketHandler handler = connect(Schedulers.immediate());
+
+        receive(handler, "{\"type\":\"subscribe\",\"requestId\":\"r1\",\"conversationId\":\"nope\"}");
+
+        assertThat(frames).extracting(ChatStreamEvent::getType, ChatStreamEvent::getRequestId, ChatStreamEvent::getText)
+                .containsExactly(tuple(ChatStreamEvent.ERROR, "r1", "Conversation not found: nope"));
+        assertThat(eventHub.size()).isZero();
+    }
+
+    // The conversation lookup finishes on the blocking scheduler after the client has gone
+    @Test
+    void subscriptionCompletingAfterCloseIsDropped() throws Exception {
+        when(conversationService.getConversation(CONVERSATION_ID)).thenReturn(new Conversation());
+        ChatWebSocketHandler handler = connect(Schedulers.fromExecutor(blockingTasks::add));
+
+        receive(handler, "{\"type\":\"subscribe\",\"conversationId\":\"" + CONVERSATION_ID + "\"}");
+        handler.afterConnectionClosed(session, CloseStatus.GOING_AWAY);
+        runBlockingTasks();
+
+        assertThat(eventHub.size()).isZero();
+    }
+
+    private ChatWebSocketHandler connect(Scheduler blockingScheduler) {
+        ChatWebSocketHandler handler = new ChatWebSocketHandler(conversationService, eventHub, objectMapper,
+                Validation.buildDefaultValidatorFactory().getValidator(), blockingScheduler, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(handler, "maxInFlight", 4);
+        ReflectionTestUtils.setField(handler, "maxSubscriptions", 100);
+        ReflectionTestUtils.setField(handler, "sendTimeLimit", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(handler, "sendBufferLimit", DataSize.ofKilobytes(512));
+        handler.afterConnectionEstablished(session);
+        return handler;
+    }
+
+    private void receive(ChatWebSocketHandler handler, String payload) throws Exception {
+        handler.handleMessage(session, new TextMessage(payload));
+    }
+
+    private void runBlockingTasks() {
+        while (!blockingTasks.isEmpty()) {
+            blockingTasks.remove(0).run();
+        }
+    }
+
+    private String send(String requestId, String message) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(Map.of(
+                "type", "send", "requestId", requestId, "conversationId", CONVERSATION_ID, "message", message));
+    }
+
+    private static ChatStreamEvent done(String messageId, String text) {
+        return new ChatStreamEvent(ChatStreamEvent.DONE, CONVERSATION_ID, messageId, text, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,161 @@
+package com.chatbot.service;
+
+import com.chatbot.dto.ChatBatchResult;
+import com.chatbot.dto.ChatHistory;
+import com.chatbot.dto.ChatRequest;
+import com.chatbot.entity.Conversation;
+import com.chatbot.entity.Message;
+import com.chatbot.entity.MessageSender;
+import com.chatbot.util.UuidV7;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+
+/**
+ * POST /api/chat/batch: results in completion order across conversations but in batch order within
+ * one, at most chat.batch.parallelism requests in flight, chat.batch.max-requests enforced up front,
+ * and a failed request reported in its result without stopping the rest.
+ */
+@ExtendWith(MockitoExtension.class)
+class ChatBatchServiceTest {
+
+    private static final String CONVERSATION_ID = UuidV7.randomUuid().toString();
+
+    @Mock private ConversationService conversationService;
+    @Mock private LlmService llmService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Messages in the order their LLM call started
+    private final List<String> started = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private ChatBatchService service;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(conversationService.createConversation())
+                .thenAnswer(call -> new Conversation(UuidV7.randomUuid(), LocalDateTime.now(), LocalDateTime.now(), List.of()));
+        lenient().when(conversationService.prepareTurn(anyString(), anyString()))
+                .thenAnswer(call -> new ConversationService.PreparedTurn(call.getArgument(0), ChatHistory.EMPTY));
+        lenient().when(conversationService.saveAiMessage(anyString(), anyString())).thenAnswer(call -> {
+            Message message = new Message();
+            message.setId(UuidV7.randomUuid());
+            message.setSender(MessageSender.ai);
+            message.setText(call.getArgument(1));
+            message.setCreatedAt(LocalDateTime.now());
+            return message;
+        });
+        // The reply takes as many milliseconds as the message says ("slow 200" -> 200 ms)
+        lenient().when(llmService.generateResponseAsync(any(), anyString())).thenAnswer(call -> {
+            String message = call.getArgument(1);
+            long delay = Long.parseLong(message.substring(message.lastIndexOf(' ') + 1));
+            return Mono.defer(() -> {
+                        started.add(message);
+                        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        // Out of flight before the result moves on (and frees its slot)
+                        return Mono.delay(Duration.ofMillis(delay)).thenReturn("Re: " + message)
+                                .doOnTerminate(inFlight::decrementAndGet);
+                    });
+        });
+
+        service = new ChatBatchService(conversationService, llmService, Schedulers.boundedElastic(),
+                Validation.buildDefaultValidatorFactory().getValidator(), meterRegistry);
+        ReflectionTestUtils.setField(service, "parallelism", 4);
+        ReflectionTestUtils.setField(service, "maxRequests", 10);
+    }
+
+    // A fast reply in another conversation overtakes a slow one; the same conversation keeps batch order
+    @Test
+    void resultsArriveAsTheyCompleteButInBatchOrderWithinAConversation() {
+        List<ChatBatchResult> results = service.process(List.of(
+                request(CONVERSATION_ID, "slow 300"),
+                request(null, "fast 10"),
+                request(CONVERSATION_ID, "fast 10"))).collectList().block(Duration.ofSeconds(10));
+
+        assertThat(results).extracting(ChatBatchResult::getIndex, ChatBatchResult::getMessage)
+                .containsExactly(
+                        tuple(1, "Re: fast 10"),
+                        tuple(0, "Re: slow 300"),
+                        tuple(2, "Re: fast 10"));
+        assertThat(results.get(0).getConversationId()).isNotEqualTo(CONVERSATION_ID);
+        assertThat(results.get(2).getConversationId()).isEqualTo(CONVERSATION_ID);
+    }
+
+    @Test
+    void atMostParallelismRequestsAreInFlight() {
+        ReflectionTestUtils.setField(service, "parallelism", 2);
+
+        List<ChatBatchResult> results = service.process(IntStream.range(0, 8)
+                .mapToObj(i -> request(null, "question " + i + " 50"))
+                .toList()).collectList().block(Duration.ofSeconds(10));
+
+        assertThat(results).hasSize(8).allSatisfy(result -> assertThat(result.getError()).isNull());
+        assertThat(maxInFlight).hasValue(2);
+        // The first two fill the slots, the rest wait for one to free up
+        assertThat(started.subList(0, 2)).containsExactlyInAnyOrder("question 0 50", "question 1 50");
+    }
+
+    @Test
+    void batchOverMaxRequestsIsRejectedBeforeAnyWork() {
+        List<ChatRequest> requests = IntStream.range(0, 11).mapToObj(i -> request(null, "question " + i + " 10")).toList();
+
+        assertThatThrownBy(() -> service.process(requests))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Batch too large: 11 requests (max 10)");
+        assertThatThrownBy(() -> service.process(List.of()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Batch must contain at least one request");
+        assertThat(started).isEmpty();
+    }
+
+    @Test
+    void failedRequestsGetAnErrorResultAndTheRestGoOn() {
+        List<ChatRequest> requests = new ArrayList<>();
+        requests.add(request(null, "question 10"));
+        requests.add(request(null, " "));
+        requests.add(null);
+        lenient().when(conversationService.prepareTurn("nope", "question 10"))
+                .thenThrow(new RuntimeException("Conversation not found: nope"));
+        requests.add(request("nope", "question 10"));
+
+        List<ChatBatchResult> results = service.process(requests).collectList().block(Duration.ofSeconds(10));
+
+        assertThat(results).extracting(ChatBatchResult::getIndex, ChatBatchResult::getError)
+                .containsExactlyInAnyOrder(
+                        tuple(0, null),
+                        tuple(1, "Message cannot be blank"),
+                        tuple(2, "Request cannot be empty"),
+                        tuple(3, "Conversation not found: nope"));
+        assertThat(meterRegistry.counter("chat.batch.requests", "result", "success").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("chat.batch.requests", "result", "error").count()).isEqualTo(3);
+    }
+
+    private static ChatRequest request(String conversationId, String message) {
+        ChatRequest request = new ChatRequest();
+        request.setConversationId(conversationId);
+        request.setMessage(message);
+        return request;
+    }
+}
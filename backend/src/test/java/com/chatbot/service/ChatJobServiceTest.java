@@ -0,0 +1,150 @@
+package com.chatbot.service;
+
+import com.chatbot.TestLlmServer;
+import com.chatbot.dto.ChatJobResponse;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * POST /api/chat/async and the long-poll on GET /api/chat/jobs/{id}: 202 while the reply is pending
+ * (also when the wait runs out), 200 as soon as it is saved, 404 once the result outlived
+ * chat.async.result-ttl, and 503 when the worker queue is full.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "chat.async.workers=1",
+        "chat.async.queue-capacity=1",
+        "chat.async.result-ttl=500ms",
+        "chat.async.max-wait=5s",
+        "llm.cache.enabled=false"
+})
+@ActiveProfiles("test")
+// Closed afterwards: its one-worker pool and sweeps shouldn't keep running next to other test classes
+@DirtiesContext
+class ChatJobServiceTest {
+
+    private static final TestLlmServer llm = startLlm();
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private ChatJobService jobService;
+
+    @DynamicPropertySource
+    static void llmProperties(DynamicPropertyRegistry registry) {
+        registry.add("llm.groq.base-url", llm::baseUrl);
+    }
+
+    @AfterEach
+    void resetLlm() {
+        llm.setDelay(Duration.ZERO);
+    }
+
+    @AfterAll
+    static void stopLlm() {
+        llm.close();
+    }
+
+    @Test
+    void jobIsPendingUntilTheLongPollReturnsTheReply() {
+        llm.setDelay(Duration.ofMillis(1500));
+
+        ResponseEntity<ChatJobResponse> accepted = submit("How long does shipping take?");
+        assertThat(accepted.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(accepted.getBody().getStatus()).isEqualTo(ChatJobResponse.PENDING);
+        String location = accepted.getHeaders().getLocation().toString();
+        assertThat(location).isEqualTo("/api/chat/jobs/" + accepted.getBody().getJobId());
+
+        // wait=0 answers right away
+        ResponseEntity<ChatJobResponse> pending = rest.getForEntity(location + "?wait=0", ChatJobResponse.class);
+        assertThat(pending.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(pending.getBody().getStatus()).isEqualTo(ChatJobResponse.PENDING);
+
+        // Without wait: held until the reply is saved (well within max-wait)
+        long start = System.nanoTime();
+        ResponseEntity<ChatJobResponse> done = rest.getForEntity(location, ChatJobResponse.class);
+        assertThat(done.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(done.getBody().getStatus()).isEqualTo(ChatJobResponse.DONE);
+        assertThat(done.getBody().getMessage()).isEqualTo(TestLlmServer.ANSWER);
+        assertThat(done.getBody().getConversationId()).isEqualTo(accepted.getBody().getConversationId());
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void longPollEndsWith202WhenTheWaitRunsOut() {
+        llm.setDelay(Duration.ofMillis(2500));
+        String location = submit("Do you ship to the UK?").getHeaders().getLocation().toString();
+
+        long start = System.nanoTime();
+        ResponseEntity<ChatJobResponse> pending = rest.getForEntity(location + "?wait=1", ChatJobResponse.class);
+
+        assertThat(pending.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(pending.getBody().getStatus()).isEqualTo(ChatJobResponse.PENDING);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isBetween(Duration.ofMillis(900), Duration.ofMillis(2400));
+        // Still answered by the next poll
+        assertThat(rest.getForEntity(location, ChatJobResponse.class).getBody().getStatus()).isEqualTo(ChatJobResponse.DONE);
+    }
+
+    // Results are swept result-ttl after the job finished, not after it was submitted
+    @Test
+    void resultIsGoneAfterTheTtl() throws InterruptedException {
+        String location = submit("What is your return policy?").getHeaders().getLocation().toString();
+        assertThat(rest.getForEntity(location, ChatJobResponse.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        jobService.evictExpired();
+        assertThat(rest.getForEntity(location, ChatJobResponse.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        Thread.sleep(600);
+        jobService.evictExpired();
+        assertThat(rest.getForEntity(location, Map.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    // One worker and one queue slot: the third turn is turned away instead of piling up
+    @Test
+    void submitIsRejectedWhenTheQueueIsFull() {
+        llm.setDelay(Duration.ofMillis(1000));
+        ResponseEntity<ChatJobResponse> running = submit("First question");
+        ResponseEntity<ChatJobResponse> queued = submit("Second question");
+
+        ResponseEntity<Map> rejected = rest.postForEntity("/api/chat/async", Map.of("message", "Third question"), Map.class);
+
+        assertThat(running.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(queued.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(rejected.getHeaders().getFirst("Retry-After")).isEqualTo("5");
+        // The accepted ones still get their replies
+        for (ResponseEntity<ChatJobResponse> job : List.of(running, queued)) {
+            assertThat(rest.getForEntity(job.getHeaders().getLocation().toString(), ChatJobResponse.class).getBody().getStatus())
+                    .isEqualTo(ChatJobResponse.DONE);
+        }
+    }
+
+    private ResponseEntity<ChatJobResponse> submit(String message) {
+        return rest.postForEntity("/api/chat/async", Map.of("message", message), ChatJobResponse.class);
+    }
+
+    private static TestLlmServer startLlm() {
+        try {
+            return new TestLlmServer();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.chatbot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Slots of the adaptive limiter are always given back: also when a queued call is cancelled
+ * at the moment it is granted a slot.
+ */
+class ConcurrencyLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // One slot: a queued call is cancelled (client gone) while the running one ends and hands it the slot
+    @Test
+    void cancelRacingAGrantGivesTheSlotBack() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("groq", 1, 1, 1, 10, Duration.ofSeconds(5), meterRegistry);
+        CyclicBarrier start = new CyclicBarrier(2);
+
+        for (int i = 0; i < 2000; i++) {
+            Sinks.Empty<Void> running = Sinks.empty();
+            limiter.execute(() -> running.asMono().thenReturn("first")).subscribe();
+            Disposable queued = limiter.execute(() -> Mono.just("second")).subscribe();
+            assertThat(gauge("llm.limiter.queued")).isEqualTo(1);
+
+            CompletableFuture<Void> cancel = CompletableFuture.runAsync(() -> {
+                await(start);
+                queued.dispose();
+            });
+            await(start);
+            running.tryEmitEmpty();
+            cancel.join();
+
+            assertThat(gauge("llm.limiter.in.flight")).as("slots in use after round %d", i).isZero();
+            assertThat(gauge("llm.limiter.queued")).isZero();
+        }
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).tag("provider", "groq").gauge().value();
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.chatbot.service;
+
+import com.chatbot.dto.ChatHistory;
+import com.chatbot.dto.ChatTurn;
+import com.chatbot.entity.MessageSender;
+import com.chatbot.util.UuidV7;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Capacity eviction of the history cache: the least recently used conversations go first, and
+ * eviction copes with requests touching conversations while it sorts them.
+ */
+class ConversationHistoryCacheTest {
+
+    private static final int MAX_CONVERSATIONS = 20;
+
+    private final ConversationHistoryCache cache = new ConversationHistoryCache(new SimpleMeterRegistry());
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "turnsPerConversation", 10);
+        ReflectionTestUtils.setField(cache, "maxConversations", MAX_CONVERSATIONS);
+        ReflectionTestUtils.setField(cache, "idleTtl", Duration.ofMinutes(30));
+    }
+
+    @Test
+    void leastRecentlyUsedConversationsAreEvictedFirst() {
+        List<String> ids = IntStream.range(0, MAX_CONVERSATIONS).mapToObj(i -> "conversation-" + i).toList();
+        ids.forEach(this::load);
+        // The oldest two are used again, so 2-3 are now the least recently used
+        cache.history(ids.get(0), this::loadFromDatabase);
+        cache.history(ids.get(1), this::loadFromDatabase);
+
+        load("conversation-new");
+
+        // Over capacity by one: that one plus 10% of the capacity (2) are dropped
+        assertThat(cache.peek(ids.get(0))).isNotNull();
+        assertThat(cache.peek(ids.get(1))).isNotNull();
+        assertThat(cache.peek(ids.get(2))).isNull();
+        assertThat(cache.peek(ids.get(3))).isNull();
+        assertThat(cache.peek(ids.get(4))).isNull();
+        assertThat(cache.peek(ids.get(5))).isNotNull();
+        assertThat(cache.peek("conversation-new")).isNotNull();
+    }
+
+    // Readers keep changing access times while loads push the cache over capacity again and again
+    // (big enough that the sort merges runs, where a changing key breaks TimSort's contract)
+    @Test
+    void evictionWhileConversationsAreReadDoesNotFail() {
+        ReflectionTestUtils.setField(cache, "maxConversations", 2000);
+        List<String> hot = IntStream.range(0, 1000).mapToObj(i -> "hot-" + i).toList();
+        hot.forEach(this::load);
+        AtomicBoolean loading = new AtomicBoolean(true);
+        List<CompletableFuture<Void>> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            readers.add(CompletableFuture.runAsync(() -> {
+                while (loading.get()) {
+                    hot.forEach(id -> cache.peek(id));
+                    hot.forEach(id -> cache.append(id, turn()));
+                }
+            }));
+        }
+
+        try {
+            for (int i = 0; i < 20_000; i++) {
+                load("cold-" + i);
+            }
+        } finally {
+            loading.set(false);
+        }
+
+        readers.forEach(CompletableFuture::join);
+        assertThat(cache.peek("cold-19999")).isNotNull();
+    }
+
+    private void load(String conversationId) {
+        cache.history(conversationId, this::loadFromDatabase);
+    }
+
+    private ChatHistory loadFromDatabase(String conversationId) {
+        return new ChatHistory(null, List.of(turn()));
+    }
+
+    private static ChatTurn turn() {
+        return new ChatTurn(UuidV7.randomUuid(), MessageSender.user, "Where is my order?");
+    }
+}
@@ -0,0 +1,109 @@
+package com.chatbot.service;
+
+import com.chatbot.dto.ChatHistory;
+import com.chatbot.dto.ChatStreamEvent;
+import com.chatbot.entity.Message;
+import com.chatbot.repository.ConversationRepository;
+import com.chatbot.repository.MessageRepository;
+import com.chatbot.util.UuidV7;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ConversationServiceTest {
+
+    private static final String CONVERSATION_ID = UuidV7.randomUuid().toString();
+
+    @Mock private ConversationRepository conversationRepository;
+    @Mock private MessageRepository messageRepository;
+    @Mock private LlmService llmService;
+    @Mock private ConversationHistoryCache historyCache;
+    @Mock private MessageWriter messageWriter;
+    @Mock private RetentionService retentionService;
+    @Mock private ConversationSummarizer summarizer;
+
+    private final ChatEventHub eventHub = new ChatEventHub();
+    private final List<ChatStreamEvent> pushed = new ArrayList<>();
+    private ConversationService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ConversationService(conversationRepository, messageRepository, llmService, Schedulers.immediate(),
+                historyCache, messageWriter, retentionService, summarizer, eventHub, new SimpleMeterRegistry());
+        eventHub.subscribe(CONVERSATION_ID, pushed::add);
+    }
+
+    @Test
+    void completedStreamIsSavedAndEndsWithDone() {
+        when(llmService.streamResponse(any(), eq("hi"))).thenReturn(Flux.just("Hello", " there"));
+        when(messageWriter.write(eq(CONVERSATION_ID), any())).thenAnswer(call -> call.getArgument(1));
+
+        List<ChatStreamEvent> events = stream();
+
+        assertThat(events).extracting(ChatStreamEvent::getType)
+                .containsExactly(ChatStreamEvent.TOKEN, ChatStreamEvent.TOKEN, ChatStreamEvent.DONE);
+        assertThat(events.get(2).getText()).isEqualTo("Hello there");
+        assertThat(pushed).extracting(ChatStreamEvent::getText).containsExactly("Hello there");
+    }
+
+    // The provider failed after part of the reply: no apology appended to it, nothing saved or pushed
+    @Test
+    void replyBrokenOffMidStreamEndsWithErrorAndIsNotSaved() {
+        when(llmService.streamResponse(any(), eq("hi"))).thenReturn(Flux.concat(Flux.just("Hello", " the"),
+                Flux.error(new LlmService.StreamInterruptedException("The AI service is taking too long to respond.",
+                        new TimeoutException()))));
+
+        List<ChatStreamEvent> events = stream();
+
+        assertThat(events).extracting(ChatStreamEvent::getType)
+                .containsExactly(ChatStreamEvent.TOKEN, ChatStreamEvent.TOKEN, ChatStreamEvent.ERROR);
+        assertThat(events.get(2).getText()).isEqualTo("The AI service is taking too long to respond.");
+        assertThat(events.get(2).getMessageId()).isNull();
+        verify(messageWriter, never()).write(any(), any(Message.class));
+        assertThat(pushed).isEmpty();
+    }
+
+    // The subscriber's own hub listener gets the reply from the stream, other listeners get it pushed
+    @Test
+    void savedStreamReplyIsNotPushedBackToItsOrigin() {
+        when(llmService.streamResponse(any(), eq("hi"))).thenReturn(Flux.just("Hello"));
+        when(messageWriter.write(eq(CONVERSATION_ID), any())).thenAnswer(call -> call.getArgument(1));
+        List<ChatStreamEvent> ownPushes = new ArrayList<>();
+        Consumer<ChatStreamEvent> origin = ownPushes::add;
+        eventHub.subscribe(CONVERSATION_ID, origin);
+
+        List<ChatStreamEvent> events = service.streamReply(new ConversationService.PreparedTurn(CONVERSATION_ID, ChatHistory.EMPTY), "hi")
+                .contextWrite(Context.of(ChatEventHub.ORIGIN, origin))
+                .collectList()
+                .block();
+
+        assertThat(events).extracting(ChatStreamEvent::getType).containsExactly(ChatStreamEvent.TOKEN, ChatStreamEvent.DONE);
+        assertThat(ownPushes).isEmpty();
+        assertThat(pushed).extracting(ChatStreamEvent::getText).containsExactly("Hello");
+    }
+
+    private List<ChatStreamEvent> stream() {
+        return service.streamReply(new ConversationService.PreparedTurn(CONVERSATION_ID, ChatHistory.EMPTY), "hi")
+                .collectList()
+                .block();
+    }
+}
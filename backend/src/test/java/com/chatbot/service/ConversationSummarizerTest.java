@@ -0,0 +1,183 @@
+package com.chatbot.service;
+
+import com.chatbot.dto.ChatHistory;
+import com.chatbot.dto.ChatTurn;
+import com.chatbot.dto.ConversationSummary;
+import com.chatbot.dto.MessageResponse;
+import com.chatbot.entity.MessageSender;
+import com.chatbot.repository.ConversationRepository;
+import com.chatbot.repository.MessageRepository;
+import com.chatbot.util.UuidV7;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The summary compare-and-set: a run stores its summary only if the summary it started from is still
+ * the stored one, so a concurrent run (another instance) that got there first is never overwritten.
+ */
+@ExtendWith(MockitoExtension.class)
+class ConversationSummarizerTest {
+
+    private static final String CONVERSATION_ID = UuidV7.randomUuid().toString();
+    private static final UUID KEY = UUID.fromString(CONVERSATION_ID);
+    private static final int TRIGGER_MESSAGES = 4;
+    private static final int KEEP_RECENT = 2;
+
+    @Mock private ConversationRepository conversationRepository;
+    @Mock private MessageRepository messageRepository;
+    @Mock private LlmService llmService;
+    @Mock private LlmRouter router;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConversationHistoryCache historyCache = new ConversationHistoryCache(meterRegistry);
+    private final LocalDateTime start = LocalDateTime.of(2024, 1, 15, 10, 30);
+    // The message the stored summary ends with, then the page after it (trigger + keep-recent + 1 messages)
+    private final MessageResponse summarized = message(0);
+    private final List<MessageResponse> unsummarized = IntStream.rangeClosed(1, TRIGGER_MESSAGES + KEEP_RECENT + 1)
+            .mapToObj(this::message)
+            .toList();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(historyCache, "enabled", true);
+        ReflectionTestUtils.setField(historyCache, "turnsPerConversation", 20);
+        ReflectionTestUtils.setField(historyCache, "maxConversations", 100);
+
+        LlmProvider provider = mock(LlmProvider.class);
+        lenient().when(provider.model()).thenReturn("llama-3.1-8b-instant");
+        lenient().when(router.primary()).thenReturn(provider);
+        lenient().when(llmService.summarize(any(), anyList())).thenReturn(Mono.just("Customer asked about shipping."));
+    }
+
+    @Test
+    void summaryIsReplacedWhenNobodyMovedIt() {
+        ConversationSummary previous = summaryThrough(summarized);
+        givenStoredSummary(previous);
+        when(conversationRepository.updateSummary(any(), any(), any(), any(), any())).thenReturn(1);
+
+        summarizer(Schedulers.immediate()).summarizeIfDue(CONVERSATION_ID);
+
+        // Folds all but the keep-recent newest, on condition the summary still ends where it did
+        MessageResponse last = unsummarized.get(unsummarized.size() - KEEP_RECENT - 1);
+        verify(conversationRepository).updateSummary(KEY, "Customer asked about shipping.",
+                UUID.fromString(last.getId()), last.getTimestamp(), UUID.fromString(summarized.getId()));
+        assertThat(historyCache.peek(CONVERSATION_ID).summary())
+                .isEqualTo(new ConversationSummary("Customer asked about shipping.", last.getId(), last.getTimestamp()));
+        assertThat(runs("updated")).isEqualTo(1);
+        assertThat(meterRegistry.summary("chat.summary.folded").totalAmount())
+                .isEqualTo(TRIGGER_MESSAGES + 1);
+    }
+
+    // Another run stored its summary since this one read it: 0 rows, the newer summary stays in the cache too
+    @Test
+    void summaryMovedByAnotherRunIsNotOverwritten() {
+        ConversationSummary previous = summaryThrough(summarized);
+        givenStoredSummary(previous);
+        when(conversationRepository.updateSummary(any(), any(), any(), any(), any())).thenReturn(0);
+
+        summarizer(Schedulers.immediate()).summarizeIfDue(CONVERSATION_ID);
+
+        assertThat(historyCache.peek(CONVERSATION_ID).summary()).isEqualTo(previous);
+        assertThat(runs("conflict")).isEqualTo(1);
+        assertThat(runs("updated")).isZero();
+        assertThat(meterRegistry.summary("chat.summary.folded").count()).isZero();
+    }
+
+    // First summary of a conversation: inserted only where there is still none
+    @Test
+    void firstSummaryLosingTheRaceIsAConflict() {
+        givenStoredSummary(new ConversationSummary(null, (String) null, null));
+        when(messageRepository.findFirstPage(KEY, Limit.of(TRIGGER_MESSAGES + KEEP_RECENT + 1))).thenReturn(unsummarized);
+        when(conversationRepository.insertSummary(any(), any(), any(), any())).thenReturn(0);
+
+        summarizer(Schedulers.immediate()).summarizeIfDue(CONVERSATION_ID);
+
+        verify(conversationRepository, never()).updateSummary(any(), any(), any(), any(), any());
+        assertThat(historyCache.peek(CONVERSATION_ID).summary()).isNull();
+        assertThat(runs("conflict")).isEqualTo(1);
+    }
+
+    // Within one instance, a conversation has one run at a time
+    @Test
+    void secondRunForTheSameConversationIsNotStarted() {
+        givenStoredSummary(summaryThrough(summarized));
+        when(conversationRepository.updateSummary(any(), any(), any(), any(), any())).thenReturn(1);
+        List<Runnable> blockingTasks = new ArrayList<>();
+        ConversationSummarizer summarizer = summarizer(Schedulers.fromExecutor(blockingTasks::add));
+
+        summarizer.summarizeIfDue(CONVERSATION_ID);
+        summarizer.summarizeIfDue(CONVERSATION_ID);
+        while (!blockingTasks.isEmpty()) {
+            blockingTasks.remove(0).run();
+        }
+
+        verify(conversationRepository, times(1)).findSummary(KEY);
+        assertThat(runs("updated")).isEqualTo(1);
+    }
+
+    private ConversationSummarizer summarizer(Scheduler blockingScheduler) {
+        ConversationSummarizer summarizer = new ConversationSummarizer(conversationRepository, messageRepository,
+                historyCache, llmService, router, new TokenCounter(), blockingScheduler, transactionManager, meterRegistry);
+        ReflectionTestUtils.setField(summarizer, "enabled", true);
+        ReflectionTestUtils.setField(summarizer, "triggerMessages", TRIGGER_MESSAGES);
+        ReflectionTestUtils.setField(summarizer, "keepRecent", KEEP_RECENT);
+        ReflectionTestUtils.setField(summarizer, "maxInputTokens", 2000);
+        return summarizer;
+    }
+
+    // Stored summary, and the cached history holding it with every message since
+    private void givenStoredSummary(ConversationSummary summary) {
+        when(conversationRepository.findSummary(KEY)).thenReturn(Optional.of(summary));
+        lenient().when(messageRepository.findPageAfter(KEY, summarized.getTimestamp(), UUID.fromString(summarized.getId()),
+                Limit.of(TRIGGER_MESSAGES + KEEP_RECENT + 1))).thenReturn(unsummarized);
+        List<ChatTurn> turns = new ArrayList<>();
+        turns.add(turn(summarized));
+        unsummarized.forEach(message -> turns.add(turn(message)));
+        historyCache.history(CONVERSATION_ID, id -> new ChatHistory(summary.text() != null ? summary : null, turns));
+    }
+
+    private double runs(String result) {
+        return meterRegistry.counter("chat.summary.runs", "result", result).count();
+    }
+
+    private ConversationSummary summaryThrough(MessageResponse message) {
+        return new ConversationSummary("Customer ordered headphones.", message.getId(), message.getTimestamp());
+    }
+
+    private MessageResponse message(int index) {
+        return new MessageResponse(UuidV7.randomUuid(), index % 2 == 0 ? MessageSender.ai : MessageSender.user,
+                "Message " + index + " about shipping and returns", start.plusSeconds(index));
+    }
+
+    private static ChatTurn turn(MessageResponse message) {
+        return new ChatTurn(message.getId(), message.getSender(), message.getText());
+    }
+}
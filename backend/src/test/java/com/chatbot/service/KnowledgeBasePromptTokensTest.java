@@ -0,0 +1,88 @@
+package com.chatbot.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Prompt tokens of first-turn requests built from the bundled knowledge-base.md: the whole FAQ
+ * (as sent before retrieval) vs the top-k sections for the question, over a fixed question set.
+ * Requests are encoded with LlmService's system prompt and counted like a chat request
+ * (TokenCounter, per message overhead and reply priming).
+ */
+class KnowledgeBasePromptTokensTest {
+
+    private static final String MODEL = "llama-3.1-8b-instant";
+    private static final int TOP_K = 3;
+
+    // Typical customer questions and the section that has to be sent for each
+    private static final Map<String, String> QUESTIONS = Map.of(
+            "How long does express shipping take?", "Shipping Policy",
+            "Do you ship to the UK?", "Shipping Policy",
+            "Can I return headphones I already opened?", "Return & Refund Policy",
+            "When will I get my refund?", "Return & Refund Policy",
+            "Can I pay with UPI or cash on delivery?", "Payment Methods",
+            "Is my laptop covered by warranty?", "Warranty",
+            "What are your support hours on Sunday?", "Support Hours",
+            "Where is ShopEase based?", "About ShopEase");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TokenCounter tokenCounter = new TokenCounter();
+    private KnowledgeBase knowledgeBase;
+    private ChatCompletionCodec codec;
+
+    @BeforeEach
+    void setUp() {
+        knowledgeBase = new KnowledgeBase(new DefaultResourceLoader());
+        ReflectionTestUtils.setField(knowledgeBase, "location", "classpath:knowledge-base.md");
+        ReflectionTestUtils.setField(knowledgeBase, "topK", TOP_K);
+        ReflectionTestUtils.invokeMethod(knowledgeBase, "load");
+
+        codec = new ChatCompletionCodec(objectMapper.getFactory(), 500, 0.7,
+                (String) ReflectionTestUtils.getField(LlmService.class, "SYSTEM_ROLE"),
+                (String) ReflectionTestUtils.getField(LlmService.class, "NO_KNOWLEDGE_MATCH"),
+                (String) ReflectionTestUtils.getField(LlmService.class, "SYSTEM_GUIDELINES"));
+    }
+
+    @Test
+    void topKPromptIsMuchSmallerThanFullFaqAndKeepsTheRelevantSection() throws IOException {
+        int fullTotal = 0;
+        int topKTotal = 0;
+        for (Map.Entry<String, String> question : QUESTIONS.entrySet()) {
+            List<KnowledgeBase.Section> sections = knowledgeBase.search(question.getKey());
+            assertThat(sections).extracting(KnowledgeBase.Section::title)
+                    .as("sections for \"%s\"", question.getKey())
+                    .contains(question.getValue());
+
+            int full = promptTokens(knowledgeBase.sections(), question.getKey());
+            int topK = promptTokens(sections, question.getKey());
+            assertThat(topK).as("prompt tokens for \"%s\"", question.getKey()).isLessThan(full);
+            fullTotal += full;
+            topKTotal += topK;
+        }
+
+        // Over the whole set the top-k prompts must cost at most 60% of the full FAQ (about 47% with the bundled file)
+        assertThat(topKTotal)
+                .as("top-%d prompt tokens %d vs full FAQ %d over %d questions", TOP_K, topKTotal, fullTotal, QUESTIONS.size())
+                .isLessThanOrEqualTo(fullTotal * 3 / 5);
+    }
+
+    // Tokens of the encoded request's messages, as the provider bills them
+    private int promptTokens(List<KnowledgeBase.Section> sections, String question) throws IOException {
+        JsonNode request = objectMapper.readTree(codec.encodeRequest(MODEL, false, sections, List.of(), question));
+        int tokens = TokenCounter.REPLY_PRIMING_TOKENS;
+        for (JsonNode message : request.path("messages")) {
+            tokens += tokenCounter.countMessage(MODEL, message.path("content").asText());
+        }
+        return tokens;
+    }
+}
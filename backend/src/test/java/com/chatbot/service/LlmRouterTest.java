@@ -0,0 +1,114 @@
+package com.chatbot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LlmRouterTest {
+
+    private static final Duration HEDGE_DELAY = Duration.ofMillis(100);
+
+    // Primary answers after the hedge delay but before the secondary: the secondary is sent and
+    // cancelled every time, and its cancelled calls must not make it look faster than the primary
+    @Test
+    void hedgeCancelledOnSecondaryDoesNotFlipRanking() {
+        LlmRouter router = router();
+        Map<String, Duration> latency = Map.of("primary", Duration.ofMillis(300), "secondary", Duration.ofSeconds(2));
+
+        for (int i = 0; i < 8; i++) {
+            String answeredBy = router.call(provider -> Mono.delay(latency.get(provider.name())).thenReturn(provider.name()))
+                    .block();
+
+            assertThat(answeredBy).isEqualTo("primary");
+            assertThat(router.ranked().get(0).name()).as("best provider after call %d", i + 1).isEqualTo("primary");
+        }
+        // Cancelled 200 ms after it was sent: a bound below the primary's 300 ms says nothing, and the
+        // primary's head start (the hedge delay) is not charged to it
+        assertThat(router.providers().get(1).stats().snapshot().calls()).isZero();
+    }
+
+    // The other way round the ranking must move: a primary that keeps losing to the hedge
+    @Test
+    void primaryLosingHedgesDropsInRanking() {
+        LlmRouter router = router();
+        Map<String, Duration> latency = Map.of("primary", Duration.ofSeconds(2), "secondary", Duration.ofMillis(50));
+
+        for (int i = 0; i < 5; i++) {
+            router.call(provider -> Mono.delay(latency.get(provider.name())).thenReturn(provider.name())).block();
+        }
+
+        assertThat(router.ranked().get(0).name()).isEqualTo("secondary");
+        // Recorded with the time it ran before being cancelled (hedge delay + the secondary's 50 ms), not 2 s
+        assertThat(router.providers().get(0).stats().snapshot().percentile(0.5))
+                .isBetween(HEDGE_DELAY, Duration.ofSeconds(1));
+    }
+
+    // Cancelled by the caller (no winner): nothing recorded
+    @Test
+    void callerCancelIsNotRecorded() {
+        LlmRouter router = router();
+
+        router.call(provider -> Mono.delay(Duration.ofSeconds(2)).thenReturn(provider.name()))
+                .timeout(Duration.ofMillis(50), Mono.just("gave up"))
+                .block();
+
+        assertThat(router.providers().get(0).stats().snapshot().calls()).isZero();
+    }
+
+    // A long answer whose first token came quickly is not a slow call, and streams stay out of the ranking stats
+    @Test
+    void longStreamIsJudgedByFirstToken() {
+        LlmRouter router = router(Duration.ofMillis(100));
+
+        for (int i = 0; i < 10; i++) {
+            router.stream(provider -> Flux.concat(Flux.just("first"), Mono.delay(Duration.ofMillis(150)).thenReturn("last")))
+                    .blockLast();
+        }
+
+        LlmProvider primary = router.providers().get(0);
+        assertThat(primary.circuitBreaker().state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(primary.stats().snapshot().calls()).isZero();
+    }
+
+    @Test
+    void slowFirstTokenOpensCircuit() {
+        LlmRouter router = router(Duration.ofMillis(100));
+
+        for (int i = 0; i < 10; i++) {
+            router.stream(provider -> Mono.delay(Duration.ofMillis(150)).thenReturn("first").flux()).blockLast();
+        }
+
+        assertThat(router.providers().get(0).circuitBreaker().state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private static LlmRouter router() {
+        return router(Duration.ofSeconds(10));
+    }
+
+    private static LlmRouter router(Duration slowCallThreshold) {
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("llm.primary.base-url", "http://primary.invalid")
+                .withProperty("llm.secondary.base-url", "http://secondary.invalid");
+        LlmRouter router = new LlmRouter(env, new SimpleMeterRegistry(), List.of("primary", "secondary"),
+                50, Duration.ofMinutes(5),
+                10, 1, 50, 100, Duration.ofSeconds(5),
+                20, 10, 50, 80, slowCallThreshold, Duration.ofSeconds(30), 3);
+        ReflectionTestUtils.setField(router, "hedgeEnabled", true);
+        ReflectionTestUtils.setField(router, "hedgePercentile", 0.95);
+        ReflectionTestUtils.setField(router, "minHedgeDelay", HEDGE_DELAY);
+        ReflectionTestUtils.setField(router, "maxHedgeDelay", HEDGE_DELAY);
+        ReflectionTestUtils.setField(router, "defaultHedgeDelay", HEDGE_DELAY);
+        ReflectionTestUtils.setField(router, "minSamples", 5);
+        ReflectionTestUtils.setField(router, "maxRetries", 2);
+        return router;
+    }
+}
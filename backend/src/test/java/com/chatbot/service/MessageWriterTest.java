@@ -0,0 +1,170 @@
+package com.chatbot.service;
+
+import com.chatbot.entity.Message;
+import com.chatbot.entity.MessageSender;
+import com.chatbot.repository.ConversationRepository;
+import com.chatbot.repository.MessageRepository;
+import com.chatbot.util.UuidV7;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Write-behind persistence: batches flushed by size and by interval, the direct-save fallback
+ * when the queue stays full, and the queue drained on stop().
+ */
+@ExtendWith(MockitoExtension.class)
+class MessageWriterTest {
+
+    private static final String CONVERSATION_ID = UuidV7.randomUuid().toString();
+
+    @Mock private ConversationRepository conversationRepository;
+    @Mock private MessageRepository messageRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    // Message IDs of each saveAll (one per flushed batch)
+    private final List<List<UUID>> batches = Collections.synchronizedList(new ArrayList<>());
+    // Held by a test to keep the flusher busy inside a batch
+    private final CountDownLatch flushBlocked = new CountDownLatch(1);
+    private volatile boolean blockFlushes;
+
+    private MessageWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        lenient().doAnswer(call -> {
+            List<UUID> ids = new ArrayList<>();
+            call.<Iterable<Message>>getArgument(0).forEach(message -> ids.add(message.getId()));
+            batches.add(ids);
+            if (blockFlushes) {
+                flushBlocked.await(10, TimeUnit.SECONDS);
+            }
+            return List.of();
+        }).when(messageRepository).saveAll(any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        flushBlocked.countDown();
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void fullBatchIsFlushedWithoutWaitingForTheInterval() {
+        writer = start(10, 3, Duration.ofSeconds(30), Duration.ofSeconds(1));
+
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(writer.write(CONVERSATION_ID, message()).getId());
+        }
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> !batches.isEmpty());
+        assertThat(batches).containsExactly(ids);
+        verify(messageRepository, never()).save(any());
+    }
+
+    @Test
+    void partialBatchIsFlushedAfterTheInterval() {
+        Duration flushInterval = Duration.ofMillis(300);
+        writer = start(10, 100, flushInterval, Duration.ofSeconds(1));
+        long start = System.nanoTime();
+
+        UUID first = writer.write(CONVERSATION_ID, message()).getId();
+        UUID second = writer.write(CONVERSATION_ID, message()).getId();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> !batches.isEmpty());
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(flushInterval);
+        assertThat(batches).containsExactly(List.of(first, second));
+    }
+
+    // Queue of one, flusher stuck in a batch: the third message waits enqueue-timeout, then is saved by the caller
+    @Test
+    void messageIsSavedDirectlyWhenTheQueueStaysFull() {
+        when(messageRepository.save(any())).thenAnswer(call -> call.getArgument(0));
+        writer = start(1, 1, Duration.ofMillis(10), Duration.ofMillis(50));
+        blockFlushes = true;
+
+        Message inFlush = writer.write(CONVERSATION_ID, message());
+        await().atMost(Duration.ofSeconds(5)).until(() -> !batches.isEmpty());
+        Message queued = writer.write(CONVERSATION_ID, message());
+        Message direct = writer.write(CONVERSATION_ID, message());
+
+        verify(messageRepository).save(direct);
+        verify(conversationRepository).touch(anyCollection(), any(), any());
+        assertThat(batches).containsExactly(List.of(inFlush.getId()));
+
+        // The queued one is still flushed once the flusher gets going again
+        flushBlocked.countDown();
+        await().atMost(Duration.ofSeconds(5)).until(() -> batches.size() == 2);
+        assertThat(batches.get(1)).containsExactly(queued.getId());
+    }
+
+    // stop() lets the running batch commit, then flushes whatever is still queued
+    @Test
+    void stopDrainsTheQueue() {
+        writer = start(10, 1, Duration.ofMillis(10), Duration.ofSeconds(1));
+        blockFlushes = true;
+
+        Message inFlush = writer.write(CONVERSATION_ID, message());
+        await().atMost(Duration.ofSeconds(5)).until(() -> !batches.isEmpty());
+        Message second = writer.write(CONVERSATION_ID, message());
+        Message third = writer.write(CONVERSATION_ID, message());
+
+        CompletableFuture<Void> stopped = CompletableFuture.runAsync(writer::stop);
+        // running is cleared before stop() waits, so the flusher leaves the rest to stop()
+        await().atMost(Duration.ofSeconds(5)).until(() -> !writer.isRunning());
+        flushBlocked.countDown();
+        stopped.join();
+
+        assertThat(batches).flatExtracting(ids -> ids)
+                .containsExactly(inFlush.getId(), second.getId(), third.getId());
+        verify(messageRepository, never()).save(any());
+    }
+
+    private MessageWriter start(int queueCapacity, int batchSize, Duration flushInterval, Duration enqueueTimeout) {
+        MessageWriter writer = new MessageWriter(conversationRepository, messageRepository, transactionManager,
+                new SimpleMeterRegistry(), queueCapacity);
+        ReflectionTestUtils.setField(writer, "mode", "write-behind");
+        ReflectionTestUtils.setField(writer, "batchSize", batchSize);
+        ReflectionTestUtils.setField(writer, "flushInterval", flushInterval);
+        ReflectionTestUtils.setField(writer, "enqueueTimeout", enqueueTimeout);
+        writer.start();
+        return writer;
+    }
+
+    private static Message message() {
+        Message message = new Message();
+        message.setId(UuidV7.randomUuid());
+        message.setSender(MessageSender.user);
+        message.setText("Where is my order?");
+        message.setCreatedAt(LocalDateTime.now());
+        return message;
+    }
+}
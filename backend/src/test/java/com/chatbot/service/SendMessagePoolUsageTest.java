@@ -0,0 +1,126 @@
+package com.chatbot.service;
+
+import com.chatbot.TestLlmServer;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * DB pool usage of the send pipeline does not grow with LLM latency: no connection is held
+ * while a reply is awaited, so concurrent slow sends leave the pool idle during the LLM call.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.hikari.maximum-pool-size=20",
+        "spring.datasource.hikari.minimum-idle=0",
+        "llm.cache.enabled=false"
+})
+@ActiveProfiles("test")
+class SendMessagePoolUsageTest {
+
+    private static final int CONCURRENT_SENDS = 8;
+
+    private static final TestLlmServer llm = startLlm();
+
+    @Autowired
+    private ConversationService conversationService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @DynamicPropertySource
+    static void llmProperties(DynamicPropertyRegistry registry) {
+        registry.add("llm.groq.base-url", llm::baseUrl);
+    }
+
+    @AfterAll
+    static void stopLlm() {
+        llm.close();
+    }
+
+    @Test
+    void connectionsAreNotHeldWhileWaitingForTheLlm() throws Exception {
+        Duration fast = Duration.ofMillis(50);
+        Duration slow = Duration.ofMillis(1500);
+
+        PoolUsage fastUsage = sendConcurrently(fast);
+        PoolUsage slowUsage = sendConcurrently(slow);
+
+        // While every send waits for the slow LLM (after the short first transactions, before the
+        // replies arrive), no connection is in use
+        assertThat(slowUsage.peakWhileWaiting()).isZero();
+        // and connection time doesn't grow with the latency: each send only holds one for its short transactions
+        // (held through the LLM call, it would be at least CONCURRENT_SENDS x the latency). Not the peak: on a
+        // busy CPU the first transactions of a burst can all overlap, whatever the latency
+        assertThat(slowUsage.connectionMillis())
+                .as("connection time with %s LLM latency (%d ms with %s)", slow, fastUsage.connectionMillis(), fast)
+                .isLessThan(CONCURRENT_SENDS * slow.toMillis() / 4);
+    }
+
+    // CONCURRENT_SENDS sends in separate conversations while sampling the pool's active connections
+    private PoolUsage sendConcurrently(Duration llmDelay) throws Exception {
+        llm.setDelay(llmDelay);
+        List<String> conversationIds = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_SENDS; i++) {
+            conversationIds.add(conversationService.createConversation().getId().toString());
+        }
+
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+        ExecutorService senders = Executors.newFixedThreadPool(CONCURRENT_SENDS);
+        try {
+            long start = System.nanoTime();
+            List<CompletableFuture<?>> sends = conversationIds.stream()
+                    .<CompletableFuture<?>>map(id -> CompletableFuture.runAsync(
+                            () -> conversationService.sendMessage(id, "How long does shipping to " + id + " take?"), senders))
+                    .toList();
+            CompletableFuture<Void> all = CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new));
+
+            // "Waiting" = from a third of the LLM delay (first transactions done) to two thirds (no reply yet)
+            long waitFrom = start + llmDelay.toNanos() / 3;
+            long waitTo = start + llmDelay.toNanos() * 2 / 3;
+            int peakWhileWaiting = 0;
+            long connectionNanos = 0;
+            long sampledAt = start;
+            while (!all.isDone()) {
+                int active = pool.getHikariPoolMXBean().getActiveConnections();
+                long now = System.nanoTime();
+                if (now >= waitFrom && now <= waitTo) {
+                    peakWhileWaiting = Math.max(peakWhileWaiting, active);
+                }
+                connectionNanos += active * (now - sampledAt);
+                sampledAt = now;
+                Thread.sleep(2);
+            }
+            all.join();
+            return new PoolUsage(peakWhileWaiting, connectionNanos / 1_000_000);
+        } finally {
+            senders.shutdownNow();
+        }
+    }
+
+    // Most connections in use while the LLM was awaited, and connection time summed over the sends (sampled)
+    private record PoolUsage(int peakWhileWaiting, long connectionMillis) {}
+
+    private static TestLlmServer startLlm() {
+        try {
+            return new TestLlmServer();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.chatbot.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * TokenCounter.truncate, used to cap the user message in the prompt budget: text that fits is
+ * returned as is, longer text is cut to the longest prefix within the limit.
+ */
+class TokenCounterTest {
+
+    private static final String MESSAGE = "Hi, I ordered wireless headphones last week (order #48213) and they still "
+            + "haven't shipped. Can you tell me when they will arrive, and whether I can switch to express shipping?";
+
+    private final TokenCounter tokenCounter = new TokenCounter();
+
+    @ParameterizedTest
+    @ValueSource(strings = {"llama-3.1-8b-instant", "gpt-4o-mini", "gpt-3.5-turbo"})
+    void textWithinTheLimitIsReturnedAsIs(String model) {
+        int tokens = tokenCounter.count(model, MESSAGE);
+
+        assertThat(tokenCounter.truncate(model, MESSAGE, tokens)).isSameAs(MESSAGE);
+        assertThat(tokenCounter.truncate(model, MESSAGE, tokens + 100)).isSameAs(MESSAGE);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"llama-3.1-8b-instant", "gpt-4o-mini", "gpt-3.5-turbo"})
+    void longerTextIsCutToTheLongestPrefixWithinTheLimit(String model) {
+        int tokens = tokenCounter.count(model, MESSAGE);
+
+        for (int maxTokens = 1; maxTokens < tokens; maxTokens++) {
+            String truncated = tokenCounter.truncate(model, MESSAGE, maxTokens);
+
+            assertThat(MESSAGE).startsWith(truncated);
+            assertThat(tokenCounter.count(model, truncated)).as("tokens with limit %d", maxTokens)
+                    .isLessThanOrEqualTo(maxTokens);
+            // One more token's worth of text would go over the limit
+            String longer = tokenCounter.truncate(model, MESSAGE, maxTokens + 1);
+            assertThat(longer.length()).isGreaterThan(truncated.length());
+        }
+    }
+
+    // Multi-byte characters and emoji (surrogate pairs) are never split
+    @Test
+    void truncationDoesNotSplitCharacters() {
+        String message = "Mon café ☕ est arrivé cassé 😞😞😞, puis-je être remboursé? Merci 🙏 ".repeat(3);
+        int tokens = tokenCounter.count("gpt-4o-mini", message);
+
+        for (int maxTokens = 1; maxTokens < tokens; maxTokens++) {
+            String truncated = tokenCounter.truncate("gpt-4o-mini", message, maxTokens);
+
+            assertThat(message).startsWith(truncated);
+            assertThat(truncated).doesNotEndWith("�");
+            if (!truncated.isEmpty()) {
+                assertThat(Character.isHighSurrogate(truncated.charAt(truncated.length() - 1)))
+                        .as("ends inside a surrogate pair with limit %d", maxTokens).isFalse();
+            }
+            assertThat(tokenCounter.count("gpt-4o-mini", truncated)).isLessThanOrEqualTo(maxTokens);
+        }
+    }
+
+    @Test
+    void zeroTokensLeavesNothing() {
+        assertThat(tokenCounter.truncate("llama-3.1-8b-instant", MESSAGE, 0)).isEmpty();
+    }
+}
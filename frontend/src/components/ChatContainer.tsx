@@ -22,7 +22,8 @@ import React, { useState, useEffect } from 'react';
 import MessageList from './MessageList';
 import ChatInput from './ChatInput';
 import { chatApi } from '../services/chatApi';
-import type { Message } from '../types/chat';
+import { chatSocket, SocketUnavailableError } from '../services/chatSocket';
+import type { ChatRequest, Message } from '../types/chat';
 import './ChatContainer.css';
 
 // Key for storing conversation ID in browser localStorage
@@ -101,8 +102,8 @@ const ChatContainer: React.FC = () => {
   /**
    * Handles sending a message
    * 1. Add user message to the list immediately (for instant feedback)
-   * 2. Send message to backend API
-   * 3. Add AI response to the list when received
+   * 2. Send message over the WebSocket connection (HTTP API if it can't connect)
+   * 3. Show the AI response as it streams in, with its saved ID once done
    */
   const handleSendMessage = async (text: string) => {
     // Don't send empty messages
@@ -121,11 +122,35 @@ const ChatContainer: React.FC = () => {
     setIsLoading(true);
     setError(null);
 
+    // Temporary ID of the AI message while its reply streams in
+    const streamingId = `streaming-${userMessage.id}`;
+    let streamedText = '';
+
+    // Add the first piece of the reply as a new AI message, then grow it
+    const handleToken = (token: string) => {
+      streamedText += token;
+      const partial: Message = {
+        id: streamingId,
+        text: streamedText,
+        sender: 'ai',
+        timestamp: new Date().toISOString(),
+      };
+      setMessages((prev) => prev.some((msg) => msg.id === streamingId)
+        ? prev.map((msg) => (msg.id === streamingId ? partial : msg))
+        : [...prev, partial]);
+    };
+
     try {
-      // Send message to backend and wait for AI response
-      const response = await chatApi.sendMessage({
+      const request: ChatRequest = {
         conversationId: conversationId || undefined,
         message: text,
+      };
+
+      // Send message to backend and wait for the complete AI response
+      const response = await chatSocket.sendMessage(request, handleToken).catch((err: unknown) => {
+        // Fall back to HTTP only when the message wasn't sent (no duplicate message)
+        if (err instanceof SocketUnavailableError) return chatApi.sendMessage(request);
+        throw err;
       });
 
       // Save conversation ID (important for continuing the conversation)
@@ -141,10 +166,11 @@ const ChatContainer: React.FC = () => {
         timestamp: response.timestamp || new Date().toISOString(),
       };
 
-      // Add AI message to the list
-      setMessages((prev) => [...prev, aiMessage]);
+      // Replace the streamed message (or add it, if nothing was streamed)
+      setMessages((prev) => [...prev.filter((msg) => msg.id !== streamingId), aiMessage]);
     } catch (err) {
       // Show error message if something went wrong
+      setMessages((prev) => prev.filter((msg) => msg.id !== streamingId));
       setError('Failed to send message. Please check if the backend is running.');
       console.error('Error sending message:', err);
     } finally {
@@ -15,7 +15,7 @@
  * - POST /api/chat - Send a message and get AI response
  * - POST /api/conversations - Create a new conversation
  * - GET /api/conversations/:id - Get conversation details
- * - GET /api/conversations/:id/messages - Get all messages
+ * - GET /api/conversations/:id/messages - Get messages (latest page, ?before= / ?after= message ID)
  * - DELETE /api/conversations/:id - Delete a conversation
  */
 
@@ -69,7 +69,7 @@ export const chatApi = {
   },
 
   /**
-   * Get all messages in a conversation
+   * Get the latest messages in a conversation (oldest first)
    * Useful for loading conversation history
    */
   getMessages: async (conversationId: string): Promise<Message[]> => {
@@ -0,0 +1,139 @@
+/**
+ * ============================================
+ * CHAT WEBSOCKET SERVICE
+ * ============================================
+ *
+ * Sends chat messages over one persistent WebSocket connection (/ws/chat)
+ * instead of a new HTTP request per message, and streams the AI reply
+ * token by token.
+ *
+ * Frames are JSON:
+ * - sent:     { type: 'send', requestId, conversationId?, message }
+ * - received: { type: 'token' | 'done' | 'error', requestId, conversationId, text, ... }
+ *
+ * The connection is opened on the first message and again after it dropped.
+ * If it can't be opened, sendMessage throws SocketUnavailableError and the
+ * caller can use the HTTP API (chatApi) instead.
+ */
+
+import type { ChatRequest, ChatResponse, ChatSocketEvent } from '../types/chat';
+
+// Same server as the HTTP API
+const API_BASE_URL = import.meta.env.VITE_API_BASE_URL || 'http://localhost:8081/api';
+
+// Keep the connection from hitting the server's idle timeout
+const PING_INTERVAL_MS = 60_000;
+
+/** The WebSocket connection could not be opened (the message was not sent) */
+export class SocketUnavailableError extends Error {}
+
+interface PendingRequest {
+  onToken: (text: string) => void;
+  resolve: (response: ChatResponse) => void;
+  reject: (error: Error) => void;
+}
+
+let socket: WebSocket | null = null;
+let connecting: Promise<WebSocket> | null = null;
+let nextRequestId = 1;
+
+// Sends waiting for their "done" frame, by requestId
+const pending = new Map<string, PendingRequest>();
+
+/**
+ * ws(s)://<API host>/ws/chat, from the API URL
+ * (absolute like "http://localhost:8081/api" or relative like "/api")
+ */
+const socketUrl = (): string => {
+  const url = new URL(API_BASE_URL, window.location.href);
+  url.protocol = url.protocol === 'https:' ? 'wss:' : 'ws:';
+  url.pathname = url.pathname.replace(/\/api\/?$/, '') + '/ws/chat';
+  return url.toString();
+};
+
+/**
+ * Routes a received frame to the send it answers
+ * (pushed replies of other tabs have no requestId and are ignored here)
+ */
+const handleFrame = (event: ChatSocketEvent) => {
+  const request = event.requestId ? pending.get(event.requestId) : undefined;
+  if (!event.requestId || !request) return;
+
+  if (event.type === 'token') {
+    request.onToken(event.text ?? '');
+  } else if (event.type === 'done') {
+    pending.delete(event.requestId);
+    request.resolve({
+      conversationId: event.conversationId ?? '',
+      messageId: event.messageId ?? '',
+      message: event.text ?? '',
+      sender: 'ai',
+      timestamp: event.timestamp ?? null,
+    });
+  } else if (event.type === 'error') {
+    pending.delete(event.requestId);
+    request.reject(new Error(event.text || 'Failed to send message'));
+  }
+};
+
+/**
+ * Returns the open connection, opening it if needed
+ */
+const connect = (): Promise<WebSocket> => {
+  if (socket && socket.readyState === WebSocket.OPEN) return Promise.resolve(socket);
+  if (connecting) return connecting;
+
+  connecting = new Promise<WebSocket>((resolve, reject) => {
+    const ws = new WebSocket(socketUrl());
+    let pingTimer: number | undefined;
+    let opened = false;
+
+    ws.onopen = () => {
+      opened = true;
+      socket = ws;
+      connecting = null;
+      pingTimer = window.setInterval(() => ws.send(JSON.stringify({ type: 'ping' })), PING_INTERVAL_MS);
+      resolve(ws);
+    };
+
+    ws.onmessage = (message: MessageEvent<string>) => {
+      handleFrame(JSON.parse(message.data) as ChatSocketEvent);
+    };
+
+    ws.onclose = () => {
+      window.clearInterval(pingTimer);
+      if (!opened) {
+        connecting = null;
+        reject(new SocketUnavailableError('WebSocket connection failed'));
+        return;
+      }
+      if (socket === ws) socket = null;
+      // Replies still streaming are lost with the connection
+      pending.forEach((request) => request.reject(new Error('Connection lost while waiting for the reply')));
+      pending.clear();
+    };
+  });
+  return connecting;
+};
+
+/**
+ * Chat WebSocket object
+ * Same request and response as chatApi.sendMessage, plus the reply as it streams
+ */
+export const chatSocket = {
+  /**
+   * Send a message and stream the AI response
+   *
+   * @param request - Contains conversationId (optional) and message text
+   * @param onToken - Called with each piece of the reply as it is generated
+   * @returns AI response with conversationId and message, once the reply was saved
+   */
+  sendMessage: async (request: ChatRequest, onToken: (text: string) => void): Promise<ChatResponse> => {
+    const ws = await connect();
+    const requestId = String(nextRequestId++);
+    return new Promise<ChatResponse>((resolve, reject) => {
+      pending.set(requestId, { onToken, resolve, reject });
+      ws.send(JSON.stringify({ type: 'send', requestId, ...request }));
+    });
+  },
+};
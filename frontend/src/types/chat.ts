@@ -53,3 +53,17 @@ export interface Conversation {
   createdAt: string;   // When the conversation started
   updatedAt: string;   // Last activity time
 }
+
+/**
+ * Frame received on the WebSocket channel (/ws/chat)
+ * "token" frames carry a piece of the reply, "done" the saved AI message,
+ * "error" an error message (in text)
+ */
+export interface ChatSocketEvent {
+  type: 'token' | 'done' | 'error' | 'pong';
+  requestId?: string;      // The "send" this frame answers (missing on pushed replies)
+  conversationId?: string;
+  messageId?: string;      // Only set on "done"
+  text?: string;           // Token text, full reply on "done", or the error message
+  timestamp?: string;
+}
@@ -11,6 +11,11 @@ export default defineConfig({
         target: 'http://localhost:8081',
         changeOrigin: true,
       },
+      // WebSocket chat channel
+      '/ws': {
+        target: 'ws://localhost:8081',
+        ws: true,
+      },
     },
   },
   build: {